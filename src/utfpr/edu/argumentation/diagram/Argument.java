@@ -9,16 +9,22 @@ import java.awt.Container;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.LayoutManager;
+import java.awt.LayoutManager2;
 import java.awt.Rectangle;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
 import java.util.List;
-import javax.swing.JLabel;
+import java.util.Map;
+import java.util.Set;
 import javax.swing.JPanel;
 import net.java.balloontip.BalloonTip;
 import net.java.balloontip.positioners.LeftBelowPositioner;
 import net.java.balloontip.styles.ToolTipBalloonStyle;
 import utfpr.edu.swing.utils.CustomBalloonTipVisibility;
+import utfpr.edu.swing.utils.ScriptedLabel;
+import utfpr.edu.swing.utils.ScriptedText;
 
 /**
  * Class that represents and draws an argument as a swing.JComponent.
@@ -36,21 +42,55 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
     private ArgumentionFramework myFramework;
 
     private Atom conclusion;
-    private final JLabel argID;
-    private JLabel rule;
+    private final ScriptedText argIDText;
+    private final ScriptedText ruleText;
+    private String ruleTooltip;
+    private ScriptedLabel argID = null;
+    private ScriptedLabel rule = null;
     private List<Argument> subArguments;
     private boolean strictRule;
     private boolean translucent = false;
     private final Argument thisRef;
-    private CustomBalloonTipVisibility ruleTooltipB;
+    private CustomBalloonTipVisibility ruleTooltipB = null;
+
+    private ArgumentRecord record = null;
+
+    private static ScriptedLabel measuringLabel = null;
 
     static int bracketGap = 6;
     static int bracketWidth = 8;
 
     private double sizeMultiplier = 1.0;
 
+    private int xToRoot = 0;
+    private int yToRoot = 0;
+    private boolean rootOffsetValid = false;
+
+    private ArgumentTreeIndex treeIndex = null;
+    private Argument treeRoot = null;
+    private int treeEnter = 0;
+    private int treeExit = 0;
+
+    private static final Set<String> LAYOUT_PROPERTIES = Set.of("text", "font", "border", "icon", "iconTextGap", "preferredSize", "minimumSize");
+
+    private final PropertyChangeListener labelListener = (evt) -> {
+        if (LAYOUT_PROPERTIES.contains(evt.getPropertyName())) {
+            invalidateGeometry();
+        } else if (Atom.STRICT_PROPERTY.equals(evt.getPropertyName())) {
+            invalidateRecord();
+        }
+    };
+
+    private final ComponentAdapter tooltipListener = new ComponentAdapter() {
+        @Override
+        public void componentResized(ComponentEvent e) {
+            invalidateGeometry();
+        }
+    };
+
     /**
-     * Constructor
+     * Constructor. The identifier and rule labels are only created once the
+     * argument is displayed as a component, see setLabelComponents.
      *
      * @param conclusion conclusion Atom
      * @param type argument type
@@ -67,6 +107,8 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
 
         this.setLayout(new ArgumentLayout(this));
         this.setOpaque(false);
+        // Painted within the canvas buffer, whose graphics is scaled
+        this.setDoubleBuffered(false);
 
         this.type = type;
         this.myFramework = myFramework;
@@ -75,29 +117,11 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
         this.strictRule = strictRule;
         this.subArguments = new ArrayList<>();
 
-        if (ruleID != null) {
-            this.rule = new JLabel(ruleID.matches("^([a-zA-Z0-9]*)(_([a-zA-Z0-9]*))?(\\^([a-zA-Z0-9]*))?") ? ruleID.replaceAll("^([a-zA-Z0-9]*)(_([a-zA-Z0-9]*))?(\\^([a-zA-Z0-9]*))?", "<html><font color=#000000>$1<sub>$3</sub><sup>$5</sup></font></html>") : ruleID);
-            this.rule.setOpaque(true);
-            this.rule.setBackground(new Color(0xf9f9f9));
-
-            if (ruleTooltip != null) {
-                //            ruleTooltipB = new BalloonTip(this.rule, ruleTooltip, new ToolTipBalloonStyle(new Color(184, 207, 229), new Color(99, 130, 191)), false);
-                ruleTooltipB = new CustomBalloonTipVisibility(this.rule, ruleTooltip, new ToolTipBalloonStyle(new Color(184, 207, 229), new Color(99, 130, 191)), false);
-                ruleTooltipB.setTopLevelContainer(myFramework);
-                ruleTooltipB.setVisible(false);
-                //            ruleTooltipB.setPositioner(new RuleTooltipPositioner(5, 5));
-                ruleTooltipB.setPositioner(new RuleTooltipPositioner(0, 0));
-            }
-
-            this.add(this.rule);
-        }
-
-        this.argID = new JLabel(_argID.matches("^([a-zA-Z0-9]*)(_([a-zA-Z0-9]*))?(\\^([a-zA-Z0-9]*))?") ? _argID.replaceAll("^([a-zA-Z0-9]*)(_([a-zA-Z0-9]*))?(\\^([a-zA-Z0-9]*))?", "<html><font color=#000000>$1<sub>$3</sub><sup>$5</sup></font></html>") : _argID);
-        this.argID.setOpaque(true);
-        this.argID.setBackground(new Color(0xf9f9f9));
+        this.argIDText = ScriptedText.parse(_argID);
+        this.ruleText = (ruleID != null ? ScriptedText.parse(ruleID) : null);
+        this.ruleTooltip = ruleTooltip;
 
         this.add(this.conclusion);
-        this.add(this.argID);
 
         int maxArgW = conclusion.getWidth();
         int maxArgH = 0;
@@ -108,6 +132,7 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
                 }
                 this.subArguments.add(arg);
                 this.add(arg);
+                arg.invalidateRootOffset();
 
                 maxArgW = Math.max(maxArgW, arg.getWidth());
                 maxArgH = Math.max(maxArgH, arg.getHeight());
@@ -115,6 +140,7 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
         }
 
         updateForegroundByType();
+        updateLabelColors();
 
         this.getLayout().layoutContainer(this);
     }
@@ -127,8 +153,9 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
      */
     protected void setParentFocus(Component comp) {
 //        if (getParent() instanceof ArgumentionFramework) {
-        if (getParent() instanceof ScaledJLayeredPane) {
-            ((ArgumentionFramework) getParent().getParent()).setFocus(comp);
+        ScaledJLayeredPane canvas = ScaledJLayeredPane.canvasOf(this);
+        if (canvas != null) {
+            canvas.getFramework().setFocus(comp);
             return;
         }
 
@@ -138,6 +165,11 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
     }
 
     public void setTooltipVisibility(boolean visible) {
+        // Stamped arguments have no component on screen for the tooltips to point to
+        if (visible && !isShowing()) {
+            return;
+        }
+
         if (ruleTooltipB != null) {
             ruleTooltipB.forceVisibility(visible);
         }
@@ -151,13 +183,37 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
     }
 
     public boolean mouseMoved(int mouseX, int mouseY) {
+        if (mouseOver(myFramework.unScaledX(mouseX), myFramework.unScaledY(mouseY))) {
+            return true;
+        }
+
+        boolean onSubArg = false;
+        for (Argument arg : subArguments) {
+            onSubArg = onSubArg | arg.mouseMoved(mouseX, mouseY);
+        }
+
+        return onSubArg;
+    }
+
+    /**
+     * Updates the tooltips of this argument only, without visiting the
+     * subarguments, and focus it if (x, y) is over the argument identifier.
+     *
+     * @param x unscaled x position
+     * @param y unscaled y position
+     * @return true if (x, y) is over the argument identifier, false otherwise
+     */
+    boolean mouseOver(int x, int y) {
+        int xToRoot = getXToRoot() + getX();
+        int yToRoot = getYToRoot() + getY();
+
         Rectangle bounds = this.conclusion.getBounds();
-        bounds.x += getXToRoot() + getX();
-        bounds.y += getYToRoot() + getY();
+        bounds.translate(xToRoot, yToRoot);
 
-        if (this.conclusion.toolTip != null) {
+        // Stamped arguments have no component on screen for the tooltips to point to
+        if (this.conclusion.toolTip != null && isShowing()) {
             if (!myFramework.isTooltipVisibilityLocked()) {
-                this.conclusion.toolTip.setVisible(bounds.contains(myFramework.unScaledX(mouseX), myFramework.unScaledY(mouseY)));
+                this.conclusion.toolTip.setVisible(bounds.contains(x, y));
             } else {
                 if (myFramework.getFocusedType() != null) {
                     this.conclusion.toolTip.setVisible(myFramework.getFocusedType() == type);
@@ -165,15 +221,12 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
             }
         }
 
-        if (this.rule != null) {
+        if (this.rule != null && this.ruleTooltipB != null && isShowing()) {
             bounds = this.rule.getBounds();
-        }
-        bounds.x += getXToRoot() + getX();
-        bounds.y += getYToRoot() + getY();
+            bounds.translate(xToRoot, yToRoot);
 
-        if (this.ruleTooltipB != null) {
             if (!myFramework.isTooltipVisibilityLocked()) {
-                this.ruleTooltipB.setVisible(bounds.contains(myFramework.unScaledX(mouseX), myFramework.unScaledY(mouseY)));
+                this.ruleTooltipB.setVisible(bounds.contains(x, y));
             } else {
                 if (myFramework.getFocusedType() != null) {
                     this.ruleTooltipB.setVisible(myFramework.getFocusedType() == type);
@@ -181,21 +234,50 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
             }
         }
 
-        bounds = this.argID.getBounds();
-        bounds.x += getXToRoot() + getX();
-        bounds.y += getYToRoot() + getY();
-        if (bounds.contains(myFramework.unScaledX(mouseX), myFramework.unScaledY(mouseY))) {
+        bounds = new Rectangle(getGeometry().getArgIDBounds());
+        bounds.translate(xToRoot, yToRoot);
+        if (bounds.contains(x, y)) {
             setParentFocus(thisRef);
             return true;
-        } else {
-            boolean onSubArg = false;
-            for (Argument arg : subArguments) {
-                onSubArg = onSubArg | arg.mouseMoved(mouseX, mouseY);
-            }
+        }
+
+        return false;
+    }
 
-            return onSubArg;
-//            setParentFocus(null);
+    /**
+     * Returns the bounds of the conclusion, identifier and rule labels in
+     * relation to the root argument's parent. Subarguments are not included.
+     * The label bounds come from the geometry, so they are known whether the
+     * labels were created or not.
+     *
+     * @return the label bounds
+     */
+    List<Rectangle> getHoverBounds() {
+        int xToRoot = getXToRoot() + getX();
+        int yToRoot = getYToRoot() + getY();
+        ArgumentGeometry geometry = getGeometry();
+
+        List<Rectangle> bounds = new ArrayList<>(3);
+        bounds.add(conclusion.getBounds());
+        bounds.add(new Rectangle(geometry.getArgIDBounds()));
+        if (geometry.getRuleBounds() != null) {
+            bounds.add(new Rectangle(geometry.getRuleBounds()));
         }
+
+        bounds.forEach((r) -> {
+            r.translate(xToRoot, yToRoot);
+        });
+
+        return bounds;
+    }
+
+    /**
+     * Returns the subarguments.
+     *
+     * @return the subarguments list
+     */
+    List<Argument> getSubArguments() {
+        return subArguments;
     }
 
     /**
@@ -262,21 +344,97 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
     }
 
     public void setRuleTooltipText(String tooltip) {
-        if (ruleTooltipB != null) {
-            ruleTooltipB.closeBalloon();
-        }
+        closeRuleTooltip();
 
-        if (tooltip == null) {
-            return;
-        }
+        this.ruleTooltip = tooltip;
+        createRuleTooltip();
+    }
 
-        if (this.rule != null) {
-            ruleTooltipB = new CustomBalloonTipVisibility(this.rule, tooltip, new ToolTipBalloonStyle(new Color(184, 207, 229), new Color(99, 130, 191)), false);
+    /**
+     * Creates the rule tooltip, if there is a tooltip text and the rule label
+     * was created.
+     */
+    private void createRuleTooltip() {
+        if (this.rule != null && ruleTooltip != null) {
+            //            ruleTooltipB = new BalloonTip(this.rule, ruleTooltip, new ToolTipBalloonStyle(new Color(184, 207, 229), new Color(99, 130, 191)), false);
+            ruleTooltipB = new CustomBalloonTipVisibility(this.rule, ruleTooltip, new ToolTipBalloonStyle(new Color(184, 207, 229), new Color(99, 130, 191)), false);
             ruleTooltipB.setTopLevelContainer(myFramework);
             ruleTooltipB.setVisible(false);
             //        ruleTooltipB.setPositioner(new RuleTooltipPositioner(5, 5));
             ruleTooltipB.setPositioner(new RuleTooltipPositioner(0, 0));
+            ruleTooltipB.addComponentListener(tooltipListener);
+        }
+    }
+
+    /**
+     * Closes and discards the rule tooltip, if there is one.
+     */
+    private void closeRuleTooltip() {
+        if (ruleTooltipB != null) {
+            ruleTooltipB.removeComponentListener(tooltipListener);
+            ruleTooltipB.closeBalloon();
+            ruleTooltipB = null;
+            invalidateGeometry();
+        }
+    }
+
+    /**
+     * Creates or discards the identifier and rule labels and the rule tooltip
+     * of this argument and of its subarguments. Arguments displayed as
+     * components need them. Stamped arguments are painted from their records
+     * and measured with a shared label, so they are kept without them.
+     *
+     * @param created true to create the labels, false to discard them
+     */
+    void setLabelComponents(boolean created) {
+        if (created && argID == null) {
+            createLabelComponents();
+        } else if (!created && argID != null) {
+            closeRuleTooltip();
+            if (rule != null) {
+                remove(rule);
+                rule = null;
+            }
+            remove(argID);
+            argID = null;
+        }
+
+        subArguments.forEach((arg) -> {
+            arg.setLabelComponents(created);
+        });
+    }
+
+    /**
+     * Creates the identifier and rule labels and the rule tooltip. The labels
+     * take the places they had when the constructor created them: the rule
+     * first, the identifier after the conclusion.
+     */
+    private void createLabelComponents() {
+        if (ruleText != null) {
+            this.rule = createLabel(ruleText);
+            createRuleTooltip();
+            this.add(this.rule, 0);
         }
+
+        this.argID = createLabel(argIDText);
+        this.add(this.argID, getComponentZOrder(conclusion) + 1);
+
+        updateLabelColors();
+
+        this.getLayout().layoutContainer(this);
+    }
+
+    /**
+     * Creates the identifier and rule labels, if they were not, before the
+     * argument is displayed.
+     */
+    @Override
+    public void addNotify() {
+        if (argID == null) {
+            createLabelComponents();
+        }
+
+        super.addNotify();
     }
 
     /**
@@ -291,6 +449,7 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
         subArguments.forEach((arg) -> {
             arg.setMyFramework(myFramework);
         });
+        invalidateGeometry();
         return this;
     }
 
@@ -301,9 +460,10 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
      * @return true if arg is an subargument, false otherwise
      */
     public boolean containsArgument(Argument arg) {
-        if (this.argID.getText().equals(arg.argID.getText())) {
-            System.out.print("");
+        if (treeIndex != null) {
+            return treeIndex.isAncestor(this, arg);
         }
+
         if (this.equals(arg)) {
             return true;
         }
@@ -311,13 +471,119 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
         return subArguments.stream().anyMatch((a) -> (a.containsArgument(arg)));
     }
 
+    /**
+     * Sets the interval label given by an ArgumentTreeIndex.
+     *
+     * @param treeIndex the labelling index, null to clear the label
+     * @param treeRoot the root argument of the tree
+     * @param treeEnter pre-order label
+     * @param treeExit post-order label
+     */
+    void setTreeLabel(ArgumentTreeIndex treeIndex, Argument treeRoot, int treeEnter, int treeExit) {
+        this.treeIndex = treeIndex;
+        this.treeRoot = treeRoot;
+        this.treeEnter = treeEnter;
+        this.treeExit = treeExit;
+    }
+
+    ArgumentTreeIndex getTreeIndex() {
+        return treeIndex;
+    }
+
+    Argument getTreeRoot() {
+        return treeRoot;
+    }
+
+    int getTreeEnter() {
+        return treeEnter;
+    }
+
+    int getTreeExit() {
+        return treeExit;
+    }
+
     /**
      * Returns the x position the argument in relation to the root argument. The
-     * root argument is an argument which parent is not an Argument.
+     * root argument is an argument which parent is not an Argument. The value
+     * is cached and refreshed when an ancestor moves.
      *
      * @return the x position relative to the root
      */
     protected int getXToRoot() {
+        if (!rootOffsetValid) {
+            updateRootOffset();
+        }
+
+        if (DiagramDebug.ENABLED) {
+            DiagramDebug.check("x to root of " + this, xToRoot, walkXToRoot());
+        }
+
+        return xToRoot;
+    }
+
+    /**
+     * Returns the y position the argument in relation to the root argument. The
+     * root argument is an argument which parent is not an Argument. The value
+     * is cached and refreshed when an ancestor moves.
+     *
+     * @return the y position relative to the root
+     */
+    protected int getYToRoot() {
+        if (!rootOffsetValid) {
+            updateRootOffset();
+        }
+
+        if (DiagramDebug.ENABLED) {
+            DiagramDebug.check("y to root of " + this, yToRoot, walkYToRoot());
+        }
+
+        return yToRoot;
+    }
+
+    /**
+     * Computes the offset to the root from the parent's cached offset.
+     */
+    private void updateRootOffset() {
+        Container parent = getParent();
+
+        if (parent instanceof Argument) {
+            Argument parentArg = (Argument) parent;
+            setRootOffset(parentArg.getXToRoot() + parentArg.getX(), parentArg.getYToRoot() + parentArg.getY());
+        } else {
+            setRootOffset(0, 0);
+        }
+    }
+
+    /**
+     * Sets the cached offset to the root. Used by the parent's layout.
+     *
+     * @param xToRoot x position relative to the root
+     * @param yToRoot y position relative to the root
+     */
+    void setRootOffset(int xToRoot, int yToRoot) {
+        this.xToRoot = xToRoot;
+        this.yToRoot = yToRoot;
+        this.rootOffsetValid = true;
+    }
+
+    /**
+     * Invalidates the cached offset to the root of this argument and of its
+     * subarguments.
+     */
+    void invalidateRootOffset() {
+        rootOffsetValid = false;
+        subArguments.forEach((arg) -> {
+            arg.invalidateRootOffset();
+        });
+    }
+
+    /**
+     * Walks the parent chain to compute the x position in relation to the
+     * root argument.
+     *
+     * @return the x position relative to the root
+     */
+    private int walkXToRoot() {
         int x = 0;
 
         Container parent = getParent();
@@ -331,12 +597,12 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
     }
 
     /**
-     * Returns the y position the argument in relation to the root argument. The
-     * root argument is an argument which parent is not an Argument.
+     * Walks the parent chain to compute the y position in relation to the
+     * root argument.
      *
      * @return the y position relative to the root
      */
-    protected int getYToRoot() {
+    private int walkYToRoot() {
         int y = 0;
 
         Container parent = getParent();
@@ -349,6 +615,55 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
         return y;
     }
 
+    /**
+     * Sets the argument bounds. If the position changes, the subarguments
+     * cached offsets to the root are invalidated. Root arguments also update
+     * the canvas paint index.
+     *
+     * @param x the new x position
+     * @param y the new y position
+     * @param width the new width
+     * @param height the new height
+     */
+    @Override
+    public void setBounds(int x, int y, int width, int height) {
+        boolean moved = x != getX() || y != getY();
+
+        super.setBounds(x, y, width, height);
+
+        if (moved && subArguments != null) {
+            subArguments.forEach((arg) -> {
+                arg.invalidateRootOffset();
+            });
+        }
+
+        ScaledJLayeredPane canvas = ScaledJLayeredPane.canvasOf(this);
+        if (canvas != null) {
+            canvas.childBoundsChanged(this);
+        }
+    }
+
+    /**
+     * Repaints a region of the argument. A stamped root argument is not a
+     * child of the canvas, so the canvas repaints the region for it.
+     *
+     * @param tm unused
+     * @param x x position of the region
+     * @param y y position of the region
+     * @param width region width
+     * @param height region height
+     */
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+        ScaledJLayeredPane canvas = ScaledJLayeredPane.canvasOf(this);
+        if (canvas != null && getParent() != canvas) {
+            canvas.repaintStamp(this, x, y, width, height);
+            return;
+        }
+
+        super.repaint(tm, x, y, width, height);
+    }
+
     /**
      * Returns the x position of the east border of the argument's conclusion.
      *
@@ -395,8 +710,9 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
      */
     protected boolean haveFocus(Component comp) {
 //        if (getParent() instanceof ArgumentionFramework) {
-        if (getParent() instanceof ScaledJLayeredPane) {
-            return ((ArgumentionFramework) getParent().getParent()).isFocus(comp);
+        ScaledJLayeredPane canvas = ScaledJLayeredPane.canvasOf(this);
+        if (canvas != null) {
+            return canvas.getFramework().isFocus(comp);
         }
         if (getParent() instanceof Argument) {
             return ((Argument) getParent()).haveFocus(comp);
@@ -414,42 +730,102 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
      * @param translucent if the argument must be translucent
      */
     public void isTranslucent(boolean translucent) {
-        this.translucent = translucent;
-        updateForegroundByType();
+        applyTranslucency(translucent);
 
-        if (this.rule != null) {
-            rule.setText(rule.getText().replaceAll("#([0-9a-fA-F]){6}", (translucent ? "#" + Integer.toHexString(ColorUtil.blend(Color.BLACK, (myFramework == null ? ArgumentionFramework.DEFAULT_CLUSTER_BACKGROUND_COLOR : myFramework.getBackground()), (myFramework == null ? ArgumentionFramework.DEFAULT_CLUSTER_FADEOFF : myFramework.getFadeoff())).getRGB()).substring(2) : "#000000")));
-            rule.setForeground((translucent ? getForeground().brighter() : getForeground()));
+        for (Argument arg : subArguments) {
+            arg.isTranslucent(!haveFocus(arg));
         }
 
-        argID.setText(argID.getText().replaceAll("#([0-9a-fA-F]){6}", (translucent ? "#" + Integer.toHexString(ColorUtil.blend(Color.BLACK, (myFramework == null ? ArgumentionFramework.DEFAULT_CLUSTER_BACKGROUND_COLOR : myFramework.getBackground()), (myFramework == null ? ArgumentionFramework.DEFAULT_CLUSTER_FADEOFF : myFramework.getFadeoff())).getRGB()).substring(2) : "#000000")));
-        argID.setForeground(getForeground());
+//        repaint();
+        repaintParent();
+    }
+
+    /**
+     * Changes the argument color, without visiting the subarguments and
+     * without repainting. Updates the conclusion setTranlucent(translucent).
+     *
+     * @param translucent if the argument must be translucent
+     */
+    void applyTranslucency(boolean translucent) {
+        this.translucent = translucent;
+        updateOwnForeground();
+
+        updateLabelColors();
 
         conclusion.setTranslucent(translucent);
+    }
 
-        for (Argument arg : subArguments) {
-            arg.isTranslucent(!haveFocus(arg));
+    /**
+     * If the argument is currently translucent.
+     *
+     * @return true if the argument is translucent
+     */
+    boolean isTranslucent() {
+        return translucent;
+    }
+
+    /**
+     * Returns the detail level the argument is painted with.
+     *
+     * @return the detail level
+     */
+    DetailLevel getDetailLevel() {
+        return DetailLevel.of(myFramework);
+    }
+
+    /**
+     * Creates an identifier or rule label. The label is only painted at the
+     * full detail level.
+     *
+     * @param text the label text
+     * @return the label
+     */
+    private ScriptedLabel createLabel(ScriptedText text) {
+        ScriptedLabel label = new ScriptedLabel(text) {
+            @Override
+            public void paint(Graphics g) {
+                if (getDetailLevel() == DetailLevel.FULL) {
+                    super.paint(g);
+                }
+            }
+        };
+        label.setOpaque(true);
+        label.setBackground(new Color(0xf9f9f9));
+
+        return label;
+    }
+
+    /**
+     * Updates the identifier and rule text colors. Scripted labels are drawn
+     * with the palette text color, plain labels with the argument color.
+     */
+    private void updateLabelColors() {
+        if (argID == null) {
+            return;
         }
 
-//        repaint();
-        repaintParent();
+        DiagramPalette palette = DiagramPalette.of(myFramework);
+
+        if (this.rule != null) {
+            rule.setForeground(rule.getScriptedText().isScripted() ? palette.getTextColor(translucent) : (translucent ? getForeground().brighter() : getForeground()));
+        }
+
+        argID.setForeground(argID.getScriptedText().isScripted() ? palette.getTextColor(translucent) : getForeground());
     }
 
     private void repaintParent() {
         if (getParent() instanceof Argument) {
             ((Argument) getParent()).repaintParent();
-        } else {
+        } else if (getParent() != null) {
             getParent().repaint();
+        } else {
+            repaint();
         }
     }
 
     public int getXOverflow() {
         int overflow = Math.max(0, conclusion.getXOverflow() - conclusion.getX());
 
-        for (Argument arg : subArguments) {
-            overflow = Math.max(overflow, arg.getXOverflow() - arg.getXOverflow());
-        }
-
         if (ruleTooltipB != null) {
             if (ruleTooltipB.getWidth() > getWidth()) {
                 overflow = Math.max(overflow, (ruleTooltipB.getWidth() - getWidth()) / 2);
@@ -460,71 +836,32 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
     }
 
     /**
-     * Paints the lines from rules and brackets of the argument.
+     * Paints the lines from rules and brackets of the argument. Below the full
+     * detail level the rules are single solid lines and the brackets are not
+     * painted. At the minimal detail level the whole argument is a box. The
+     * lines are drawn by ArgumentStamper.paintLines from the argument record,
+     * as for stamped arguments.
      *
      * @param g graphics instance
      */
     @Override
     public void paint(Graphics g) {
-        super.paint(g);
-
-        Graphics2D g2d = (Graphics2D) g.create();
-
-        g2d.setPaint(getForeground());
-        g2d.setStroke(new BasicStroke((float) sizeMultiplier));
-
-        // paint right bracket if has no subarguments
-        if (subArguments.isEmpty()) {
-            int baseX = conclusion.getX() + conclusion.getWidth() + bracketGap + (int) (sizeMultiplier / 2);
-
-            // Right "border"
-            g2d.drawLine(baseX + bracketWidth - (int) Math.round(sizeMultiplier), conclusion.getY() - 1 + ((int) (sizeMultiplier / 2)), baseX + bracketWidth - (int) Math.round(sizeMultiplier), conclusion.getY() + conclusion.getHeight());
-            // Top "border"
-            g2d.drawLine(baseX, conclusion.getY() - 1 + ((int) (sizeMultiplier / 2)), baseX + bracketWidth - (int) Math.round(sizeMultiplier), conclusion.getY() - 1 + ((int) (sizeMultiplier / 2)));
-            // Botton "border"
-            g2d.drawLine(baseX, conclusion.getY() + conclusion.getHeight(), baseX + bracketWidth - (int) Math.round(sizeMultiplier), conclusion.getY() + conclusion.getHeight());
-
+        DetailLevel detail = getDetailLevel();
+        DiagramPalette palette = DiagramPalette.of(myFramework);
+
+        if (detail == DetailLevel.MINIMAL) {
+            g.setColor(palette.getTranslucent(getForeground()));
+            g.fillRect(0, 0, getWidth(), getHeight());
+            g.setColor(conclusion.getBorderColor());
+            g.fillRect(conclusion.getX(), conclusion.getY(), conclusion.getWidth(), conclusion.getHeight());
             return;
         }
 
-        int middleX = getConclusionMiddleXPosition();
-
-        if (!strictRule) {
-            g2d.setStroke(new BasicStroke((float) (1 * sizeMultiplier), BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0, new float[]{5}, 0));
-        }
-
-        int halfWay = rule.getY() + (int) (1.6 * rule.getHeight());
-
-        // Draw line from conclusion to rule label
-        g2d.drawLine(middleX, conclusion.getY() + conclusion.getHeight(), middleX, rule.getY());
-        // Draw line from rule to half distance to subarguments
-        g2d.drawLine(middleX, rule.getY() + rule.getHeight() + 2, middleX, halfWay);
-
-        int minX = conclusion.getX();
-        int maxHeight = conclusion.getY() + conclusion.getHeight();
-
-        for (Argument arg : subArguments) {
-            int conclusionMX = arg.getConclusionMiddleXPosition() + arg.getX();
-
-            // Draw vertical line from top of subargument to half distance to rule
-            g2d.drawLine(conclusionMX, arg.getY() - 2, conclusionMX, halfWay);
-            // Draw horizontal line from top of subargument to half distance to rule
-            g2d.drawLine(conclusionMX, halfWay, middleX, halfWay);
-
-            minX = Math.min(minX, arg.getX());
-            maxHeight = Math.max(maxHeight, arg.getY() + arg.getHeight() - arg.argID.getHeight());
-        }
-
-        g2d.setStroke(new BasicStroke((float) (1 * sizeMultiplier)));
+        super.paint(g);
 
-        // Paint left bracket
-        minX -= bracketGap + 1 + (int) (sizeMultiplier / 2);
-        // Left "border"
-        g2d.drawLine(minX - bracketWidth + (int) (sizeMultiplier), conclusion.getY(), minX - bracketWidth + (int) (sizeMultiplier), maxHeight);
-        // Top "border"
-        g2d.drawLine(minX - bracketWidth + (int) (sizeMultiplier), conclusion.getY(), minX, conclusion.getY());
-        // Bottom "border"
-        g2d.drawLine(minX - bracketWidth + (int) (sizeMultiplier), maxHeight, minX, maxHeight);
+        Graphics2D g2d = (Graphics2D) g.create();
+        ArgumentStamper.paintLines(g2d, record(), detail, palette);
+        g2d.dispose();
     }
 
     /**
@@ -533,40 +870,7 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
      * subarguments foregroundUpdated() methods.
      */
     protected void updateForegroundByType() {
-        switch (type) {
-            case ACCEPTED_NONFOCUSED_ARGUMENT_TYPE:
-                if (myFramework != null) {
-                    setForeground(myFramework.ACCEPTED_NONFOCUSED_ARGUMENT_COLOR);
-                } else {
-                    setForeground(ArgumentionFramework.DEFAULT_ACCEPTED_NONFOCUSED_ARGUMENT_COLOR);
-                }
-                break;
-            case ACCEPTED_FOCUSED_ARGUMENT_TYPE:
-                if (myFramework != null) {
-                    setForeground(myFramework.ACCEPTED_FOCUSED_ARGUMENT_COLOR);
-                } else {
-                    setForeground(ArgumentionFramework.DEFAULT_ACCEPTED_FOCUSED_ARGUMENT_COLOR);
-                }
-                break;
-            case REJECTED_NONFOCUSED_ARGUMENT_TYPE:
-                if (myFramework != null) {
-                    setForeground(myFramework.REJECTED_NONFOCUSED_ARGUMENT_COLOR);
-                } else {
-                    setForeground(ArgumentionFramework.DEFAULT_REJECTED_NONFOCUSED_ARGUMENT_COLOR);
-                }
-                break;
-            case REJECTED_FOCUSED_ARGUMENT_TYPE:
-                if (myFramework != null) {
-                    setForeground(myFramework.REJECTED_FOCUSED_ARGUMENT_COLOR);
-                } else {
-                    setForeground(ArgumentionFramework.DEFAULT_REJECTED_FOCUSED_ARGUMENT_COLOR);
-                }
-                break;
-        }
-
-        if (translucent) {
-            setForeground(ColorUtil.blend(getForeground(), (myFramework == null ? ArgumentionFramework.DEFAULT_CLUSTER_BACKGROUND_COLOR : myFramework.getBackground()), (myFramework == null ? ArgumentionFramework.DEFAULT_CLUSTER_FADEOFF : myFramework.getFadeoff())));
-        }
+        updateOwnForeground();
 
         conclusion.foregroundUpdated();
         subArguments.forEach((arg0) -> {
@@ -574,6 +878,19 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
         });
     }
 
+    /**
+     * Updates the foreground color of this argument only.
+     */
+    private void updateOwnForeground() {
+        invalidateRecord();
+
+        Color color = DiagramPalette.of(myFramework).getTypeColor(type, translucent);
+
+        if (color != null) {
+            setForeground(color);
+        }
+    }
+
     /**
      * Implementats the ForegroundUpdatedListener. Calls
      * updateForegroundByType();
@@ -597,10 +914,154 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
         this.subArguments.forEach((arg) -> {
             arg.setSizeMultiplier(this.sizeMultiplier);
         });
+        invalidateGeometry();
         revalidate();
         repaint();
     }
 
+    /**
+     * Returns the measured geometry of this argument, from the layout cache.
+     *
+     * @return the argument geometry
+     */
+    ArgumentGeometry getGeometry() {
+        return ((ArgumentLayout) getLayout()).getGeometry();
+    }
+
+    /**
+     * Copies the data needed to measure and place this argument subtree
+     * outside of the EDT.
+     *
+     * @param nextIndex next preorder index, updated for each argument
+     * @return the subtree snapshot
+     */
+    ArgumentSnapshot snapshot(int[] nextIndex) {
+        return ((ArgumentLayout) getLayout()).snapshot(nextIndex);
+    }
+
+    /**
+     * Installs a geometry computed from a snapshot.
+     *
+     * @param version geometry version of the snapshot
+     * @param geometry the computed geometry
+     * @return true if the geometry was installed, false if it is stale
+     */
+    boolean installGeometry(int version, ArgumentGeometry geometry) {
+        return ((ArgumentLayout) getLayout()).installGeometry(version, geometry);
+    }
+
+    /**
+     * Returns this argument subtree as plain data records, measuring it if
+     * needed. The record is cached until the argument or one of its
+     * subarguments changes, see invalidateRecord.
+     *
+     * @return the subtree record
+     */
+    ArgumentRecord record() {
+        if (record != null) {
+            return record;
+        }
+
+        List<ArgumentRecord> subs = new ArrayList<>(subArguments.size());
+        subArguments.forEach((arg) -> {
+            subs.add(arg.record());
+        });
+
+        record = new ArgumentRecord(this, conclusion.getScriptedText(), conclusion.isStrict(), argIDText, ruleText, strictRule, type, translucent, sizeMultiplier, getGeometry(), subs);
+        return record;
+    }
+
+    /**
+     * Discards the cached record of this argument and of every argument that
+     * contains it. A record is only taken after the subarguments records, so
+     * once an ancestor without cached record is found, the ones above it have
+     * none either.
+     */
+    void invalidateRecord() {
+        Argument arg = this;
+        while (arg.record != null) {
+            arg.record = null;
+
+            if (!(arg.getParent() instanceof Argument)) {
+                return;
+            }
+            arg = (Argument) arg.getParent();
+        }
+    }
+
+    /**
+     * Copies this argument subtree into a plain model. Every copied argument
+     * is put in models, so attacks can be copied after. Must be called on the
+     * EDT.
+     *
+     * @param models receives the model of each argument of the subtree
+     * @return the subtree model
+     */
+    ArgumentModel toModel(Map<Argument, ArgumentModel> models) {
+        ArgumentModel[] subs = new ArgumentModel[subArguments.size()];
+        for (int k = 0; k < subs.length; k++) {
+            subs[k] = subArguments.get(k).toModel(models);
+        }
+
+        int tooltipWidth = ((ArgumentLayout) getLayout()).getRuleTooltipWidth();
+        ArgumentModel model = new ArgumentModel(conclusion.getScriptedText().getText(), conclusion.isStrict(), argIDText.getText(), (ruleText != null ? ruleText.getText() : null), strictRule, type, translucent, tooltipWidth, subs);
+        models.put(this, model);
+        return model;
+    }
+
+    /**
+     * Positions the components of this argument and of every subargument.
+     * Stamped arguments are not part of a displayable hierarchy, so validate
+     * does not lay them out.
+     */
+    void layoutSubtree() {
+        getLayout().layoutContainer(this);
+        subArguments.forEach((arg) -> {
+            arg.layoutSubtree();
+        });
+    }
+
+    /**
+     * Discards the cached geometry of this argument and of every argument that
+     * contains it, and notifies the framework that the root argument may have
+     * a new size. An argument is only measured after its subarguments, so
+     * once an ancestor without cached geometry is found, the ones above it
+     * have none either.
+     */
+    void invalidateGeometry() {
+        invalidateRecord();
+
+        Argument arg = this;
+        while (((ArgumentLayout) arg.getLayout()).clearGeometry()) {
+            arg.invalidate();
+
+            Container parent = arg.getParent();
+            if (!(parent instanceof Argument)) {
+                ScaledJLayeredPane canvas = ScaledJLayeredPane.canvasOf(arg);
+                if (canvas != null) {
+                    canvas.getFramework().argumentResized(arg);
+                }
+                return;
+            }
+            arg = (Argument) parent;
+        }
+    }
+
+    /**
+     * Discards the cached geometry of the arguments of this subtree that
+     * have a rule tooltip, and of the arguments that contain them. Their
+     * geometry holds the tooltip width divided by the scaling, unlike the
+     * others.
+     */
+    void invalidateTooltipGeometry() {
+        subArguments.forEach((arg) -> {
+            arg.invalidateTooltipGeometry();
+        });
+        if (ruleTooltipB != null) {
+            invalidateGeometry();
+        }
+    }
+
     /**
      * Returns the required witdh of a bracket. Defined by Argument.bracketGap +
      * Argument.bracketWidth
@@ -623,18 +1084,18 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
 
     @Override
     public String toString() {
-        return argID.getText();
+        return argIDText.toHtml();
     }
 
     /**
      * Class responsible for defining the layout of any given Argument.
      */
-    class ArgumentLayout implements LayoutManager {
+    class ArgumentLayout implements LayoutManager2 {
 
         private final Argument argument;
 
-        private int subWidth = 0;
-        private int subHeight = 0;
+        private ArgumentGeometry geometry = null;
+        private int version = 0;
 
         /**
          * Constructor. Sets the reference for the respective Argument.
@@ -645,6 +1106,122 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
             this.argument = argument;
         }
 
+        /**
+         * Returns the cached geometry, measuring the argument if needed.
+         * Subarguments are measured through their own cached geometry, so a
+         * full measure visits each argument once.
+         *
+         * @return the argument geometry
+         */
+        ArgumentGeometry getGeometry() {
+            if (geometry == null) {
+                geometry = measure();
+            } else if (DiagramDebug.ENABLED) {
+                DiagramDebug.check("geometry of " + argument.argIDText, geometry, measure());
+            }
+
+            return geometry;
+        }
+
+        /**
+         * Discards the cached geometry. Every call starts a new geometry
+         * version, so snapshots taken before it are recognized as stale.
+         *
+         * @return true if there was a cached geometry, false otherwise
+         */
+        boolean clearGeometry() {
+            boolean cached = geometry != null;
+            geometry = null;
+            version++;
+            return cached;
+        }
+
+        /**
+         * Copies the data needed to measure and place this argument subtree.
+         *
+         * @param nextIndex next preorder index, updated for each argument
+         * @return the subtree snapshot
+         */
+        ArgumentSnapshot snapshot(int[] nextIndex) {
+            int index = nextIndex[0]++;
+
+            List<ArgumentSnapshot> subs = new ArrayList<>(subArguments.size());
+            subArguments.forEach((arg) -> {
+                subs.add(arg.snapshot(nextIndex));
+            });
+
+            if (geometry != null) {
+                return new ArgumentSnapshot(argument, version, index, geometry, subs);
+            }
+
+            return new ArgumentSnapshot(argument, version, index, ArgumentSnapshot.LabelSize.of(conclusion), ArgumentSnapshot.LabelSize.of(getLabel(argID, argIDText)), (ruleText != null ? ArgumentSnapshot.LabelSize.of(getLabel(rule, ruleText)) : null), getRuleTooltipWidth(), getBracketWidth(), subs);
+        }
+
+        /**
+         * Installs a geometry computed from a snapshot, unless the argument
+         * changed since the snapshot was taken.
+         *
+         * @param snapshotVersion geometry version of the snapshot
+         * @param computed the computed geometry
+         * @return true if the geometry was installed, false if it is stale
+         */
+        boolean installGeometry(int snapshotVersion, ArgumentGeometry computed) {
+            if (snapshotVersion != version || computed == null) {
+                return false;
+            }
+
+            geometry = computed;
+            return true;
+        }
+
+        private ArgumentGeometry measure() {
+            List<ArgumentGeometry> subs = new ArrayList<>(subArguments.size());
+            subArguments.forEach((arg) -> {
+                subs.add(arg.getGeometry());
+            });
+
+            return ArgumentGeometry.measure(conclusion.getPreferredSize(), getLabel(argID, argIDText).getPreferredSize(), (ruleText != null ? getLabel(rule, ruleText).getPreferredSize() : null), getRuleTooltipWidth(), getBracketWidth(), subs);
+        }
+
+        /**
+         * Returns the label to measure a text with: the argument label if it
+         * was created, otherwise a label shared by every argument, with the
+         * same settings.
+         *
+         * @param label the argument label, or null if it was not created
+         * @param text the label text
+         * @return the label to measure
+         */
+        private ScriptedLabel getLabel(ScriptedLabel label, ScriptedText text) {
+            if (label != null) {
+                return label;
+            }
+
+            if (measuringLabel == null) {
+                measuringLabel = new ScriptedLabel(text);
+            }
+            measuringLabel.setScriptedText(text);
+            return measuringLabel;
+        }
+
+        private int getRuleTooltipWidth() {
+            return (ruleTooltipB != null && myFramework != null ? (int) (ruleTooltipB.getWidth() / myFramework.getScaling()) : 0);
+        }
+
+        /**
+         * Listens to the labels for changes in their size.
+         *
+         * @param comp the added component
+         * @param constraints unused
+         */
+        @Override
+        public void addLayoutComponent(Component comp, Object constraints) {
+            if (!(comp instanceof Argument)) {
+                comp.addPropertyChangeListener(labelListener);
+            }
+            invalidateGeometry();
+        }
+
         /**
          * Unused.
          *
@@ -655,12 +1232,45 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
         }
 
         /**
-         * Unused.
+         * Stops listening to a removed label.
          *
-         * @param arg0
+         * @param arg0 the removed component
          */
         @Override
         public void removeLayoutComponent(Component arg0) {
+            arg0.removePropertyChangeListener(labelListener);
+            invalidateGeometry();
+        }
+
+        /**
+         * The cached geometry is kept, since it only changes with the
+         * arguments labels, size multiplier or children.
+         *
+         * @param arg0 the container
+         */
+        @Override
+        public void invalidateLayout(Container arg0) {
+        }
+
+        /**
+         * Returns the preferred layout size.
+         *
+         * @param arg0 the container
+         * @return maximum layout size
+         */
+        @Override
+        public Dimension maximumLayoutSize(Container arg0) {
+            return minimumLayoutSize(arg0);
+        }
+
+        @Override
+        public float getLayoutAlignmentX(Container arg0) {
+            return 0.5f;
+        }
+
+        @Override
+        public float getLayoutAlignmentY(Container arg0) {
+            return 0.5f;
         }
 
         /**
@@ -682,40 +1292,7 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
          */
         @Override
         public Dimension minimumLayoutSize(Container arg0) {
-            Dimension concPrefD = conclusion.getPreferredSize();
-            Dimension argLPrefD = argID.getPreferredSize();
-
-            int divideBy = -1;
-            int ruleTooltipWidth = (ruleTooltipB != null && myFramework != null ? (int) (ruleTooltipB.getWidth() / myFramework.getScaling()) : 0);
-
-            // Find maximum subargument height and width
-            for (Argument arg : subArguments) {
-                Dimension argPrefSize = arg.getPreferredSize();
-                subHeight = Math.max(subHeight, argPrefSize.height - arg.argID.getPreferredSize().height + 5);
-                subWidth = Math.max(subWidth, argPrefSize.width);
-
-                if (divideBy == -1) {
-                    if (arg.subArguments.isEmpty()) {
-                        divideBy = 2;
-                    } else {
-                        divideBy = 1;
-                    }
-                }
-            }
-
-            if (divideBy == -1) {
-                divideBy = 2;
-            }
-
-            int subArgsTotalWidth = (subWidth + (subArguments.size() > 1 ? 5 : 0)) * subArguments.size();
-            int concTotalWidth = concPrefD.width + Math.max(argLPrefD.width - (concPrefD.width / 2), getBracketWidth());
-
-            concTotalWidth = Math.max(concTotalWidth, ruleTooltipWidth);
-
-            int width = Math.max(subArgsTotalWidth + getBracketWidth() + (int) (argLPrefD.width / divideBy) - (divideBy == 1 ? getBracketWidth() - 2 : 0), concTotalWidth);
-            int height = subHeight + concPrefD.height + argLPrefD.height + (subArguments.isEmpty() ? 5 : (conclusion.getPreferredSize().height * 3) + 5);
-
-            return new Dimension(width, height);
+            return getGeometry().getSize();
         }
 
         /**
@@ -725,78 +1302,22 @@ public class Argument extends JPanel implements ForegroundUpdateListenner {
          */
         @Override
         public void layoutContainer(Container arg0) {
-            int y;
-
-            minimumLayoutSize(arg0);
-
-            Component ax = argument.conclusion;
-            Dimension axPrefSize = ax.getPreferredSize();
-
-            if (argument.subArguments.isEmpty()) {
-                ax.setBounds(0, 5, axPrefSize.width, axPrefSize.height);
-
-                Component ax2 = argument.argID;
-                Dimension ax2PrefSize = ax2.getPreferredSize();
+            ArgumentGeometry g = getGeometry();
 
-                ax2.setBounds(ax.getX() + (axPrefSize.width / 2), ax.getY() + axPrefSize.height, ax2PrefSize.width, ax2PrefSize.height);
-                return;
+            argument.conclusion.setBounds(g.getConclusionBounds());
+            if (argument.argID != null) {
+                argument.argID.setBounds(g.getArgIDBounds());
             }
-            int minX = arg0.getWidth();
-
-            y = (axPrefSize.height * 4) + 5 + subHeight;
-
-            Component ax2 = argument.argID;
-            Dimension ax2PrefSize = ax2.getPreferredSize();
-
-            ax2.setBounds(0, y, ax2PrefSize.width, ax2PrefSize.height);
-
-            y -= subHeight;
-
-            Argument middleArg = null;
-            Argument middleArg2 = null;
-            boolean isOdd = subArguments.size() % 2 == 1;
-            int midIndex = subArguments.size() / 2;
 
-            int startX = (int) (ax2PrefSize.width / 2) + getBracketWidth();
-
-            int offset = 0;
-            for (Argument arg : argument.subArguments) {
-                if (offset == 0) {
-                    if (!arg.subArguments.isEmpty()) {
-                        startX += (int) (ax2PrefSize.width / 2) - getBracketWidth() + 2;
-                    }
-                }
-                Dimension argPrefSize = arg.getPreferredSize();
-                arg.setBounds(startX + (offset * (subWidth + 5)), y, argPrefSize.width, argPrefSize.height);
-
-                if (offset == midIndex) {
-                    middleArg = arg;
-                }
-                if (!isOdd) {
-                    if (offset == midIndex - 1) {
-                        middleArg2 = arg;
-                    }
-                }
-
-                offset++;
-
-                minX = Math.min(minX, arg.getX());
+            if (argument.rule != null && g.getRuleBounds() != null) {
+                argument.rule.setBounds(g.getRuleBounds());
             }
 
-            y -= axPrefSize.height * 2.5;
-
-            int middleX = (isOdd ? middleArg.getConclusionMiddleXPosition() + middleArg.getX() : (middleArg2.getConclusionMiddleXPosition() + middleArg2.getX() + middleArg.getConclusionMiddleXPosition() + middleArg.getX()) / 2);
-            ax = argument.rule;
-            axPrefSize = ax.getPreferredSize();
-
-            ax.setBounds(middleX - (axPrefSize.width / 2), y, axPrefSize.width, axPrefSize.height);
-
-            ax = argument.conclusion;
-            axPrefSize = ax.getPreferredSize();
-
-            y -= axPrefSize.height * 1.5;
-
-            ax.setBounds(middleX - (axPrefSize.width / 2), y, axPrefSize.width, axPrefSize.height);
+            for (int k = 0; k < g.getSubArgumentCount(); k++) {
+                Argument arg = argument.subArguments.get(k);
+                arg.setBounds(g.getSubArgumentBounds(k));
+                arg.setRootOffset(argument.getXToRoot() + argument.getX(), argument.getYToRoot() + argument.getY());
+            }
         }
 
     }
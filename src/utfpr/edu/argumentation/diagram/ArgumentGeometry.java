@@ -0,0 +1,229 @@
+package utfpr.edu.argumentation.diagram;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Measured size and child positions of an argument subtree. The geometry is a
+ * pure function of the label sizes, the rule tooltip width, the bracket width
+ * and the subarguments' geometries, so it can be computed once and reused
+ * until one of those changes. Instances are immutable; the returned
+ * rectangles must not be modified.
+ *
+ * @author Henrique M R Jasinski
+ */
+final class ArgumentGeometry {
+
+    private final int width;
+    private final int height;
+    private final boolean leaf;
+    private final Rectangle conclusionBounds;
+    private final Rectangle argIDBounds;
+    private final Rectangle ruleBounds;
+    private final Rectangle[] subArgumentBounds;
+
+    private ArgumentGeometry(int width, int height, boolean leaf, Rectangle conclusionBounds, Rectangle argIDBounds, Rectangle ruleBounds, Rectangle[] subArgumentBounds) {
+        this.width = width;
+        this.height = height;
+        this.leaf = leaf;
+        this.conclusionBounds = conclusionBounds;
+        this.argIDBounds = argIDBounds;
+        this.ruleBounds = ruleBounds;
+        this.subArgumentBounds = subArgumentBounds;
+    }
+
+    /**
+     * Measures an argument and positions its children.
+     *
+     * @param conclusion conclusion preferred size
+     * @param argID identifier label preferred size
+     * @param rule rule label preferred size, null if there is no rule
+     * @param ruleTooltipWidth unscaled rule tooltip width, 0 if there is none
+     * @param bracketWidth bracket required width
+     * @param subs the subarguments' geometries, in order
+     * @return the argument geometry
+     */
+    static ArgumentGeometry measure(Dimension conclusion, Dimension argID, Dimension rule, int ruleTooltipWidth, int bracketWidth, List<ArgumentGeometry> subs) {
+        int subWidth = 0;
+        int subHeight = 0;
+        int divideBy = -1;
+
+        // Find maximum subargument height and width
+        for (ArgumentGeometry sub : subs) {
+            subHeight = Math.max(subHeight, sub.height - sub.argIDBounds.height + 5);
+            subWidth = Math.max(subWidth, sub.width);
+
+            if (divideBy == -1) {
+                divideBy = (sub.leaf ? 2 : 1);
+            }
+        }
+
+        if (divideBy == -1) {
+            divideBy = 2;
+        }
+
+        int subArgsTotalWidth = (subWidth + (subs.size() > 1 ? 5 : 0)) * subs.size();
+        int concTotalWidth = conclusion.width + Math.max(argID.width - (conclusion.width / 2), bracketWidth);
+
+        concTotalWidth = Math.max(concTotalWidth, ruleTooltipWidth);
+
+        int width = Math.max(subArgsTotalWidth + bracketWidth + (int) (argID.width / divideBy) - (divideBy == 1 ? bracketWidth - 2 : 0), concTotalWidth);
+        int height = subHeight + conclusion.height + argID.height + (subs.isEmpty() ? 5 : (conclusion.height * 3) + 5);
+
+        if (subs.isEmpty()) {
+            Rectangle concB = new Rectangle(0, 5, conclusion.width, conclusion.height);
+            Rectangle argIDB = new Rectangle(concB.x + (conclusion.width / 2), concB.y + conclusion.height, argID.width, argID.height);
+
+            return new ArgumentGeometry(width, height, true, concB, argIDB, null, new Rectangle[0]);
+        }
+
+        int y = (conclusion.height * 4) + 5 + subHeight;
+        Rectangle argIDB = new Rectangle(0, y, argID.width, argID.height);
+
+        y -= subHeight;
+
+        int startX = (int) (argID.width / 2) + bracketWidth;
+        if (!subs.get(0).leaf) {
+            startX += (int) (argID.width / 2) - bracketWidth + 2;
+        }
+
+        Rectangle[] subBounds = new Rectangle[subs.size()];
+        for (int k = 0; k < subs.size(); k++) {
+            ArgumentGeometry sub = subs.get(k);
+            subBounds[k] = new Rectangle(startX + (k * (subWidth + 5)), y, sub.width, sub.height);
+        }
+
+        y -= conclusion.height * 2.5;
+
+        int midIndex = subs.size() / 2;
+        int middleX = subBounds[midIndex].x + subs.get(midIndex).getConclusionMiddleX();
+        if (subs.size() % 2 == 0) {
+            middleX = (subBounds[midIndex - 1].x + subs.get(midIndex - 1).getConclusionMiddleX() + middleX) / 2;
+        }
+
+        Rectangle ruleB = (rule == null ? null : new Rectangle(middleX - (rule.width / 2), y, rule.width, rule.height));
+
+        y -= conclusion.height * 1.5;
+
+        Rectangle concB = new Rectangle(middleX - (conclusion.width / 2), y, conclusion.width, conclusion.height);
+
+        return new ArgumentGeometry(width, height, false, concB, argIDB, ruleB, subBounds);
+    }
+
+    /**
+     * Returns the argument width.
+     *
+     * @return width
+     */
+    int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the argument height.
+     *
+     * @return height
+     */
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the argument size.
+     *
+     * @return a new Dimension with the argument size
+     */
+    Dimension getSize() {
+        return new Dimension(width, height);
+    }
+
+    /**
+     * If the argument has no subarguments.
+     *
+     * @return true if there are no subarguments
+     */
+    boolean isLeaf() {
+        return leaf;
+    }
+
+    /**
+     * Returns the conclusion bounds.
+     *
+     * @return conclusion bounds, relative to the argument
+     */
+    Rectangle getConclusionBounds() {
+        return conclusionBounds;
+    }
+
+    /**
+     * Returns the x position in the middle of the conclusion.
+     *
+     * @return conclusion middle x, relative to the argument
+     */
+    int getConclusionMiddleX() {
+        return conclusionBounds.x + (conclusionBounds.width / 2);
+    }
+
+    /**
+     * Returns the identifier label bounds.
+     *
+     * @return identifier bounds, relative to the argument
+     */
+    Rectangle getArgIDBounds() {
+        return argIDBounds;
+    }
+
+    /**
+     * Returns the rule label bounds.
+     *
+     * @return rule bounds, relative to the argument, or null if the rule is
+     * not positioned
+     */
+    Rectangle getRuleBounds() {
+        return ruleBounds;
+    }
+
+    /**
+     * Returns the number of subarguments.
+     *
+     * @return number of subarguments
+     */
+    int getSubArgumentCount() {
+        return subArgumentBounds.length;
+    }
+
+    /**
+     * Returns the bounds of a subargument.
+     *
+     * @param index subargument index
+     * @return subargument bounds, relative to the argument
+     */
+    Rectangle getSubArgumentBounds(int index) {
+        return subArgumentBounds[index];
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof ArgumentGeometry)) {
+            return false;
+        }
+
+        ArgumentGeometry g = (ArgumentGeometry) obj;
+        return width == g.width && height == g.height && leaf == g.leaf
+                && conclusionBounds.equals(g.conclusionBounds) && argIDBounds.equals(g.argIDBounds)
+                && Objects.equals(ruleBounds, g.ruleBounds) && Arrays.equals(subArgumentBounds, g.subArgumentBounds);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(width, height, conclusionBounds, argIDBounds, ruleBounds, Arrays.hashCode(subArgumentBounds));
+    }
+
+    @Override
+    public String toString() {
+        return "ArgumentGeometry[" + width + "x" + height + ", subs=" + subArgumentBounds.length + "]";
+    }
+}
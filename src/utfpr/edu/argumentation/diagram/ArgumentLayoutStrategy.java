@@ -0,0 +1,28 @@
+package utfpr.edu.argumentation.diagram;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.util.List;
+
+/**
+ * Defines where the root arguments of an ArgumentionFramework are placed on
+ * the diagram canvas. Placement is incremental: after a change at some index
+ * the framework only asks for the bounds from that index onward. Strategies
+ * are also called from the framework's background layout, on a worker
+ * thread, so they must be thread-safe.
+ *
+ * @author Henrique M R Jasinski
+ */
+public interface ArgumentLayoutStrategy {
+
+    /**
+     * Places the arguments from index from onward. The bounds before from are
+     * up to date and must not be changed.
+     *
+     * @param sizes the preferred size of every root argument, in order
+     * @param from index of the first argument to place
+     * @param bounds bounds of the arguments before from; receives the bounds
+     * of the remaining arguments, in order
+     */
+    void place(List<Dimension> sizes, int from, List<Rectangle> bounds);
+}
@@ -0,0 +1,221 @@
+package utfpr.edu.argumentation.diagram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import utfpr.edu.swing.utils.ScriptedText;
+
+/**
+ * Plain description of an argument, without any Swing component: the
+ * conclusion, the identifier, the rule, the type, the translucency and the
+ * subarguments. Arguments copied from a framework also keep the width of
+ * their rule tooltip, which the argument layout leaves room for. Used to
+ * render diagrams with a DiagramRenderer. Instances are immutable and may be
+ * shared between threads.
+ *
+ * @author Henrique M R Jasinski
+ */
+public final class ArgumentModel {
+
+    private final ScriptedText conclusion;
+    private final boolean strictConclusion;
+    private final ScriptedText argID;
+    private final ScriptedText rule;
+    private final boolean strictRule;
+    private final int type;
+    private final boolean translucent;
+    private final int ruleTooltipWidth;
+    private final List<ArgumentModel> subArguments;
+
+    /**
+     * Constructor with strict conclusion and rule, type =
+     * Argument.ACCEPTED_NONFOCUSED_ARGUMENT_TYPE and not translucent.
+     *
+     * @param conclusion conclusion text
+     * @param argID argument identifier
+     * @param ruleID rule identifier, null if there is no rule
+     * @param subArguments the subarguments
+     */
+    public ArgumentModel(String conclusion, String argID, String ruleID, ArgumentModel... subArguments) {
+        this(conclusion, true, argID, ruleID, true, Argument.ACCEPTED_NONFOCUSED_ARGUMENT_TYPE, false, subArguments);
+    }
+
+    /**
+     * Constructor. Texts are changed such that characters after '_' are
+     * subscript and after '^' are superscripted, as in the Argument labels.
+     *
+     * @param conclusion conclusion text
+     * @param strictConclusion if the conclusion is strict
+     * @param argID argument identifier
+     * @param ruleID rule identifier, null if there is no rule
+     * @param strictRule if the rule is strict
+     * @param type argument type
+     * @param translucent if the argument is painted translucent
+     * @param subArguments the subarguments
+     */
+    public ArgumentModel(String conclusion, boolean strictConclusion, String argID, String ruleID, boolean strictRule, int type, boolean translucent, ArgumentModel... subArguments) {
+        this(conclusion, strictConclusion, argID, ruleID, strictRule, type, translucent, 0, subArguments);
+    }
+
+    /**
+     * Constructor of a copied argument, whose rule tooltip takes room in the
+     * argument layout.
+     *
+     * @param conclusion conclusion text
+     * @param strictConclusion if the conclusion is strict
+     * @param argID argument identifier
+     * @param ruleID rule identifier, null if there is no rule
+     * @param strictRule if the rule is strict
+     * @param type argument type
+     * @param translucent if the argument is painted translucent
+     * @param ruleTooltipWidth unscaled rule tooltip width, 0 if there is none
+     * @param subArguments the subarguments
+     */
+    ArgumentModel(String conclusion, boolean strictConclusion, String argID, String ruleID, boolean strictRule, int type, boolean translucent, int ruleTooltipWidth, ArgumentModel... subArguments) {
+        if (conclusion == null || argID == null) {
+            throw new NullPointerException("Conclusion and argID can not be null");
+        }
+
+        if (type < Argument.ACCEPTED_NONFOCUSED_ARGUMENT_TYPE || type > Argument.REJECTED_FOCUSED_ARGUMENT_TYPE) {
+            throw new IllegalArgumentException("Invalid argument type " + type);
+        }
+
+        this.conclusion = ScriptedText.parse(conclusion);
+        this.strictConclusion = strictConclusion;
+        this.argID = ScriptedText.parse(argID);
+        this.rule = (ruleID == null ? null : ScriptedText.parse(ruleID));
+        this.strictRule = strictRule;
+        this.type = type;
+        this.translucent = translucent;
+        this.ruleTooltipWidth = Math.max(0, ruleTooltipWidth);
+
+        List<ArgumentModel> subs = new ArrayList<>();
+        if (subArguments != null) {
+            for (ArgumentModel arg : subArguments) {
+                if (arg != null) {
+                    subs.add(arg);
+                }
+            }
+        }
+        this.subArguments = Collections.unmodifiableList(subs);
+    }
+
+    /**
+     * Returns the conclusion text.
+     *
+     * @return conclusion text
+     */
+    public String getConclusion() {
+        return conclusion.getText();
+    }
+
+    /**
+     * If the conclusion is strict.
+     *
+     * @return true if the conclusion is strict
+     */
+    public boolean isStrictConclusion() {
+        return strictConclusion;
+    }
+
+    /**
+     * Returns the argument identifier.
+     *
+     * @return argument identifier
+     */
+    public String getArgID() {
+        return argID.getText();
+    }
+
+    /**
+     * Returns the rule identifier.
+     *
+     * @return rule identifier, or null if there is no rule
+     */
+    public String getRuleID() {
+        return (rule == null ? null : rule.getText());
+    }
+
+    /**
+     * If the rule is strict.
+     *
+     * @return true if the rule is strict
+     */
+    public boolean isStrictRule() {
+        return strictRule;
+    }
+
+    /**
+     * Returns the argument type.
+     *
+     * @return argument type
+     */
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * If the argument is painted translucent.
+     *
+     * @return true if the argument is translucent
+     */
+    public boolean isTranslucent() {
+        return translucent;
+    }
+
+    /**
+     * Returns the unscaled width of the rule tooltip, which the argument
+     * layout leaves room for.
+     *
+     * @return rule tooltip width, 0 if there is none
+     */
+    int getRuleTooltipWidth() {
+        return ruleTooltipWidth;
+    }
+
+    /**
+     * Returns the subarguments.
+     *
+     * @return unmodifiable list of the subarguments
+     */
+    public List<ArgumentModel> getSubArguments() {
+        return subArguments;
+    }
+
+    /**
+     * Tests if arg is this argument or one of its subarguments, at any depth.
+     *
+     * @param arg tested argument
+     * @return true if this subtree contains arg
+     */
+    public boolean containsArgument(ArgumentModel arg) {
+        if (arg == this) {
+            return true;
+        }
+
+        for (ArgumentModel sub : subArguments) {
+            if (sub.containsArgument(arg)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    ScriptedText getConclusionText() {
+        return conclusion;
+    }
+
+    ScriptedText getArgIDText() {
+        return argID;
+    }
+
+    ScriptedText getRuleText() {
+        return rule;
+    }
+
+    @Override
+    public String toString() {
+        return argID.getText() + ": " + conclusion.getText();
+    }
+}
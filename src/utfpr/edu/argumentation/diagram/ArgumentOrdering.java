@@ -0,0 +1,140 @@
+package utfpr.edu.argumentation.diagram;
+
+import java.util.Arrays;
+
+/**
+ * Orders the root arguments of a framework so attacks are short and cross few
+ * arguments. Each sweep moves every argument towards the barycenter or the
+ * median of the arguments it is attacked by or attacks, then ranks the
+ * arguments again by that value. Barycenter and median sweeps alternate. A
+ * sweep takes O(E log d + n log n) time, for E attack endpoints and maximum
+ * degree d, and the best order found is kept.
+ *
+ * @author Henrique M R Jasinski
+ */
+final class ArgumentOrdering {
+
+    private final int[][] neighbours;
+
+    /**
+     * Constructor.
+     *
+     * @param neighbours for each argument, the indices of the arguments that
+     * share an attack with it; repeated indices count as more attacks
+     */
+    ArgumentOrdering(int[][] neighbours) {
+        this.neighbours = neighbours;
+    }
+
+    /**
+     * Returns the total span of the attacks in an order, the sum of the
+     * distance between the positions of both arguments of each attack.
+     *
+     * @param position the position of each argument
+     * @return total attack span
+     */
+    long getSpan(int[] position) {
+        long span = 0;
+
+        for (int k = 0; k < neighbours.length; k++) {
+            for (int n : neighbours[k]) {
+                if (n > k) {
+                    span += Math.abs(position[k] - position[n]);
+                }
+            }
+        }
+
+        return span;
+    }
+
+    /**
+     * Computes an order, starting from the current one.
+     *
+     * @param timeBudgetNanos time after which no new sweep is started
+     * @param maxSweeps maximum number of sweeps
+     * @return the new order; order[k] is the current index of the argument
+     * placed at k
+     */
+    int[] order(long timeBudgetNanos, int maxSweeps) {
+        int n = neighbours.length;
+        long deadline = System.nanoTime() + timeBudgetNanos;
+
+        int[] position = new int[n];
+        for (int k = 0; k < n; k++) {
+            position[k] = k;
+        }
+
+        int[] best = position.clone();
+        long bestSpan = getSpan(position);
+
+        double[] key = new double[n];
+        Integer[] byKey = new Integer[n];
+        int stale = 0;
+
+        for (int sweep = 0; sweep < maxSweeps && stale < 3 && System.nanoTime() < deadline; sweep++) {
+            boolean median = (sweep % 2 == 1);
+
+            for (int k = 0; k < n; k++) {
+                key[k] = (median ? medianOf(k, position) : barycenterOf(k, position));
+                byKey[k] = k;
+            }
+
+            // Ties keep the current relative order
+            Arrays.sort(byKey, (a, b) -> {
+                int c = Double.compare(key[a], key[b]);
+                return (c != 0 ? c : Integer.compare(position[a], position[b]));
+            });
+
+            for (int p = 0; p < n; p++) {
+                position[byKey[p]] = p;
+            }
+
+            long span = getSpan(position);
+            if (span < bestSpan) {
+                bestSpan = span;
+                System.arraycopy(position, 0, best, 0, n);
+                stale = 0;
+            } else {
+                stale++;
+            }
+        }
+
+        int[] order = new int[n];
+        for (int k = 0; k < n; k++) {
+            order[best[k]] = k;
+        }
+
+        return order;
+    }
+
+    /**
+     * The argument's own position counts once, so arguments without attacks
+     * stay in place and connected arguments do not collapse on each other.
+     */
+    private double barycenterOf(int k, int[] position) {
+        double sum = position[k];
+
+        for (int n : neighbours[k]) {
+            sum += position[n];
+        }
+
+        return sum / (neighbours[k].length + 1);
+    }
+
+    private double medianOf(int k, int[] position) {
+        int[] adj = neighbours[k];
+        if (adj.length == 0) {
+            return position[k];
+        }
+
+        int[] values = new int[adj.length + 1];
+        for (int i = 0; i < adj.length; i++) {
+            values[i] = position[adj[i]];
+        }
+        values[adj.length] = position[k];
+        Arrays.sort(values);
+
+        int mid = values.length / 2;
+        return (values.length % 2 == 1 ? values[mid] : (values[mid - 1] + values[mid]) / 2.0);
+    }
+}
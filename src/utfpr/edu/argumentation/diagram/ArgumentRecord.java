@@ -0,0 +1,120 @@
+package utfpr.edu.argumentation.diagram;
+
+import java.util.List;
+import utfpr.edu.swing.utils.ScriptedText;
+
+/**
+ * Plain data copy of an argument subtree, with everything needed to paint it
+ * without its Swing components: the texts, the strictness, the type and
+ * translucency and the measured geometry. Instances are immutable.
+ *
+ * @author Henrique M R Jasinski
+ */
+final class ArgumentRecord {
+
+    private final Argument argument;
+
+    private final ScriptedText conclusion;
+    private final boolean strictConclusion;
+    private final ScriptedText argID;
+    private final ScriptedText rule;
+    private final boolean strictRule;
+    private final int type;
+    private final boolean translucent;
+    private final double sizeMultiplier;
+    private final ArgumentGeometry geometry;
+    private final List<ArgumentRecord> subArguments;
+
+    /**
+     * Constructor.
+     *
+     * @param argument the argument the record was taken from, may be null
+     * @param conclusion conclusion text
+     * @param strictConclusion if the conclusion is strict
+     * @param argID argument identifier
+     * @param rule rule identifier, null if there is no rule
+     * @param strictRule if the rule is strict
+     * @param type argument type
+     * @param translucent if the argument is translucent
+     * @param sizeMultiplier line thickness multiplier
+     * @param geometry the measured geometry
+     * @param subArguments the subarguments' records, in order
+     */
+    ArgumentRecord(Argument argument, ScriptedText conclusion, boolean strictConclusion, ScriptedText argID, ScriptedText rule, boolean strictRule, int type, boolean translucent, double sizeMultiplier, ArgumentGeometry geometry, List<ArgumentRecord> subArguments) {
+        if (geometry.getSubArgumentCount() != subArguments.size()) {
+            throw new IllegalArgumentException("The geometry must position every subargument.");
+        }
+
+        this.argument = argument;
+        this.conclusion = conclusion;
+        this.strictConclusion = strictConclusion;
+        this.argID = argID;
+        this.rule = rule;
+        this.strictRule = strictRule;
+        this.type = type;
+        this.translucent = translucent;
+        this.sizeMultiplier = sizeMultiplier;
+        this.geometry = geometry;
+        this.subArguments = List.copyOf(subArguments);
+    }
+
+    /**
+     * Returns the argument the record was taken from. Must only be used on
+     * the EDT.
+     *
+     * @return the argument, or null if the record was not taken from one
+     */
+    Argument getArgument() {
+        return argument;
+    }
+
+    ScriptedText getConclusion() {
+        return conclusion;
+    }
+
+    boolean isStrictConclusion() {
+        return strictConclusion;
+    }
+
+    ScriptedText getArgID() {
+        return argID;
+    }
+
+    /**
+     * Returns the rule identifier.
+     *
+     * @return the rule, or null if there is no rule
+     */
+    ScriptedText getRule() {
+        return rule;
+    }
+
+    boolean isStrictRule() {
+        return strictRule;
+    }
+
+    int getType() {
+        return type;
+    }
+
+    boolean isTranslucent() {
+        return translucent;
+    }
+
+    double getSizeMultiplier() {
+        return sizeMultiplier;
+    }
+
+    ArgumentGeometry getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Returns the subarguments' records, positioned by the geometry.
+     *
+     * @return the subarguments' records
+     */
+    List<ArgumentRecord> getSubArguments() {
+        return subArguments;
+    }
+}
@@ -0,0 +1,251 @@
+package utfpr.edu.argumentation.diagram;
+
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Insets;
+import java.util.List;
+import javax.swing.JLabel;
+import javax.swing.plaf.basic.BasicHTML;
+import utfpr.edu.swing.utils.ScriptedLabel;
+import utfpr.edu.swing.utils.ScriptedText;
+import utfpr.edu.swing.utils.ScriptedTextRenderer;
+
+/**
+ * Plain data copy of an argument subtree, taken on the EDT, with everything
+ * needed to measure it without touching Swing components. Arguments that
+ * already had a cached geometry carry it instead of their labels, but their
+ * subarguments are copied all the same, so every argument of the subtree can
+ * be placed.
+ *
+ * @author Henrique M R Jasinski
+ */
+final class ArgumentSnapshot {
+
+    private final Argument argument;
+    private final int version;
+    private final int index;
+    private final int size;
+
+    private final ArgumentGeometry cached;
+
+    private final LabelSize conclusion;
+    private final LabelSize argID;
+    private final LabelSize rule;
+    private final int ruleTooltipWidth;
+    private final int bracketWidth;
+    private final List<ArgumentSnapshot> subArguments;
+
+    /**
+     * Constructor of an argument that is already measured.
+     *
+     * @param argument the argument
+     * @param version the argument geometry version
+     * @param index preorder index of the argument in the snapshot
+     * @param cached the cached geometry
+     * @param subArguments the subarguments' snapshots
+     */
+    ArgumentSnapshot(Argument argument, int version, int index, ArgumentGeometry cached, List<ArgumentSnapshot> subArguments) {
+        this.argument = argument;
+        this.version = version;
+        this.index = index;
+        this.cached = cached;
+        this.conclusion = null;
+        this.argID = null;
+        this.rule = null;
+        this.ruleTooltipWidth = 0;
+        this.bracketWidth = 0;
+        this.subArguments = List.copyOf(subArguments);
+        this.size = sizeOf(subArguments);
+    }
+
+    /**
+     * Constructor of a subtree that must be measured.
+     *
+     * @param argument the argument
+     * @param version the argument geometry version
+     * @param index preorder index of the argument in the snapshot
+     * @param conclusion conclusion label size
+     * @param argID identifier label size
+     * @param rule rule label size, null if there is no rule
+     * @param ruleTooltipWidth unscaled rule tooltip width
+     * @param bracketWidth bracket required width
+     * @param subArguments the subarguments' snapshots
+     */
+    ArgumentSnapshot(Argument argument, int version, int index, LabelSize conclusion, LabelSize argID, LabelSize rule, int ruleTooltipWidth, int bracketWidth, List<ArgumentSnapshot> subArguments) {
+        this.argument = argument;
+        this.version = version;
+        this.index = index;
+        this.cached = null;
+        this.conclusion = conclusion;
+        this.argID = argID;
+        this.rule = rule;
+        this.ruleTooltipWidth = ruleTooltipWidth;
+        this.bracketWidth = bracketWidth;
+        this.subArguments = List.copyOf(subArguments);
+        this.size = sizeOf(subArguments);
+    }
+
+    private static int sizeOf(List<ArgumentSnapshot> subArguments) {
+        int s = 1;
+        for (ArgumentSnapshot sub : subArguments) {
+            s += sub.size;
+        }
+
+        return s;
+    }
+
+    /**
+     * Measures this argument from its subarguments' geometries. Can be
+     * called on any thread.
+     *
+     * @param subs the subarguments' geometries, in order
+     * @return the argument geometry
+     */
+    ArgumentGeometry measure(List<ArgumentGeometry> subs) {
+        if (cached != null) {
+            return cached;
+        }
+
+        return ArgumentGeometry.measure(conclusion.get(), argID.get(), (rule != null ? rule.get() : null), ruleTooltipWidth, bracketWidth, subs);
+    }
+
+    /**
+     * Returns the argument the snapshot was taken from. Must only be used on
+     * the EDT.
+     *
+     * @return the argument
+     */
+    Argument getArgument() {
+        return argument;
+    }
+
+    /**
+     * Returns the argument geometry version when the snapshot was taken.
+     *
+     * @return geometry version
+     */
+    int getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the preorder index of the argument in the snapshot.
+     *
+     * @return index
+     */
+    int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the number of arguments in this snapshot subtree.
+     *
+     * @return subtree size
+     */
+    int getSize() {
+        return size;
+    }
+
+    /**
+     * If the subtree was already measured when the snapshot was taken.
+     *
+     * @return true if the snapshot carries a cached geometry
+     */
+    boolean isMeasured() {
+        return cached != null;
+    }
+
+    /**
+     * Returns the subarguments' snapshots.
+     *
+     * @return the subarguments' snapshots
+     */
+    List<ArgumentSnapshot> getSubArguments() {
+        return subArguments;
+    }
+
+    /**
+     * What the preferred size of a label is computed from, copied on the EDT
+     * so the size can be computed on any thread, as ScriptedLabel and the
+     * Swing label UI compute it. Labels that only Swing can measure, such as
+     * html labels or labels with an icon or a set preferred size, are
+     * measured when copied.
+     */
+    static final class LabelSize {
+
+        private final ScriptedText text;
+        private final boolean rendered;
+        private final FontMetrics metrics;
+        private final Insets insets;
+        private final Dimension size;
+
+        private LabelSize(ScriptedText text, boolean rendered, FontMetrics metrics, Insets insets) {
+            this.text = text;
+            this.rendered = rendered;
+            this.metrics = metrics;
+            this.insets = insets;
+            this.size = null;
+        }
+
+        private LabelSize(Dimension size) {
+            this.text = null;
+            this.rendered = false;
+            this.metrics = null;
+            this.insets = null;
+            this.size = size;
+        }
+
+        /**
+         * Copies what the preferred size of a label is computed from. Must be
+         * called on the EDT.
+         *
+         * @param label the label
+         * @return the label size
+         */
+        static LabelSize of(JLabel label) {
+            if (label instanceof ScriptedLabel && !label.isPreferredSizeSet() && label.getIcon() == null) {
+                ScriptedLabel scripted = (ScriptedLabel) label;
+                ScriptedText text = scripted.getScriptedText();
+                FontMetrics metrics = label.getFontMetrics(label.getFont());
+
+                LabelSize size = null;
+                if (scripted.isRendered()) {
+                    size = new LabelSize(text, true, metrics, label.getInsets());
+                } else if (!text.isScripted() && !text.getText().isEmpty() && !BasicHTML.isHTMLString(label.getText())) {
+                    size = new LabelSize(text, false, metrics, label.getInsets());
+                }
+
+                if (size != null) {
+                    if (DiagramDebug.ENABLED) {
+                        DiagramDebug.check("size of " + text, size.get(), label.getPreferredSize());
+                    }
+                    return size;
+                }
+            }
+
+            return new LabelSize(label.getPreferredSize());
+        }
+
+        /**
+         * Returns the label preferred size. Can be called on any thread.
+         *
+         * @return the preferred size
+         */
+        Dimension get() {
+            if (size != null) {
+                return new Dimension(size);
+            }
+
+            Dimension d;
+            if (rendered) {
+                d = ScriptedTextRenderer.getDefault().getSize(text, metrics.getFont(), metrics.getFontRenderContext());
+            } else {
+                d = new Dimension(metrics.stringWidth(text.getText()), metrics.getHeight());
+            }
+            d.width += insets.left + insets.right;
+            d.height += insets.top + insets.bottom;
+
+            return d;
+        }
+    }
+}
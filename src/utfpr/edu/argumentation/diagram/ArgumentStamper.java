@@ -0,0 +1,390 @@
+package utfpr.edu.argumentation.diagram;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Container;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.util.List;
+import javax.swing.CellRendererPane;
+import javax.swing.JComponent;
+import javax.swing.UIManager;
+import javax.swing.plaf.basic.BasicHTML;
+import utfpr.edu.swing.utils.ScriptedLabel;
+import utfpr.edu.swing.utils.ScriptedText;
+
+/**
+ * Paints argument records by stamping a single reusable Atom and a single
+ * reusable label through a CellRendererPane, the way JList and JTable paint
+ * their cells, and drawing the rules and brackets directly. Arguments painted
+ * this way need no components of their own on the canvas. The result is the
+ * same as painting the Argument components. Must be used from the event
+ * dispatch thread.
+ *
+ * @author Henrique M R Jasinski
+ */
+final class ArgumentStamper {
+
+    static final Color LABEL_BACKGROUND = new Color(0xf9f9f9);
+
+    private final ArgumentionFramework framework;
+    private final CellRendererPane rendererPane = new CellRendererPane();
+    private final Atom atom;
+    private final Color atomForeground;
+    private final ScriptedLabel label;
+
+    /**
+     * Constructor.
+     *
+     * @param framework the framework whose colors are used
+     */
+    ArgumentStamper(ArgumentionFramework framework) {
+        this.framework = framework;
+
+        this.atom = new Atom("", null, true, Argument.ACCEPTED_NONFOCUSED_ARGUMENT_TYPE, framework) {
+            @Override
+            public void invalidate() {
+            }
+
+            @Override
+            public void validate() {
+            }
+
+            @Override
+            public void revalidate() {
+            }
+
+            @Override
+            public void repaint(long tm, int x, int y, int width, int height) {
+            }
+
+            @Override
+            protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+                if (isRenderedChange(this, propertyName, oldValue, newValue)) {
+                    super.firePropertyChange(propertyName, oldValue, newValue);
+                }
+            }
+        };
+        // Atoms only set the foreground of scripted texts, the others keep the label default
+        this.atomForeground = UIManager.getColor("Label.foreground");
+
+        this.label = new ScriptedLabel(ScriptedText.parse("")) {
+            @Override
+            public void invalidate() {
+            }
+
+            @Override
+            public void validate() {
+            }
+
+            @Override
+            public void revalidate() {
+            }
+
+            @Override
+            public void repaint(long tm, int x, int y, int width, int height) {
+            }
+
+            @Override
+            protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+                if (isRenderedChange(this, propertyName, oldValue, newValue)) {
+                    super.firePropertyChange(propertyName, oldValue, newValue);
+                }
+            }
+        };
+        this.label.setOpaque(true);
+        this.label.setBackground(LABEL_BACKGROUND);
+    }
+
+    /**
+     * Tests if a property change of a renderer must be fired. As in
+     * DefaultListCellRenderer, only the changes that the html view depends on
+     * are fired.
+     *
+     * @param comp the renderer
+     * @param propertyName the property name
+     * @param oldValue the old value
+     * @param newValue the new value
+     * @return true if the change must be fired
+     */
+    private static boolean isRenderedChange(JComponent comp, String propertyName, Object oldValue, Object newValue) {
+        return "text".equals(propertyName) || (("font".equals(propertyName) || "foreground".equals(propertyName)) && oldValue != newValue && comp.getClientProperty(BasicHTML.propertyKey) != null);
+    }
+
+    /**
+     * Paints a root argument record.
+     *
+     * @param g2d graphics instance, in canvas coordinates
+     * @param record the root argument record
+     * @param x argument x position
+     * @param y argument y position
+     * @param detail the detail level
+     * @param canvas the container the argument is painted on
+     */
+    void paint(Graphics2D g2d, ArgumentRecord record, int x, int y, DetailLevel detail, Container canvas) {
+        DiagramPalette palette = DiagramPalette.of(framework);
+
+        if (detail == DetailLevel.MINIMAL) {
+            paintBox(g2d, record, x, y, palette);
+            return;
+        }
+
+        paintArgument(g2d, record, x, y, detail, palette, canvas);
+    }
+
+    /**
+     * Paints a root argument as a translucent box with its conclusion drawn as
+     * a filled box, as Argument.paint does at the minimal detail level.
+     *
+     * @param g2d graphics instance
+     * @param record the root argument record
+     * @param x argument x position
+     * @param y argument y position
+     * @param palette the palette
+     */
+    static void paintBox(Graphics2D g2d, ArgumentRecord record, int x, int y, DiagramPalette palette) {
+        ArgumentGeometry geometry = record.getGeometry();
+        Color color = palette.getTypeColor(record.getType(), record.isTranslucent());
+        Rectangle conclusion = geometry.getConclusionBounds();
+
+        Graphics g = g2d.create(x, y, geometry.getWidth(), geometry.getHeight());
+
+        g.setColor(palette.getTranslucent(color));
+        g.fillRect(0, 0, geometry.getWidth(), geometry.getHeight());
+        g.setColor(color);
+        g.fillRect(conclusion.x, conclusion.y, conclusion.width, conclusion.height);
+        g.dispose();
+    }
+
+    /**
+     * Paints an argument and its subarguments. As with the Argument
+     * components, each argument is clipped to its bounds and the subarguments
+     * are painted first, then the labels, then the rule and the brackets.
+     */
+    private void paintArgument(Graphics2D g2d, ArgumentRecord record, int x, int y, DetailLevel detail, DiagramPalette palette, Container canvas) {
+        ArgumentGeometry geometry = record.getGeometry();
+        List<ArgumentRecord> subs = record.getSubArguments();
+        Graphics2D g = (Graphics2D) g2d.create(x, y, geometry.getWidth(), geometry.getHeight());
+
+        for (int k = subs.size() - 1; k >= 0; k--) {
+            Rectangle b = geometry.getSubArgumentBounds(k);
+            paintArgument(g, subs.get(k), b.x, b.y, detail, palette, canvas);
+        }
+
+        Color color = palette.getTypeColor(record.getType(), record.isTranslucent());
+        Rectangle conclusion = geometry.getConclusionBounds();
+
+        if (detail == DetailLevel.FULL) {
+            stampLabel(g, record.getArgID(), getArgIDColor(record, palette), geometry.getArgIDBounds(), canvas);
+
+            atom.setForeground(atomForeground);
+            atom.configure(record.getConclusion(), record.getType(), record.isStrictConclusion(), record.isTranslucent(), record.getSizeMultiplier());
+            rendererPane.paintComponent(g, atom, canvas, conclusion.x, conclusion.y, conclusion.width, conclusion.height);
+
+            if (record.getRule() != null && geometry.getRuleBounds() != null) {
+                stampLabel(g, record.getRule(), getRuleColor(record, palette), geometry.getRuleBounds(), canvas);
+            }
+        } else {
+            paintConclusionBox(g, conclusion, color);
+        }
+
+        paintLines(g, record, detail, palette);
+
+        g.dispose();
+    }
+
+    /**
+     * Returns the text color of an identifier label, as Argument sets it.
+     *
+     * @param record the argument record
+     * @param palette the palette
+     * @return the identifier text color
+     */
+    static Color getArgIDColor(ArgumentRecord record, DiagramPalette palette) {
+        return (record.getArgID().isScripted() ? palette.getTextColor(record.isTranslucent()) : palette.getTypeColor(record.getType(), record.isTranslucent()));
+    }
+
+    /**
+     * Returns the text color of a rule label, as Argument sets it.
+     *
+     * @param record the argument record
+     * @param palette the palette
+     * @return the rule text color
+     */
+    static Color getRuleColor(ArgumentRecord record, DiagramPalette palette) {
+        Color color = palette.getTypeColor(record.getType(), record.isTranslucent());
+        return (record.getRule().isScripted() ? palette.getTextColor(record.isTranslucent()) : (record.isTranslucent() ? color.brighter() : color));
+    }
+
+    /**
+     * Paints a conclusion as a filled box, as Atom.paint does below the full
+     * detail level.
+     *
+     * @param g graphics instance, relative to the argument
+     * @param conclusion the conclusion bounds
+     * @param color the box color
+     */
+    static void paintConclusionBox(Graphics g, Rectangle conclusion, Color color) {
+        Graphics gc = g.create(conclusion.x, conclusion.y, conclusion.width, conclusion.height);
+        gc.setColor(color);
+        gc.fillRect(0, 0, conclusion.width, conclusion.height);
+        gc.dispose();
+    }
+
+    /**
+     * Paints the rule lines and the brackets of an argument with its color
+     * and stroke. Argument.paint draws its lines with it too.
+     *
+     * @param g2d graphics instance, relative to the argument
+     * @param record the argument record
+     * @param detail the detail level
+     * @param palette the palette
+     */
+    static void paintLines(Graphics2D g2d, ArgumentRecord record, DetailLevel detail, DiagramPalette palette) {
+        BasicStroke stroke = palette.getStroke(record.getSizeMultiplier());
+        BasicStroke dashedStroke = palette.getDashedStroke(record.getSizeMultiplier());
+
+        g2d.setPaint(palette.getTypeColor(record.getType(), record.isTranslucent()));
+        forEachLine(record, detail, (x1, y1, x2, y2, dashed) -> {
+            g2d.setStroke(dashed ? dashedStroke : stroke);
+            g2d.drawLine(x1, y1, x2, y2);
+        });
+    }
+
+    /**
+     * Receives the rule lines and the brackets of an argument.
+     */
+    interface LineConsumer {
+
+        /**
+         * Receives a line, in coordinates relative to the argument.
+         *
+         * @param x1 x position of the first end
+         * @param y1 y position of the first end
+         * @param x2 x position of the second end
+         * @param y2 y position of the second end
+         * @param dashed if the line is drawn with the dashed stroke of
+         * defeasible rules, otherwise with the solid stroke
+         */
+        void line(int x1, int y1, int x2, int y2, boolean dashed);
+    }
+
+    /**
+     * Walks the rule lines and the brackets of an argument, in the order they
+     * are painted.
+     *
+     * @param record the argument record
+     * @param detail the detail level
+     * @param lines receives each line
+     */
+    static void forEachLine(ArgumentRecord record, DetailLevel detail, LineConsumer lines) {
+        if (detail == DetailLevel.SIMPLIFIED) {
+            forEachSimplifiedRuleLine(record, lines);
+        } else {
+            forEachRuleLine(record, lines);
+        }
+    }
+
+    private void stampLabel(Graphics2D g2d, ScriptedText text, Color foreground, Rectangle bounds, Container canvas) {
+        label.setScriptedText(text);
+        label.setForeground(foreground);
+        rendererPane.paintComponent(g2d, label, canvas, bounds.x, bounds.y, bounds.width, bounds.height);
+    }
+
+    /**
+     * Walks the rule lines and the brackets, in coordinates relative to the
+     * argument.
+     */
+    private static void forEachRuleLine(ArgumentRecord record, LineConsumer lines) {
+        ArgumentGeometry geometry = record.getGeometry();
+        Rectangle conclusion = geometry.getConclusionBounds();
+        double sizeMultiplier = record.getSizeMultiplier();
+        int bracketGap = Argument.bracketGap;
+        int bracketWidth = Argument.bracketWidth;
+
+        // paint right bracket if has no subarguments
+        if (geometry.isLeaf()) {
+            int baseX = conclusion.x + conclusion.width + bracketGap + (int) (sizeMultiplier / 2);
+
+            // Right "border"
+            lines.line(baseX + bracketWidth - (int) Math.round(sizeMultiplier), conclusion.y - 1 + ((int) (sizeMultiplier / 2)), baseX + bracketWidth - (int) Math.round(sizeMultiplier), conclusion.y + conclusion.height, false);
+            // Top "border"
+            lines.line(baseX, conclusion.y - 1 + ((int) (sizeMultiplier / 2)), baseX + bracketWidth - (int) Math.round(sizeMultiplier), conclusion.y - 1 + ((int) (sizeMultiplier / 2)), false);
+            // Botton "border"
+            lines.line(baseX, conclusion.y + conclusion.height, baseX + bracketWidth - (int) Math.round(sizeMultiplier), conclusion.y + conclusion.height, false);
+
+            return;
+        }
+
+        int middleX = geometry.getConclusionMiddleX();
+        Rectangle rule = geometry.getRuleBounds();
+
+        boolean dashed = !record.isStrictRule();
+
+        int minX = conclusion.x;
+        int maxHeight = conclusion.y + conclusion.height;
+
+        if (rule != null) {
+            int halfWay = rule.y + (int) (1.6 * rule.height);
+
+            // Draw line from conclusion to rule label
+            lines.line(middleX, conclusion.y + conclusion.height, middleX, rule.y, dashed);
+            // Draw line from rule to half distance to subarguments
+            lines.line(middleX, rule.y + rule.height + 2, middleX, halfWay, dashed);
+
+            for (int k = 0; k < geometry.getSubArgumentCount(); k++) {
+                Rectangle b = geometry.getSubArgumentBounds(k);
+                int conclusionMX = record.getSubArguments().get(k).getGeometry().getConclusionMiddleX() + b.x;
+
+                // Draw vertical line from top of subargument to half distance to rule
+                lines.line(conclusionMX, b.y - 2, conclusionMX, halfWay, dashed);
+                // Draw horizontal line from top of subargument to half distance to rule
+                lines.line(conclusionMX, halfWay, middleX, halfWay, dashed);
+            }
+        }
+
+        for (int k = 0; k < geometry.getSubArgumentCount(); k++) {
+            Rectangle b = geometry.getSubArgumentBounds(k);
+
+            minX = Math.min(minX, b.x);
+            maxHeight = Math.max(maxHeight, b.y + b.height - record.getSubArguments().get(k).getGeometry().getArgIDBounds().height);
+        }
+
+        // Paint left bracket
+        minX -= bracketGap + 1 + (int) (sizeMultiplier / 2);
+        // Left "border"
+        lines.line(minX - bracketWidth + (int) (sizeMultiplier), conclusion.y, minX - bracketWidth + (int) (sizeMultiplier), maxHeight, false);
+        // Top "border"
+        lines.line(minX - bracketWidth + (int) (sizeMultiplier), conclusion.y, minX, conclusion.y, false);
+        // Bottom "border"
+        lines.line(minX - bracketWidth + (int) (sizeMultiplier), maxHeight, minX, maxHeight, false);
+    }
+
+    /**
+     * Walks the rule as single solid lines, as it is drawn below the full
+     * detail level.
+     */
+    private static void forEachSimplifiedRuleLine(ArgumentRecord record, LineConsumer lines) {
+        ArgumentGeometry geometry = record.getGeometry();
+        Rectangle rule = geometry.getRuleBounds();
+
+        if (geometry.isLeaf() || rule == null) {
+            return;
+        }
+
+        Rectangle conclusion = geometry.getConclusionBounds();
+        int middleX = geometry.getConclusionMiddleX();
+        int halfWay = rule.y + (int) (1.6 * rule.height);
+
+        lines.line(middleX, conclusion.y + conclusion.height, middleX, halfWay, false);
+
+        for (int k = 0; k < geometry.getSubArgumentCount(); k++) {
+            Rectangle b = geometry.getSubArgumentBounds(k);
+            int conclusionMX = record.getSubArguments().get(k).getGeometry().getConclusionMiddleX() + b.x;
+
+            lines.line(conclusionMX, b.y, conclusionMX, halfWay, false);
+            lines.line(conclusionMX, halfWay, middleX, halfWay, false);
+        }
+    }
+}
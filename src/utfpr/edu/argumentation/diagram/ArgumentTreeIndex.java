@@ -0,0 +1,92 @@
+package utfpr.edu.argumentation.diagram;
+
+/**
+ * Pre/post-order (Euler tour) labelling of the argument trees of an
+ * ArgumentionFramework. Every argument added to the index receives an
+ * interval [enter, exit] that encloses the intervals of all its
+ * subarguments, so containment and ancestor tests are two integer
+ * comparisons. Labels of removed trees are simply dropped; the remaining
+ * intervals stay valid.
+ *
+ * @author Henrique M R Jasinski
+ */
+final class ArgumentTreeIndex {
+
+    private int nextLabel = 0;
+
+    /**
+     * Labels a root argument and its subarguments.
+     *
+     * @param root the root argument
+     */
+    void add(Argument root) {
+        label(root, root);
+    }
+
+    private void label(Argument arg, Argument root) {
+        int enter = nextLabel++;
+
+        arg.getSubArguments().forEach((sub) -> {
+            label(sub, root);
+        });
+
+        arg.setTreeLabel(this, root, enter, nextLabel++);
+    }
+
+    /**
+     * Removes the labels of a root argument and its subarguments.
+     *
+     * @param root the root argument
+     */
+    void remove(Argument root) {
+        if (root.getTreeIndex() != this) {
+            return;
+        }
+
+        root.setTreeLabel(null, null, 0, 0);
+        root.getSubArguments().forEach((sub) -> {
+            remove(sub);
+        });
+    }
+
+    /**
+     * Tests if the argument is labelled by this index.
+     *
+     * @param arg tested argument
+     * @return true if arg is a root argument or a subargument in this index
+     */
+    boolean contains(Argument arg) {
+        return arg.getTreeIndex() == this;
+    }
+
+    /**
+     * Tests if arg is a root argument of this index.
+     *
+     * @param arg tested argument
+     * @return true if arg is a labelled root argument
+     */
+    boolean isRoot(Argument arg) {
+        return contains(arg) && arg.getTreeRoot() == arg;
+    }
+
+    /**
+     * Returns the root argument of the tree that contains arg.
+     *
+     * @param arg labelled argument
+     * @return the root argument, or null if arg is not labelled by this index
+     */
+    Argument getRoot(Argument arg) {
+        return (contains(arg) ? arg.getTreeRoot() : null);
+    }
+
+    /**
+     * Tests if ancestor is arg or one of its ancestors.
+     *
+     * @param ancestor the possible ancestor
+     * @param arg the possible descendant
+     * @return true if arg is in the subtree of ancestor
+     */
+    boolean isAncestor(Argument ancestor, Argument arg) {
+        return contains(ancestor) && contains(arg) && ancestor.getTreeEnter() <= arg.getTreeEnter() && arg.getTreeExit() <= ancestor.getTreeExit();
+    }
+}
@@ -11,21 +11,28 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Label;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
-import javax.imageio.ImageIO;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 import javax.swing.AbstractAction;
 import javax.swing.BorderFactory;
 import javax.swing.ImageIcon;
@@ -36,9 +43,12 @@ import javax.swing.JLayeredPane;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.KeyStroke;
+import javax.swing.ProgressMonitor;
+import javax.swing.Timer;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import utfpr.edu.swing.utils.ColorUtil;
 import utfpr.edu.swing.utils.ListOrderer;
+import utfpr.edu.swing.utils.QuadTree;
 
 /**
  * Class that represents an argumentation framework as a swing.JContainer.
@@ -48,14 +58,32 @@ import utfpr.edu.swing.utils.ListOrderer;
 public class ArgumentionFramework extends JLayeredPane {
 
     private ArrayList<Argument> arguments;
-    private final HashSet<Attack> attacks;
+    private final Map<AttackKey, Attack> attacks;
     private Component focused = null;
     private Integer focusedType = null;
-    private int newXPos = 0;
     private final int gap = 20;
     
     private ScaledJLayeredPane diagramCanvas;
 
+    private final ArgumentTreeIndex treeIndex = new ArgumentTreeIndex();
+    private final FocusEngine focusEngine = new FocusEngine(treeIndex);
+    private final Map<Argument, List<Attack>> outgoingAttacks = new IdentityHashMap<>();
+    private final Map<Argument, List<Attack>> incomingAttacks = new IdentityHashMap<>();
+    private final QuadTree<Component> hoverIndex = new QuadTree<>();
+    private final Map<Component, List<Rectangle>> hoverBounds = new IdentityHashMap<>();
+    private Set<Component> hovered = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private final Map<Argument, Dimension> argumentSizes = new IdentityHashMap<>();
+    private final Set<Argument> resizedArguments = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Argument> relaidArguments = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private ArgumentLayoutStrategy layoutStrategy = new SingleRowLayoutStrategy(gap);
+    private final List<Rectangle> argumentPlacements = new ArrayList<>();
+    private final TreeMap<Integer, Integer> placementRightEdges = new TreeMap<>();
+    private final TreeMap<Integer, Integer> placementBottomEdges = new TreeMap<>();
+    private int placedArguments = 0;
+    private int firstMovedArgument = 0;
+
     private final static int ATTACKS_DEFAULT_LAYER = 0;
     private final static int ARGUMENTS_DEFAULT_LAYER = 50;
     private final static int ARGUMENTS_ALT_LAYER = 100;
@@ -69,6 +97,9 @@ public class ArgumentionFramework extends JLayeredPane {
 
     public static final Float DEFAULT_CLUSTER_FADEOFF = 0.25f;
 
+    public static final double DEFAULT_SIMPLIFIED_DETAIL_SCALE = 0.5;
+    public static final double DEFAULT_MINIMAL_DETAIL_SCALE = 0.2;
+
     protected Color ACCEPTED_NONFOCUSED_ARGUMENT_COLOR = DEFAULT_ACCEPTED_NONFOCUSED_ARGUMENT_COLOR;
     protected Color ACCEPTED_FOCUSED_ARGUMENT_COLOR = DEFAULT_ACCEPTED_FOCUSED_ARGUMENT_COLOR;
     protected Color REJECTED_NONFOCUSED_ARGUMENT_COLOR = DEFAULT_REJECTED_NONFOCUSED_ARGUMENT_COLOR;
@@ -80,10 +111,16 @@ public class ArgumentionFramework extends JLayeredPane {
 
     private double sizeMultiplier = 1.0;
     private double scaling = 1.0;
+    private double simplifiedDetailScale = DEFAULT_SIMPLIFIED_DETAIL_SCALE;
+    private double minimalDetailScale = DEFAULT_MINIMAL_DETAIL_SCALE;
+
+    private final DiagramPalette palette = new DiagramPalette(this);
+    private final LayoutEngine layoutEngine = new LayoutEngine();
 
     private final Label emptyMessage;
     private boolean lockTooltipVisibility = false;
     private boolean lockReorder = false;
+    private boolean stampRendering = false;
 
     /**
      * Constructor of an ArgumentationFramework.
@@ -97,7 +134,7 @@ public class ArgumentionFramework extends JLayeredPane {
         this.addComponentListener(new ComponentAdapter() {
             @Override
             public void componentResized(ComponentEvent e) {
-                repositionComponents();
+                requestLayout();
             }
         });
         
@@ -105,7 +142,7 @@ public class ArgumentionFramework extends JLayeredPane {
         this.add(diagramCanvas);
 
         arguments = new ArrayList<>();
-        attacks = new HashSet<>();
+        attacks = new LinkedHashMap<>();
         foregroundListenners = new ArrayList<>();
         emptyMessage = new Label();
 //        this.add(emptyMessage);
@@ -115,12 +152,26 @@ public class ArgumentionFramework extends JLayeredPane {
         diagramCanvas.addMouseMotionListener(new MouseAdapter() {
             @Override
             public void mouseMoved(MouseEvent e) {
+                int x = unScaledX(e.getX());
+                int y = unScaledY(e.getY());
+
+                // Components left by the cursor are visited once more so they can hide their tooltips
+                Set<Component> candidates = hoverIndex.query(x, y, Collections.newSetFromMap(new IdentityHashMap<>()));
+                Set<Component> visit = Collections.newSetFromMap(new IdentityHashMap<>());
+                visit.addAll(hovered);
+                visit.addAll(candidates);
+                hovered = candidates;
+
                 boolean overComponent = false;
-                for (Argument arg : arguments) {
-                    overComponent = overComponent | arg.mouseMoved(e.getX(), e.getY());
+                for (Component comp : visit) {
+                    if (comp instanceof Argument) {
+                        overComponent = overComponent | ((Argument) comp).mouseOver(x, y);
+                    }
                 }
-                for (Attack attck : attacks) {
-                    overComponent = overComponent | attck.mouseMoved(e.getX(), e.getY());
+                for (Component comp : visit) {
+                    if (comp instanceof Attack) {
+                        overComponent = overComponent | ((Attack) comp).mouseOver(x, y);
+                    }
                 }
                 if (!overComponent) {
                     setFocus(null);
@@ -334,6 +385,63 @@ public class ArgumentionFramework extends JLayeredPane {
 
     public void setScaling(double scaling) {
         this.scaling = scaling;
+
+        // Rule tooltips keep their size when zoomed, so only their unscaled width changes
+        arguments.forEach((arg) -> {
+            arg.invalidateTooltipGeometry();
+        });
+    }
+
+    /**
+     * Defines the scalings below which the diagram is painted with less
+     * detail. Below simplifiedScale atoms are painted as filled boxes, rules
+     * and attacks as single lines, and no text, bracket or arrow head is
+     * painted. Below minimalScale each root argument is painted as a box.
+     *
+     * @param simplifiedScale scaling below which the diagram is simplified
+     * @param minimalScale scaling below which the diagram is minimal. Must not
+     * be greater than simplifiedScale
+     */
+    public void setDetailThresholds(double simplifiedScale, double minimalScale) {
+        if (minimalScale > simplifiedScale) {
+            throw new IllegalArgumentException("The minimal detail scale must not be greater than the simplified detail scale.");
+        }
+
+        this.simplifiedDetailScale = simplifiedScale;
+        this.minimalDetailScale = minimalScale;
+
+        repaint();
+    }
+
+    /**
+     * Returns the scaling below which the diagram is simplified.
+     *
+     * @return the simplified detail threshold
+     */
+    public double getSimplifiedDetailScale() {
+        return simplifiedDetailScale;
+    }
+
+    /**
+     * Returns the scaling below which the diagram is minimal.
+     *
+     * @return the minimal detail threshold
+     */
+    public double getMinimalDetailScale() {
+        return minimalDetailScale;
+    }
+
+    /**
+     * Returns the detail level for the current scaling.
+     *
+     * @return the detail level
+     */
+    DetailLevel getDetailLevel() {
+        if (scaling < minimalDetailScale) {
+            return DetailLevel.MINIMAL;
+        }
+
+        return (scaling < simplifiedDetailScale ? DetailLevel.SIMPLIFIED : DetailLevel.FULL);
     }
 
     public int unScaledX(int x) {
@@ -352,48 +460,62 @@ public class ArgumentionFramework extends JLayeredPane {
      */
     public void addArgument(Argument arg) {
         if (arg != null) {
-            if (!arguments.contains(arg)) {
+            if (!treeIndex.isRoot(arg)) {
+                layoutEngine.cancel();
                 arguments.add(arg);
+                treeIndex.add(arg);
 
+                arg.setLabelComponents(!stampRendering);
                 arg.setSizeMultiplier(sizeMultiplier);
 
-                Dimension d = arg.getPreferredSize();
+                trackArgumentSize(arg, arg.getPreferredSize());
+                updatePlacement();
 
-                arg.setBounds(newXPos, 0, d.width, d.height);
+                arg.setBounds(argumentPlacements.get(arguments.size() - 1));
+
+                // Appending keeps the other placements, unless an earlier change is pending
+                if (firstMovedArgument == arguments.size() - 1) {
+                    firstMovedArgument = arguments.size();
+                }
 //                this.add(arg, (Integer) (ARGUMENTS_DEFAULT_LAYER));
-                diagramCanvas.add(arg, (Integer) (ARGUMENTS_DEFAULT_LAYER));
+                addToCanvas(arg, ARGUMENTS_DEFAULT_LAYER);
                 foregroundListenners.add(arg);
+                indexArgument(arg);
+                focusEngine.argumentAdded(arg, this::isFocus);
 
                 emptyMessage.setVisible(false);
-
-                newXPos += d.width + gap;
             }
         }
     }
     
     public void removeArgument(Argument arg) {
         if(arg != null){
-            if(arguments.contains(arg)){
-                ArrayList<Attack> toRemove = new ArrayList<>();
-                for(Attack atck : attacks){
-                    if(atck.getArgument1() == arg || atck.getArgument2() == arg){
-                        toRemove.add(atck);
-                    }
-                }
+            if(treeIndex.isRoot(arg)){
+                layoutEngine.cancel();
+                Set<Attack> toRemove = Collections.newSetFromMap(new IdentityHashMap<>());
+                collectIncidentAttacks(arg, toRemove);
                 
                 for(Attack rem : toRemove){
                     removeAttack(rem);
                 }
                 
                 foregroundListenners.remove(arg);
-                diagramCanvas.remove(arg);
+                removeFromCanvas(arg);
+                int index = indexOfArgument(arg);
+                placedArguments = Math.min(placedArguments, index);
+                firstMovedArgument = Math.min(firstMovedArgument, index);
                 arguments.remove(arg);
+                untrackArgumentSize(arg);
+                relaidArguments.remove(arg);
+                focusEngine.argumentRemoved(arg);
+                treeIndex.remove(arg);
+                unindexArgument(arg);
             }
         }
     }
 
     public boolean containsArgument(Argument arg) {
-        return arguments.stream().anyMatch((a) -> (a.containsArgument(arg)));
+        return treeIndex.contains(arg);
     }
 
     /**
@@ -416,65 +538,584 @@ public class ArgumentionFramework extends JLayeredPane {
             return;
         }
 
-        Attack attck = new Attack(a1, a2, this).setBidirectional(bidirectional);
-
-        if (attacks.contains(attck)) {
-            for (Attack at : attacks) {
-                if (at.equals(attck)) {
-                    if (!at.isBidirectional()) {
-                        if (at.isInverse(attck)) {
-                            at.setBidirectional(true);
-                            repaint();
-                        }
-                    }
+        Attack at = attacks.get(new AttackKey(a1, a2));
 
-                    break;
+        if (at != null) {
+            if (!at.isBidirectional()) {
+                if (at.getArgument2() == a1) {
+                    at.setBidirectional(true);
+                    repaint();
                 }
             }
         } else {
-            attacks.add(attck);
+            Attack attck = new Attack(a1, a2, this).setBidirectional(bidirectional);
+
+            attacks.put(attck.getKey(), attck);
+            outgoingAttacks.computeIfAbsent(a1, (k) -> new ArrayList<>(2)).add(attck);
+            incomingAttacks.computeIfAbsent(a2, (k) -> new ArrayList<>(2)).add(attck);
             attck.setBounds(attck.getProperX(), attck.getProperY(), attck.getProperWidth(), attck.getProperHeight());
 
 //            this.add(attck, (Integer) (ATTACKS_DEFAULT_LAYER));
-            diagramCanvas.add(attck, (Integer) (ATTACKS_DEFAULT_LAYER));
+            addToCanvas(attck, ATTACKS_DEFAULT_LAYER);
+            indexComponent(attck, List.of(attck.getBounds()));
+            focusEngine.attackAdded(attck, this::isFocus);
         }
     }
     
     public void removeAttack(Attack attack){
         if(attack != null){
-            if(attacks.contains(attack)){
-                diagramCanvas.remove(attack);
-                attacks.remove(attack);
+            if(attacks.get(attack.getKey()) == attack){
+                removeFromCanvas(attack);
+                attacks.remove(attack.getKey());
+                unindexComponent(attack);
+                focusEngine.attackRemoved(attack);
+                removeIncidence(outgoingAttacks, attack.getArgument1(), attack);
+                removeIncidence(incomingAttacks, attack.getArgument2(), attack);
             }
         }
     }
 
     /**
-     * Set the every component's bound.
+     * Removes an attack from the incidence list of an argument.
+     *
+     * @param incidence incidence map
+     * @param arg the argument
+     * @param attack the attack
      */
-    public void repositionComponents() {
-        newXPos = 0;
-        
-//        if(!arguments.isEmpty()){
-//            newXPos += arguments.get(0).getXOverflow();
-//        }
+    private static void removeIncidence(Map<Argument, List<Attack>> incidence, Argument arg, Attack attack) {
+        List<Attack> list = incidence.get(arg);
+        if (list != null) {
+            list.removeIf((at) -> (at == attack));
+            if (list.isEmpty()) {
+                incidence.remove(arg);
+            }
+        }
+    }
+
+    /**
+     * Collects the attacks from or to an argument or any of its subarguments.
+     *
+     * @param arg the argument
+     * @param result collection that receives the attacks
+     */
+    void collectIncidentAttacks(Argument arg, Collection<Attack> result) {
+        result.addAll(outgoingAttacks.getOrDefault(arg, Collections.emptyList()));
+        result.addAll(incomingAttacks.getOrDefault(arg, Collections.emptyList()));
+        arg.getSubArguments().forEach((sub) -> {
+            collectIncidentAttacks(sub, result);
+        });
+    }
+
+    /**
+     * Returns the attacks whose first argument is arg. Bidirectional attacks
+     * are listed as outgoing for their first argument and incoming for their
+     * second argument.
+     *
+     * @param arg the argument
+     * @return unmodifiable list of attacks
+     */
+    public List<Attack> getOutgoingAttacks(Argument arg) {
+        return Collections.unmodifiableList(outgoingAttacks.getOrDefault(arg, Collections.emptyList()));
+    }
+
+    /**
+     * Returns the attacks whose second argument is arg. Bidirectional attacks
+     * are listed as outgoing for their first argument and incoming for their
+     * second argument.
+     *
+     * @param arg the argument
+     * @return unmodifiable list of attacks
+     */
+    public List<Attack> getIncomingAttacks(Argument arg) {
+        return Collections.unmodifiableList(incomingAttacks.getOrDefault(arg, Collections.emptyList()));
+    }
+
+    /**
+     * Returns the arguments that attack arg, taking bidirectional attacks
+     * into account. Subarguments are considered separately.
+     *
+     * @param arg the attacked argument
+     * @return the attacking arguments
+     */
+    public Set<Argument> getAttackersOf(Argument arg) {
+        Set<Argument> attackers = new LinkedHashSet<>();
 
+        incomingAttacks.getOrDefault(arg, Collections.emptyList()).forEach((at) -> {
+            attackers.add(at.getArgument1());
+        });
+        outgoingAttacks.getOrDefault(arg, Collections.emptyList()).stream().filter((at) -> (at.isBidirectional())).forEachOrdered((at) -> {
+            attackers.add(at.getArgument2());
+        });
+
+        return attackers;
+    }
+
+    /**
+     * Returns the arguments attacked by arg, taking bidirectional attacks
+     * into account. Subarguments are considered separately.
+     *
+     * @param arg the attacking argument
+     * @return the attacked arguments
+     */
+    public Set<Argument> getAttackedBy(Argument arg) {
+        Set<Argument> attacked = new LinkedHashSet<>();
+
+        outgoingAttacks.getOrDefault(arg, Collections.emptyList()).forEach((at) -> {
+            attacked.add(at.getArgument2());
+        });
+        incomingAttacks.getOrDefault(arg, Collections.emptyList()).stream().filter((at) -> (at.isBidirectional())).forEachOrdered((at) -> {
+            attacked.add(at.getArgument1());
+        });
+
+        return attacked;
+    }
+
+    /**
+     * Defines if the root arguments and the attacks are painted by stamping
+     * plain data copies of them, instead of as Swing components on the
+     * canvas. With stamping, the canvas holds no component per argument or
+     * attack: a single reusable renderer paints the visible ones, which keeps
+     * very large frameworks cheap to lay out and paint. Arguments, attacks,
+     * focus and hovering keep working the same way, but tooltips are not
+     * shown while stamping. Stamped arguments are kept without identifier and
+     * rule labels nor rule tooltips, so they take no room for the tooltips.
+     *
+     * @param stampRendering true to stamp arguments and attacks
+     */
+    public void setStampRendering(boolean stampRendering) {
+        if (this.stampRendering == stampRendering) {
+            return;
+        }
+
+        layoutEngine.cancel();
+
+        List<JComponent> components = new ArrayList<>(arguments.size() + attacks.size());
+        components.addAll(attacks.values());
+        components.addAll(arguments);
+
+        components.forEach((comp) -> {
+            removeFromCanvas(comp);
+        });
+        this.stampRendering = stampRendering;
+        components.forEach((comp) -> {
+            addToCanvas(comp, JLayeredPane.getLayer(comp));
+        });
+        // Back on the canvas, so the arguments resized by the change are relaid
         arguments.forEach((arg) -> {
-            Dimension d = arg.getPreferredSize();
-            arg.setBounds(newXPos, 0, d.width, d.height);
+            arg.setLabelComponents(!stampRendering);
+        });
+
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * If the root arguments and the attacks are painted by stamping.
+     *
+     * @return true if arguments and attacks are stamped
+     */
+    public boolean isStampRendering() {
+        return stampRendering;
+    }
+
+    /**
+     * Puts a root argument or an attack on the canvas, as a child or as a
+     * stamp.
+     *
+     * @param comp the component
+     * @param layer the component layer
+     */
+    private void addToCanvas(JComponent comp, int layer) {
+        if (stampRendering) {
+            if (comp instanceof Argument) {
+                ((Argument) comp).layoutSubtree();
+            }
+            diagramCanvas.addStamp(comp, layer);
+        } else {
+            diagramCanvas.add(comp, (Integer) layer);
+        }
+    }
+
+    /**
+     * Takes a root argument or an attack off the canvas.
+     *
+     * @param comp the component
+     */
+    private void removeFromCanvas(JComponent comp) {
+        if (stampRendering) {
+            diagramCanvas.removeStamp(comp);
+        } else {
+            diagramCanvas.remove(comp);
+        }
+    }
+
+    /**
+     * Tests if the attack instance belongs to this framework.
+     *
+     * @param attack tested attack
+     * @return true if this exact instance was added
+     */
+    private boolean isAttackInstance(Attack attack) {
+        return outgoingAttacks.getOrDefault(attack.getArgument1(), Collections.emptyList()).stream().anyMatch((at) -> (at == attack));
+    }
+
+    /**
+     * Updates the hover index entries of a component. Entries are only
+     * touched if the bounds changed since the last update.
+     *
+     * @param comp indexed component
+     * @param bounds the component hover bounds
+     */
+    private void indexComponent(Component comp, List<Rectangle> bounds) {
+        List<Rectangle> old = hoverBounds.get(comp);
+        if (bounds.equals(old)) {
+            return;
+        }
+
+        if (old != null) {
+            old.forEach((r) -> {
+                hoverIndex.remove(comp, r);
+            });
+        }
+        bounds.forEach((r) -> {
+            hoverIndex.insert(comp, r);
+        });
+        hoverBounds.put(comp, bounds);
+    }
+
+    /**
+     * Removes a component from the hover index.
+     *
+     * @param comp indexed component
+     */
+    private void unindexComponent(Component comp) {
+        List<Rectangle> old = hoverBounds.remove(comp);
+        if (old != null) {
+            old.forEach((r) -> {
+                hoverIndex.remove(comp, r);
+            });
+        }
+        hovered.remove(comp);
+    }
+
+    /**
+     * Updates the hover index entries of an argument and its subarguments.
+     *
+     * @param arg indexed argument
+     */
+    private void indexArgument(Argument arg) {
+        indexComponent(arg, arg.getHoverBounds());
+        arg.getSubArguments().forEach((sub) -> {
+            indexArgument(sub);
+        });
+    }
+
+    /**
+     * Removes an argument and its subarguments from the hover index.
+     *
+     * @param arg indexed argument
+     */
+    private void unindexArgument(Argument arg) {
+        unindexComponent(arg);
+        arg.getSubArguments().forEach((sub) -> {
+            unindexArgument(sub);
+        });
+    }
+
+    /**
+     * Lays out the arguments and attacks outside of the EDT, then only sets
+     * the bounds that changed on the EDT. A newer request, edit or
+     * synchronous reposition cancels the pending one. If an argument changed
+     * since the snapshot, or the computation failed, every component is
+     * repositioned on the EDT instead; a failure is logged as a warning.
+     */
+    private void requestLayout() {
+        layoutEngine.request(arguments, attacks.values(), layoutStrategy, (result) -> {
+            if (result.install()) {
+                applyLayout(result);
+            } else {
+                repositionComponents();
+            }
+        }, (error) -> {
+            System.getLogger(ArgumentionFramework.class.getName()).log(System.Logger.Level.WARNING, "The background layout failed, the arguments are repositioned on the EDT", error);
+            repositionComponents();
+        });
+    }
+
+    /**
+     * Installs the placements and attack bounds computed by the layout
+     * engine. Only the components whose bounds changed are moved.
+     *
+     * @param result the layout engine result
+     */
+    private void applyLayout(LayoutEngine.Result result) {
+        relaidArguments.addAll(resizedArguments);
+        resizedArguments.clear();
+        for (int k = 0; k < arguments.size(); k++) {
+            trackArgumentSize(arguments.get(k), result.getSizes().get(k));
+        }
 
-            newXPos += d.width + gap;
+        argumentPlacements.forEach((b) -> {
+            removeEdges(b);
+        });
+        argumentPlacements.clear();
+        argumentPlacements.addAll(result.getPlacements());
+        argumentPlacements.forEach((b) -> {
+            addEdges(b);
         });
+        placedArguments = arguments.size();
+
+        for (int k = 0; k < arguments.size(); k++) {
+            Argument arg = arguments.get(k);
+            Rectangle b = argumentPlacements.get(k);
+
+            if (!arg.getBounds().equals(b) || relaidArguments.contains(arg)) {
+                arg.setBounds(b);
+                if (stampRendering) {
+                    arg.layoutSubtree();
+                } else {
+                    arg.validate();
+                }
+                indexArgument(arg);
+            }
+        }
+        firstMovedArgument = arguments.size();
+        relaidArguments.clear();
+
+        for (int k = 0; k < result.getAttacks().size(); k++) {
+            Attack attck = result.getAttacks().get(k);
+            Rectangle b = result.getAttackBounds(k);
+
+            // Skips the attacks removed since the snapshot
+            if (attacks.get(attck.getKey()) != attck) {
+                continue;
+            }
 
-        attacks.forEach((attck) -> {
+            attck.revalidadeDirection();
+            if (!attck.getBounds().equals(b)) {
+                attck.setBounds(b);
+                indexComponent(attck, List.of(b));
+            }
+
+            if (DiagramDebug.ENABLED) {
+                DiagramDebug.check("bounds of " + attck, b, new Rectangle(attck.getProperX(), attck.getProperY(), attck.getProperWidth(), attck.getProperHeight()));
+            }
+        }
+
+        centerEmptyMessage();
+    }
+
+    /**
+     * Marks a root argument whose size may have changed. Its size and the
+     * placements from it onward are updated on the next size query or
+     * reposition.
+     *
+     * @param arg the root argument
+     */
+    void argumentResized(Argument arg) {
+        if (argumentSizes.containsKey(arg)) {
+            resizedArguments.add(arg);
+        }
+    }
+
+    /**
+     * Records the argument size.
+     *
+     * @param arg the root argument
+     * @param d the argument preferred size
+     */
+    private void trackArgumentSize(Argument arg, Dimension d) {
+        argumentSizes.put(arg, d);
+    }
+
+    /**
+     * Forgets the argument size.
+     *
+     * @param arg the root argument
+     */
+    private void untrackArgumentSize(Argument arg) {
+        argumentSizes.remove(arg);
+        resizedArguments.remove(arg);
+    }
+
+    /**
+     * Measures again the arguments marked as resized.
+     */
+    private void refreshArgumentSizes() {
+        if (resizedArguments.isEmpty()) {
+            return;
+        }
+
+        List<Argument> resized = new ArrayList<>(resizedArguments);
+        resized.forEach((arg) -> {
+            untrackArgumentSize(arg);
+            trackArgumentSize(arg, arg.getPreferredSize());
+        });
+    }
+
+    /**
+     * Updates the argument placements from the first argument that was
+     * added, removed, reordered or resized onward. The right and bottom edges
+     * of the placements are kept in multisets, so the content size is their
+     * largest keys.
+     */
+    private void updatePlacement() {
+        if (!resizedArguments.isEmpty()) {
+            for (int k = 0; k < placedArguments; k++) {
+                if (resizedArguments.contains(arguments.get(k))) {
+                    placedArguments = k;
+                    break;
+                }
+            }
+
+            relaidArguments.addAll(resizedArguments);
+            refreshArgumentSizes();
+        }
+
+        if (placedArguments == arguments.size() && argumentPlacements.size() == arguments.size()) {
+            return;
+        }
+
+        int from = placedArguments;
+        List<Rectangle> stale = argumentPlacements.subList(from, argumentPlacements.size());
+        stale.forEach((b) -> {
+            removeEdges(b);
+        });
+        stale.clear();
+
+        layoutStrategy.place(getArgumentSizes(false), from, argumentPlacements);
+
+        for (int k = from; k < argumentPlacements.size(); k++) {
+            addEdges(argumentPlacements.get(k));
+        }
+
+        placedArguments = arguments.size();
+        firstMovedArgument = Math.min(firstMovedArgument, from);
+    }
+
+    /**
+     * Returns the sizes of the root arguments, in order.
+     *
+     * @param measure if the sizes are measured again instead of read from
+     * the tracked sizes
+     * @return list of sizes
+     */
+    private List<Dimension> getArgumentSizes(boolean measure) {
+        return new AbstractList<Dimension>() {
+            @Override
+            public Dimension get(int index) {
+                Argument arg = arguments.get(index);
+                return (measure ? arg.getPreferredSize() : argumentSizes.get(arg));
+            }
+
+            @Override
+            public int size() {
+                return arguments.size();
+            }
+        };
+    }
+
+    private void addEdges(Rectangle b) {
+        placementRightEdges.merge(b.x + b.width, 1, Integer::sum);
+        placementBottomEdges.merge(b.y + b.height, 1, Integer::sum);
+    }
+
+    private void removeEdges(Rectangle b) {
+        placementRightEdges.computeIfPresent(b.x + b.width, (edge, count) -> (count == 1 ? null : count - 1));
+        placementBottomEdges.computeIfPresent(b.y + b.height, (edge, count) -> (count == 1 ? null : count - 1));
+    }
+
+    /**
+     * Defines how the root arguments are placed on the canvas.
+     *
+     * @param layoutStrategy the layout strategy
+     */
+    public void setLayoutStrategy(ArgumentLayoutStrategy layoutStrategy) {
+        if (layoutStrategy == null) {
+            throw new NullPointerException("The layout strategy can not be null");
+        }
+
+        this.layoutStrategy = layoutStrategy;
+        placedArguments = 0;
+
+        repositionComponents();
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Returns the strategy that places the root arguments.
+     *
+     * @return the layout strategy
+     */
+    public ArgumentLayoutStrategy getLayoutStrategy() {
+        return layoutStrategy;
+    }
+
+    /**
+     * Returns the index of a root argument.
+     *
+     * @param arg the root argument
+     * @return the argument index, or arguments.size() if it is not a root
+     */
+    private int indexOfArgument(Argument arg) {
+        for (int k = 0; k < arguments.size(); k++) {
+            if (arguments.get(k) == arg) {
+                return k;
+            }
+        }
+
+        return arguments.size();
+    }
+
+    /**
+     * Set the every component's bound. Arguments are placed by the layout
+     * strategy from the first one that was added, removed, reordered or
+     * resized onward. Only the arguments whose bounds actually change are
+     * moved, and only the attacks incident to the moved arguments are
+     * updated.
+     */
+    public void repositionComponents() {
+        layoutEngine.cancel();
+        updatePlacement();
+
+        Set<Attack> movedAttacks = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int k = firstMovedArgument; k < arguments.size(); k++) {
+            Argument arg = arguments.get(k);
+            Rectangle b = argumentPlacements.get(k);
+
+            if (!arg.getBounds().equals(b) || relaidArguments.contains(arg)) {
+                arg.setBounds(b);
+                if (stampRendering) {
+                    arg.layoutSubtree();
+                } else {
+                    arg.validate();
+                }
+                indexArgument(arg);
+                collectIncidentAttacks(arg, movedAttacks);
+            }
+        }
+        firstMovedArgument = arguments.size();
+        relaidArguments.clear();
+
+        movedAttacks.forEach((attck) -> {
             attck.revalidadeDirection();
             attck.setBounds(attck.getProperX(), attck.getProperY(), attck.getProperWidth(), attck.getProperHeight());
+            indexComponent(attck, List.of(attck.getBounds()));
         });
 
+        centerEmptyMessage();
+    }
+
+    /**
+     * Centers the message shown while the framework is empty.
+     */
+    private void centerEmptyMessage() {
 //        Dimension myD = this.getSize();
         Dimension myD = diagramCanvas.getSize();
         Dimension emptyMD = emptyMessage.getPreferredSize();
         emptyMessage.setBounds((myD.width - emptyMD.width) / 2, (myD.height - emptyMD.height) / 2, emptyMD.width, emptyMD.height);
+        diagramCanvas.childBoundsChanged(emptyMessage);
     }
 
 //    @Override
@@ -513,7 +1154,6 @@ public class ArgumentionFramework extends JLayeredPane {
 
         dim1.setSize(Math.max(dim1.width, dim2.width), Math.max(dim1.height, dim2.height));
 
-        int w = 0, h = 0, count = 0;
         int westOverflow = 0 , eastOverflow = 0;
         
         if(!arguments.isEmpty()){
@@ -521,15 +1161,24 @@ public class ArgumentionFramework extends JLayeredPane {
             eastOverflow = arguments.get(arguments.size()-1).getXOverflow();
         }
 
-        for (Argument a : arguments) {
-            Dimension pref = a.getPreferredSize();
-            w += pref.width;
-            h = Math.max(h, pref.height);
+        updatePlacement();
+
+        int w = (placementRightEdges.isEmpty() ? 0 : placementRightEdges.lastKey());
+        int h = (placementBottomEdges.isEmpty() ? 0 : placementBottomEdges.lastKey());
 
-            count++;
+        if (DiagramDebug.ENABLED) {
+            List<Rectangle> full = new ArrayList<>(arguments.size());
+            layoutStrategy.place(getArgumentSizes(true), 0, full);
+
+            int fullW = 0, fullH = 0;
+            for (Rectangle b : full) {
+                fullW = Math.max(fullW, b.x + b.width);
+                fullH = Math.max(fullH, b.y + b.height);
+            }
+            DiagramDebug.check("arguments size", new Dimension(w, h), new Dimension(fullW, fullH));
         }
 
-        return new Dimension((int) (Math.max(w + ((count - 1) * gap), dim1.width) * scaling) + 10 + westOverflow + eastOverflow, (int) (Math.max(h, dim1.height) * scaling) + 10);
+        return new Dimension((int) (Math.max(w, dim1.width) * scaling) + 10 + westOverflow + eastOverflow, (int) (Math.max(h, dim1.height) * scaling) + 10);
     }
 
     public Point getAFPositionOnFrame(Container target) {
@@ -592,16 +1241,16 @@ public class ArgumentionFramework extends JLayeredPane {
         }
 
         if (focused instanceof Argument) {
-            arguments.stream().filter((a) -> (a.containsArgument((Argument) focused))).forEachOrdered((a) -> {
-                diagramCanvas.setLayer(a, ARGUMENTS_ALT_LAYER);
-            });
+            Argument root = treeIndex.getRoot((Argument) focused);
+            if (root != null) {
+                diagramCanvas.setLayer(root, ARGUMENTS_ALT_LAYER);
+            }
         } else if (focused instanceof Attack) {
-            for (Attack at : attacks) {
-                if (at == focused) {
-                    diagramCanvas.setLayer(at, ATTACKS_ALT_LAYER);
-                    diagramCanvas.setLayer(at.getArgument1(), ARGUMENTS_ALT_LAYER);
-                    diagramCanvas.setLayer(at.getArgument2(), ARGUMENTS_ALT_LAYER);
-                }
+            Attack at = (Attack) focused;
+            if (isAttackInstance(at)) {
+                diagramCanvas.setLayer(at, ATTACKS_ALT_LAYER);
+                diagramCanvas.setLayer(at.getArgument1(), ARGUMENTS_ALT_LAYER);
+                diagramCanvas.setLayer(at.getArgument2(), ARGUMENTS_ALT_LAYER);
             }
         }
     }
@@ -615,16 +1264,16 @@ public class ArgumentionFramework extends JLayeredPane {
         }
 
         if (focused instanceof Argument) {
-            arguments.stream().filter((a) -> (a.containsArgument((Argument) focused))).forEachOrdered((a) -> {
-                diagramCanvas.setLayer(a, ARGUMENTS_DEFAULT_LAYER);
-            });
+            Argument root = treeIndex.getRoot((Argument) focused);
+            if (root != null) {
+                diagramCanvas.setLayer(root, ARGUMENTS_DEFAULT_LAYER);
+            }
         } else if (focused instanceof Attack) {
-            for (Attack at : attacks) {
-                if (at == focused) {
-                    diagramCanvas.setLayer(at, ATTACKS_DEFAULT_LAYER);
-                    diagramCanvas.setLayer(at.getArgument1(), ARGUMENTS_DEFAULT_LAYER);
-                    diagramCanvas.setLayer(at.getArgument2(), ARGUMENTS_DEFAULT_LAYER);
-                }
+            Attack at = (Attack) focused;
+            if (isAttackInstance(at)) {
+                diagramCanvas.setLayer(at, ATTACKS_DEFAULT_LAYER);
+                diagramCanvas.setLayer(at.getArgument1(), ARGUMENTS_DEFAULT_LAYER);
+                diagramCanvas.setLayer(at.getArgument2(), ARGUMENTS_DEFAULT_LAYER);
             }
         }
     }
@@ -648,13 +1297,7 @@ public class ArgumentionFramework extends JLayeredPane {
             focused = null;
         }
 
-        attacks.forEach((a) -> {
-            a.isTranslucent(!isFocus(a));
-        });
-        arguments.forEach((a) -> {
-            a.isTranslucent(!isFocus(a));
-        });
-
+        focusEngine.update(focused, focusedType, arguments, attacks.values());
     }
 
     /**
@@ -671,17 +1314,13 @@ public class ArgumentionFramework extends JLayeredPane {
         }
 
         focusedType = type;
-        attacks.forEach((a) -> {
-            a.isTranslucent(!isFocus(a));
-        });
-        arguments.forEach((a) -> {
-            boolean isFocus = isFocus(a);
-            a.isTranslucent(!isFocus);
+        focusEngine.update(focused, focusedType, arguments, attacks.values());
 
-            if (lockTooltipVisibility) {
-                a.setTooltipVisibility(isFocus);
-            }
-        });
+        if (lockTooltipVisibility) {
+            arguments.forEach((a) -> {
+                a.setTooltipVisibility(isFocus(a));
+            });
+        }
 
     }
 
@@ -689,6 +1328,65 @@ public class ArgumentionFramework extends JLayeredPane {
         return focusedType;
     }
 
+    /**
+     * Returns the line thickness multiplier.
+     *
+     * @return line thickness multiplier
+     */
+    public double getSizeMultiplier() {
+        return sizeMultiplier;
+    }
+
+    /**
+     * Copies the arguments and attacks into a plain model, with their current
+     * types and translucency, so the diagram can be rendered by a
+     * DiagramRenderer on any thread. The room the tooltips take is copied
+     * too, so arguments are placed as they are displayed, and so are the
+     * roots and attack the focus brings to the front. Must be called on the
+     * EDT.
+     *
+     * @return the diagram model
+     */
+    public DiagramModel toModel() {
+        Map<Argument, ArgumentModel> models = new IdentityHashMap<>();
+        List<ArgumentModel> roots = new ArrayList<>(arguments.size());
+        arguments.forEach((arg) -> {
+            roots.add(arg.toModel(models));
+        });
+
+        List<AttackModel> attackModels = new ArrayList<>(attacks.size());
+        List<AttackModel> frontAttacks = new ArrayList<>(1);
+        attacks.values().forEach((attck) -> {
+            AttackModel model = new AttackModel(models.get(attck.getArgument1()), models.get(attck.getArgument2()), attck.isBidirectional(), attck.isTranslucent());
+            attackModels.add(model);
+            if (attck == focused) {
+                frontAttacks.add(model);
+            }
+        });
+
+        // As moveFocusToFront layers them: only roots change layer, the last one moved is the lowest
+        List<ArgumentModel> frontRoots = new ArrayList<>(2);
+        if (focused instanceof Argument) {
+            Argument root = treeIndex.getRoot((Argument) focused);
+            if (root != null) {
+                frontRoots.add(models.get(root));
+            }
+        } else if (!frontAttacks.isEmpty()) {
+            Attack at = (Attack) focused;
+            if (treeIndex.getRoot(at.getArgument1()) == at.getArgument1()) {
+                frontRoots.add(models.get(at.getArgument1()));
+            }
+            if (treeIndex.getRoot(at.getArgument2()) == at.getArgument2() && at.getArgument2() != at.getArgument1()) {
+                frontRoots.add(models.get(at.getArgument2()));
+            }
+        }
+
+        int westOverflow = (arguments.isEmpty() ? 0 : arguments.get(0).getXOverflow());
+        int eastOverflow = (arguments.isEmpty() ? 0 : arguments.get(arguments.size() - 1).getXOverflow());
+
+        return new DiagramModel(roots, attackModels, westOverflow, eastOverflow, frontRoots, frontAttacks);
+    }
+
     /**
      * Sets the line multiplier to the ArgumentionFramework and it's components.
      *
@@ -699,6 +1397,7 @@ public class ArgumentionFramework extends JLayeredPane {
             sizeMultiplier = 1.0;
         }
         this.sizeMultiplier = sizeMultiplier;
+        palette.invalidate();
         this.arguments.forEach((arg) -> {
             arg.setSizeMultiplier(this.sizeMultiplier);
         });
@@ -731,6 +1430,7 @@ public class ArgumentionFramework extends JLayeredPane {
      */
     public ArgumentionFramework setAcceptedNonfocusedArgumentColor(Color ACCEPTED_NONFOCUSED_ARGUMENT_COLOR) {
         this.ACCEPTED_NONFOCUSED_ARGUMENT_COLOR = ACCEPTED_NONFOCUSED_ARGUMENT_COLOR;
+        palette.invalidate();
         fireForegroundUpdated();
         return this;
     }
@@ -750,6 +1450,7 @@ public class ArgumentionFramework extends JLayeredPane {
      */
     public ArgumentionFramework setAcceptedFocusedArgumentColor(Color ACCEPTED_FOCUSED_ARGUMENT_COLOR) {
         this.ACCEPTED_FOCUSED_ARGUMENT_COLOR = ACCEPTED_FOCUSED_ARGUMENT_COLOR;
+        palette.invalidate();
         fireForegroundUpdated();
         return this;
     }
@@ -769,6 +1470,7 @@ public class ArgumentionFramework extends JLayeredPane {
      */
     public ArgumentionFramework setRejectedNonfocusedArgumentColor(Color REJECTED_NONFOCUSED_ARGUMENT_COLOR) {
         this.REJECTED_NONFOCUSED_ARGUMENT_COLOR = REJECTED_NONFOCUSED_ARGUMENT_COLOR;
+        palette.invalidate();
         fireForegroundUpdated();
         return this;
     }
@@ -788,6 +1490,7 @@ public class ArgumentionFramework extends JLayeredPane {
      */
     public ArgumentionFramework setRejectedFocusedArgumentColor(Color REJECTED_FOCUSED_ARGUMENT_COLOR) {
         this.REJECTED_FOCUSED_ARGUMENT_COLOR = REJECTED_FOCUSED_ARGUMENT_COLOR;
+        palette.invalidate();
         fireForegroundUpdated();
         return this;
     }
@@ -809,24 +1512,63 @@ public class ArgumentionFramework extends JLayeredPane {
      */
     public void setFadeoff(float CLUSTER_FADEOFF) {
         this.CLUSTER_FADEOFF = CLUSTER_FADEOFF;
+        palette.invalidate();
+    }
+
+    /**
+     * Sets the background color. Translucent colors are blended with it.
+     *
+     * @param bg the background color
+     */
+    @Override
+    public void setBackground(Color bg) {
+        super.setBackground(bg);
+        // Called by the super constructor before the palette is created
+        if (palette != null) {
+            palette.invalidate();
+        }
+    }
+
+    /**
+     * Returns the cache of colors, strokes and borders of this framework.
+     *
+     * @return the palette
+     */
+    DiagramPalette getPalette() {
+        return palette;
     }
 
     /**
      * Clears the argumentation framework.
      */
     public void clear() {
-        this.attacks.forEach((attck) -> {
-            diagramCanvas.remove(attck);
+        layoutEngine.cancel();
+        this.attacks.values().forEach((attck) -> {
+            removeFromCanvas(attck);
             attck.clear();
         });
         this.attacks.clear();
+        this.outgoingAttacks.clear();
+        this.incomingAttacks.clear();
         this.arguments.forEach((arg) -> {
-            diagramCanvas.remove(arg);
+            removeFromCanvas(arg);
+            treeIndex.remove(arg);
             arg.clear();
         });
         this.arguments.clear();
+        argumentSizes.clear();
+        resizedArguments.clear();
+        relaidArguments.clear();
+        argumentPlacements.clear();
+        placementRightEdges.clear();
+        placementBottomEdges.clear();
+        placedArguments = 0;
+        firstMovedArgument = 0;
+        hoverIndex.clear();
+        hoverBounds.clear();
+        hovered.clear();
+        focusEngine.reset();
         focused = null;
-        newXPos = 0;
         emptyMessage.setVisible(true);
         this.revalidate();
         this.repaint();
@@ -855,22 +1597,80 @@ public class ArgumentionFramework extends JLayeredPane {
         int option = JOptionPane.showConfirmDialog(null, orderer.makeUI(), "Reorder the arguments.", JOptionPane.PLAIN_MESSAGE, -1, null);
 
         if (option == JOptionPane.OK_OPTION) {
-            Map<Integer, Integer> map = orderer.getList();
+            reorderArguments(orderer.getList());
+        }
+    }
+
+    /**
+     * Orders the arguments automatically, so attacks are short and cross few
+     * arguments. Arguments of the same attacks are pulled together by
+     * alternating barycenter and median sweeps over the attacks.
+     *
+     * @param timeBudgetMillis time after which no new sweep is started
+     */
+    public void autoOrderArguments(long timeBudgetMillis) {
+        Map<Argument, Integer> index = new IdentityHashMap<>();
+        for (int k = 0; k < arguments.size(); k++) {
+            index.put(arguments.get(k), k);
+        }
 
-            ArrayList<Argument> orderedArguments = new ArrayList<>(arguments.size());
+        int[] degree = new int[arguments.size()];
+        List<int[]> edges = new ArrayList<>(attacks.size());
+        attacks.values().forEach((attck) -> {
+            Integer r1 = index.get(treeIndex.getRoot(attck.getArgument1()));
+            Integer r2 = index.get(treeIndex.getRoot(attck.getArgument2()));
 
-            for (int k = 0; k < arguments.size(); k++) {
-                orderedArguments.add(k, arguments.get(map.get(k)));
+            if (r1 != null && r2 != null && !r1.equals(r2)) {
+                edges.add(new int[]{r1, r2});
+                degree[r1]++;
+                degree[r2]++;
             }
+        });
+
+        int[][] neighbours = new int[arguments.size()][];
+        for (int k = 0; k < neighbours.length; k++) {
+            neighbours[k] = new int[degree[k]];
+            degree[k] = 0;
+        }
+        edges.forEach((e) -> {
+            neighbours[e[0]][degree[e[0]]++] = e[1];
+            neighbours[e[1]][degree[e[1]]++] = e[0];
+        });
 
-            arguments = orderedArguments;
+        int[] order = new ArgumentOrdering(neighbours).order(timeBudgetMillis * 1000000L, Integer.MAX_VALUE);
 
-            repositionComponents();
-            revalidate();
-            repaint();
+        Map<Integer, Integer> map = new HashMap<>();
+        for (int k = 0; k < order.length; k++) {
+            map.put(k, order[k]);
+        }
+
+        reorderArguments(map);
+    }
+
+    /**
+     * Applies a new argument order and repositions the components.
+     *
+     * @param map for each new index, the current index of the argument
+     */
+    private void reorderArguments(Map<Integer, Integer> map) {
+        ArrayList<Argument> orderedArguments = new ArrayList<>(arguments.size());
+
+        for (int k = 0; k < arguments.size(); k++) {
+            orderedArguments.add(k, arguments.get(map.get(k)));
         }
+
+        arguments = orderedArguments;
+        placedArguments = 0;
+
+        repositionComponents();
+        revalidate();
+        repaint();
     }
 
+    /**
+     * Asks for an image file and exports the diagram to it in the
+     * background, showing the progress in a dialog that can cancel it.
+     */
     public void exportToImageFile() {
         JFileChooser fChooser = new JFileChooser();
         fChooser.setDialogType(JFileChooser.SAVE_DIALOG);
@@ -878,6 +1678,7 @@ public class ArgumentionFramework extends JLayeredPane {
         fChooser.setFileFilter(new FileNameExtensionFilter("PNG file", "png"));
         fChooser.addChoosableFileFilter(new FileNameExtensionFilter("JPG file", "jpg"));
         fChooser.addChoosableFileFilter(new FileNameExtensionFilter("GIF file", "gif"));
+        fChooser.addChoosableFileFilter(new FileNameExtensionFilter("SVG file", "svg"));
         if (fChooser.showSaveDialog(getParent()) == JFileChooser.APPROVE_OPTION) {
             File toSave = fChooser.getSelectedFile();
 
@@ -903,95 +1704,57 @@ public class ArgumentionFramework extends JLayeredPane {
                         toSave = new File(toSave.getAbsolutePath().concat(".gif"));
                     }
                     break;
+                case "SVG":
+                    if (!toSave.getName().endsWith("svg")) {
+                        toSave = new File(toSave.getAbsolutePath().concat(".svg"));
+                    }
+                    break;
             }
-            System.out.println(toSave);
 
-            FileOutputStream fOut = null;
             if (toSave.exists()) {
                 if (JOptionPane.showConfirmDialog(getParent(), toSave.getName() + " already exists. Do you want to override it?", "Confirm Save", JOptionPane.WARNING_MESSAGE) != JOptionPane.OK_OPTION) {
                     return;
                 }
-                try {
-                    toSave.createNewFile();
-                } catch (IOException ex) {
-                    return;
-                }
             }
 
-            try {
-                fOut = new FileOutputStream(toSave);
-
-                Dimension imgDim = new Dimension(getPreferredSize());
-
-                if (diagramColorLegend != null) {
-                    imgDim.width = Math.max(diagramColorLegend.getPreferredSize().width, imgDim.width);
-                    imgDim.height += diagramColorLegend.getPreferredSize().height + 2;
-                }
-
-                BufferedImage image = new BufferedImage(imgDim.width, imgDim.height, BufferedImage.TYPE_INT_RGB);
-                Graphics2D g = image.createGraphics();
-                g.setColor(getBackground());
-                g.fillRect(0, 0, image.getWidth(), image.getHeight());
-                g.translate(((imgDim.width - getPreferredSize().width) / 2), 0);
-                printAll(g);
-                g.translate(-((imgDim.width - getPreferredSize().width) / 2), 0);
-                if (diagramColorLegend != null) {
-                    g.setColor(Color.DARK_GRAY);
-//                    g.translate(5, 5);
-                    g.fillRect(0, getPreferredSize().height, image.getWidth(), 2);
-                    g.setColor(diagramColorLegend.getBackground());
-                    g.fillRect(0, getPreferredSize().height + 2, image.getWidth(), diagramColorLegend.getHeight());
-                    g.translate(((imgDim.width - diagramColorLegend.getWidth()) / 2), imgDim.getHeight() - diagramColorLegend.getPreferredSize().height);
-                    diagramColorLegend.printAll(g);
+            ProgressMonitor monitor = new ProgressMonitor(getParent(), "Exporting " + toSave.getName(), null, 0, 100);
+            // Polled, as the monitor only pops up and tells it was cancelled when its progress is set
+            Timer poll = new Timer(100, null);
+            DiagramExportTask task = exportToImageFile(toSave, (t) -> {
+                poll.stop();
+                monitor.close();
+                if (t.getError() != null) {
+                    JOptionPane.showMessageDialog(getParent(), "There was an error during save. Check if you have permission to write to the selected file.");
                 }
-                g.dispose();
-                ImageIO.write(image, toSave.getName().substring(toSave.getName().length() - 3, toSave.getName().length()), toSave);
-
-            } catch (FileNotFoundException ex) {
-                JOptionPane.showMessageDialog(getParent(), "There was an error during save. Check if you have permission to write to the selected file.");
-            } catch (IOException ex) {
-            } finally {
-                try {
-                    if (fOut != null) {
-                        fOut.close();
-                    }
-                } catch (IOException ex) {
+            });
+            poll.addActionListener((evt) -> {
+                if (monitor.isCanceled()) {
+                    task.cancel(true);
+                } else {
+                    monitor.setProgress(task.getProgress());
                 }
-            }
-
+            });
+            poll.start();
         }
     }
-}
-
-class ScaledJLayeredPane extends JLayeredPane{
-    private final ArgumentionFramework myFramework;
-
-    public ScaledJLayeredPane(ArgumentionFramework myFrameworkRef) {
-        super();
-        
-        setOpaque(true);
-        
-        this.myFramework = myFrameworkRef;
-        
-        this.myFramework.addComponentListener(new ComponentAdapter() {
-            @Override
-            public void componentResized(ComponentEvent e) {
-//                setSize(e.getComponent().getSize());
-                setBounds(myFramework.getDiagramOffset(), 0, e.getComponent().getWidth() - myFramework.getDiagramOffset(), e.getComponent().getHeight());
-            }
-        });
-    }
 
-    @Override
-    public void paint(Graphics g) {
-        Graphics2D g2D = (Graphics2D) g;
-        AffineTransform at = g2D.getTransform();
-
-//        g2D.translate(5, 5);
-        g2D.scale(myFramework.getScaling(), myFramework.getScaling());
-        super.paint(g);
+    /**
+     * Exports the diagram, and the color legend below it if it was created,
+     * to an image file in the background. The diagram is copied before this
+     * method returns, so it may change while the file is written. Must be
+     * called on the EDT.
+     *
+     * @param file the image file, overwritten if it exists. Its extension
+     * gives the format: png, jpg, gif or svg
+     * @param onDone called on the EDT when the export is done, cancelled or
+     * failed, or null
+     * @return the running export, which reports its progress and may be
+     * cancelled
+     */
+    public DiagramExportTask exportToImageFile(File file, Consumer<DiagramExportTask> onDone) {
+        DiagramExportTask task = new DiagramExportTask(this, diagramColorLegend, file, onDone);
+        task.execute();
 
-        g2D.setTransform(at);
+        return task;
     }
-    
 }
@@ -6,16 +6,19 @@ import utfpr.edu.swing.utils.SharpDashedBorder;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Container;
+import java.awt.Graphics;
 import java.awt.Point;
 import java.awt.Rectangle;
 import javax.swing.BorderFactory;
-import javax.swing.JLabel;
+import javax.swing.border.Border;
 import net.java.balloontip.BalloonTip;
 import net.java.balloontip.positioners.CenteredPositioner;
 import net.java.balloontip.positioners.LeftAbovePositioner;
 import net.java.balloontip.positioners.LeftBelowPositioner;
 import net.java.balloontip.styles.ToolTipBalloonStyle;
 import utfpr.edu.swing.utils.CustomBalloonTipVisibility;
+import utfpr.edu.swing.utils.ScriptedLabel;
+import utfpr.edu.swing.utils.ScriptedText;
 
 /**
  * Class that represents an atom from an argument as a swing.JComponent. An
@@ -23,13 +26,15 @@ import utfpr.edu.swing.utils.CustomBalloonTipVisibility;
  *
  * @author Henrique M R Jasinski
  */
-public class Atom extends JLabel implements ForegroundUpdateListenner {
+public class Atom extends ScriptedLabel implements ForegroundUpdateListenner {
 
     public static final int ACCEPTED_NONFOCUSED_ARGUMENT_TYPE = 0;
     public static final int ACCEPTED_FOCUSED_ARGUMENT_TYPE = 1;
     public static final int REJECTED_NONFOCUSED_ARGUMENT_TYPE = 2;
     public static final int REJECTED_FOCUSED_ARGUMENT_TYPE = 3;
 
+    static final String STRICT_PROPERTY = "strict";
+
     private boolean strict;
     private int type;
     private ArgumentionFramework myFramework;
@@ -90,47 +95,20 @@ public class Atom extends JLabel implements ForegroundUpdateListenner {
      * Changed the color based on the Atom type.
      */
     protected void updateForegroundByType() {
-        switch (type) {
-            case ACCEPTED_NONFOCUSED_ARGUMENT_TYPE:
-                if (myFramework != null) {
-                    borderColor = (myFramework.ACCEPTED_NONFOCUSED_ARGUMENT_COLOR);
-                } else {
-                    borderColor = (ArgumentionFramework.DEFAULT_ACCEPTED_NONFOCUSED_ARGUMENT_COLOR);
-                }
-                break;
-            case ACCEPTED_FOCUSED_ARGUMENT_TYPE:
-                if (myFramework != null) {
-                    borderColor = (myFramework.ACCEPTED_FOCUSED_ARGUMENT_COLOR);
-                } else {
-                    borderColor = (ArgumentionFramework.DEFAULT_ACCEPTED_FOCUSED_ARGUMENT_COLOR);
-                }
-                break;
-            case REJECTED_NONFOCUSED_ARGUMENT_TYPE:
-                if (myFramework != null) {
-                    borderColor = (myFramework.REJECTED_NONFOCUSED_ARGUMENT_COLOR);
-                } else {
-                    borderColor = (ArgumentionFramework.DEFAULT_REJECTED_NONFOCUSED_ARGUMENT_COLOR);
-                }
-                break;
-            case REJECTED_FOCUSED_ARGUMENT_TYPE:
-                if (myFramework != null) {
-                    borderColor = (myFramework.REJECTED_FOCUSED_ARGUMENT_COLOR);
-                } else {
-                    borderColor = (ArgumentionFramework.DEFAULT_REJECTED_FOCUSED_ARGUMENT_COLOR);
-                }
-                break;
-        }
+        DiagramPalette palette = DiagramPalette.of(myFramework);
 
-        if (translucent) {
-            borderColor = (ColorUtil.blend(borderColor, (myFramework == null ? ArgumentionFramework.DEFAULT_CLUSTER_BACKGROUND_COLOR : myFramework.getBackground()), (myFramework == null ? ArgumentionFramework.DEFAULT_CLUSTER_FADEOFF : myFramework.getFadeoff())));
+        Color color = palette.getTypeColor(type, translucent);
+        if (color != null) {
+            borderColor = color;
         }
 
-        setText(getText().replaceAll("#([0-9a-fA-F]){6}", (translucent ? "#" + Integer.toHexString(ColorUtil.blend(Color.BLACK, (myFramework == null ? ArgumentionFramework.DEFAULT_CLUSTER_BACKGROUND_COLOR : myFramework.getBackground()), (myFramework == null ? ArgumentionFramework.DEFAULT_CLUSTER_FADEOFF : myFramework.getFadeoff())).getRGB()).substring(2) : "#000000")));
+        if (getScriptedText().isScripted()) {
+            setForeground(palette.getTextColor(translucent));
+        }
 
-        if (!strict) {
-            this.setBorder(BorderFactory.createCompoundBorder(new SharpDashedBorder(borderColor, 0, (float) (1 * sizeMultiplier), BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0, new float[]{5}, 0), BorderFactory.createEmptyBorder(3, 3, 3, 3)));
-        } else {
-            this.setBorder(BorderFactory.createCompoundBorder(BorderFactory.createLineBorder(borderColor, (int) (1 * sizeMultiplier)), BorderFactory.createEmptyBorder(3, 3, 3, 3)));
+        Border border = palette.getAtomBorder(type, translucent, strict, sizeMultiplier);
+        if (border != null) {
+            this.setBorder(border);
         }
     }
 
@@ -173,7 +151,7 @@ public class Atom extends JLabel implements ForegroundUpdateListenner {
      * @param myFramework the argumentationframework reference
      */
     public Atom(String label, String tooltip, boolean strict, int type, ArgumentionFramework myFramework) {
-        super((label.matches("^([a-zA-Z0-9]*)(_([a-zA-Z0-9]*))?(\\^([a-zA-Z0-9]*))?") ? label.replaceAll("^([a-zA-Z0-9]*)(_([a-zA-Z0-9]*))?(\\^([a-zA-Z0-9]*))?", "<html><font color=#000000>$1<sub>$3</sub><sup>$5</sup></font></html>") : label));
+        super(ScriptedText.parse(label));
         this.strict = strict;
         this.type = type;
         this.myFramework = myFramework;
@@ -218,16 +196,76 @@ public class Atom extends JLabel implements ForegroundUpdateListenner {
     }
 
     /**
-     * Define if the Atom is strict.
+     * Define if the Atom is strict. Fires a "strict" property change, so the
+     * argument concluded by the Atom takes a new record.
      *
      * @param strict if the Atom is strict
      * @return this Atom
      */
     public Atom setStrict(boolean strict) {
+        boolean old = this.strict;
         this.strict = strict;
+        firePropertyChange(STRICT_PROPERTY, old, strict);
         return this;
     }
 
+    /**
+     * If the Atom is strict.
+     *
+     * @return true if the Atom is strict
+     */
+    boolean isStrict() {
+        return strict;
+    }
+
+    /**
+     * Sets every property that changes the Atom appearance at once, updating
+     * the colors and the border only once. Used when the Atom is a renderer.
+     *
+     * @param text the displayed text
+     * @param type atom type
+     * @param strict if the Atom is strict
+     * @param translucent if the atom is translucent
+     * @param sizeMultiplier line multiplier. Must be >= 1
+     */
+    void configure(ScriptedText text, int type, boolean strict, boolean translucent, double sizeMultiplier) {
+        setScriptedText(text);
+        this.type = type;
+        this.strict = strict;
+        this.translucent = translucent;
+        this.sizeMultiplier = Math.max(1.0, sizeMultiplier);
+        updateForegroundByType();
+    }
+
+    /**
+     * Returns the color of the Atom border.
+     *
+     * @return the border color
+     */
+    Color getBorderColor() {
+        return borderColor;
+    }
+
+    /**
+     * Paints the Atom. Below the full detail level the Atom is a box filled
+     * with the border color, without text. The detail level is taken from
+     * the argument the Atom concludes, if any.
+     *
+     * @param g graphics instance
+     */
+    @Override
+    public void paint(Graphics g) {
+        DetailLevel detail = (getParent() instanceof Argument ? ((Argument) getParent()).getDetailLevel() : DetailLevel.of(myFramework));
+
+        if (detail == DetailLevel.FULL) {
+            super.paint(g);
+            return;
+        }
+
+        g.setColor(borderColor);
+        g.fillRect(0, 0, getWidth(), getHeight());
+    }
+
     /**
      * Implements ForegroundUpdateListener
      */
@@ -238,40 +276,36 @@ public class Atom extends JLabel implements ForegroundUpdateListenner {
 
     /**
      * Returns the x position the argument in relation to the root argument. The
-     * root argument is an argument which parent is not an Argument.
+     * root argument is an argument which parent is not an Argument. Uses the
+     * parent argument's cached offset.
      *
      * @return the x position relative to the root
      */
     protected int getXToRoot() {
-        int x = 0;
-
         Container parent = getParent();
 
-        while (parent instanceof Argument) {
-            x += parent.getX();
-            parent = parent.getParent();
+        if (parent instanceof Argument) {
+            return ((Argument) parent).getXToRoot() + parent.getX();
         }
 
-        return x;
+        return 0;
     }
 
     /**
      * Returns the y position the argument in relation to the root argument. The
-     * root argument is an argument which parent is not an Argument.
+     * root argument is an argument which parent is not an Argument. Uses the
+     * parent argument's cached offset.
      *
      * @return the y position relative to the root
      */
     protected int getYToRoot() {
-        int y = 0;
-
         Container parent = getParent();
 
-        while (parent instanceof Argument) {
-            y += parent.getY();
-            parent = parent.getParent();
+        if (parent instanceof Argument) {
+            return ((Argument) parent).getYToRoot() + parent.getY();
         }
 
-        return y;
+        return 0;
     }
 
     void clear() {
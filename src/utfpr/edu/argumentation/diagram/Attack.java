@@ -1,7 +1,5 @@
 package utfpr.edu.argumentation.diagram;
 
-import utfpr.edu.swing.utils.ColorUtil;
-import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
@@ -11,8 +9,6 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
 import java.awt.geom.Point2D;
-import java.awt.image.BufferedImage;
-import java.util.Objects;
 import javax.swing.JPanel;
 
 /**
@@ -26,16 +22,16 @@ public class Attack extends JPanel {
 
     private Argument a1;
     private Argument a2;
+    private final AttackKey key;
     private Argument leftMost;
     private Argument rightMost;
     private boolean bidirectional = false;
     private Attack thisRef;
 
-    private BufferedImage img;
     private boolean lockRedraw = false;
     private boolean transparent = false;
-    private boolean dirty = true;
     private char type = ' ';
+    private AttackRenderer renderer;
 
     /**
      * Constructor of an Attack. Is interpreted as arg1 attacks arg2. If
@@ -60,6 +56,7 @@ public class Attack extends JPanel {
 
         this.a1 = arg1;
         this.a2 = arg2;
+        this.key = new AttackKey(arg1, arg2);
 
         if ((arg1.getXToRoot() + arg1.getX()) < (arg2.getXToRoot() + arg2.getX())) {
             leftMost = arg1;
@@ -106,7 +103,6 @@ public class Attack extends JPanel {
 //                }
 //            }
 //        });
-        img = null;
     }
 
     public void revalidadeDirection() {
@@ -129,12 +125,7 @@ public class Attack extends JPanel {
             }
         }
 
-        if (img != null) {
-            redraw |= img.getWidth() != getProperWidth();
-        }
-
         if (redraw) {
-            dirty = true;
             revalidate();
             repaint();
         }
@@ -152,43 +143,39 @@ public class Attack extends JPanel {
         return this;
     }
 
-    private boolean onTop(int x, int y) {
-        if (img == null) {
-            return false;
-        }
-        if (img.getWidth() - 1 < x || img.getHeight() - 1 < y) {
-            return false;
-        }
+    /**
+     * Returns the current geometry of the attack arrow, in the same
+     * coordinates as the attack bounds.
+     *
+     * @return the attack shape
+     */
+    AttackShape getShape() {
+        Point2D lMP = new Point(getWestX(), getWestY());
+        Point2D rMP = new Point(getEastX(), getEastY());
 
-        return img.getRGB(x, y) != 16777216;
+        return new AttackShape(lMP, rMP, type == '<' || bidirectional, type == '>' || bidirectional);
     }
 
-    private boolean onTop(int x, int y, Rectangle bound) {
-        int correctedX = x - bound.x;
-        int correctedY = y - bound.y;
-
-        if (correctedX < 0 || correctedY < 0) {
-            return false;
-        }
-
-        if (img == null) {
-            return false;
-        }
-        if (img.getWidth() - 1 < correctedX || img.getHeight() - 1 < correctedY) {
-            return false;
-        }
-
-        return img.getRGB(correctedX, correctedY) != 16777216;
+    public boolean mouseMoved(int mouseX, int mouseY) {
+        return mouseOver(myFramework.unScaledX(mouseX), myFramework.unScaledY(mouseY));
     }
 
-    public boolean mouseMoved(int mouseX, int mouseY) {
-        if (onTop(myFramework.unScaledX(mouseX), myFramework.unScaledY(mouseY), getBounds())) {
+    /**
+     * Focus this attack if (x, y) is over it.
+     *
+     * @param x unscaled x position
+     * @param y unscaled y position
+     * @return true if (x, y) is over the attack, false otherwise
+     */
+    boolean mouseOver(int x, int y) {
+        if (getShape().contains(x, y)) {
             if (!lockRedraw) {
                 lockRedraw = true;
 
 //                if (getParent() instanceof ArgumentionFramework) {
-                if (getParent() instanceof ScaledJLayeredPane) {
-                    ((ArgumentionFramework) getParent().getParent()).setFocus(thisRef);
+                ScaledJLayeredPane canvas = ScaledJLayeredPane.canvasOf(this);
+                if (canvas != null) {
+                    canvas.getFramework().setFocus(thisRef);
                 }
             }
             return true;
@@ -233,6 +220,15 @@ public class Attack extends JPanel {
         return a2;
     }
 
+    /**
+     * Returns the unordered key of this attack's arguments.
+     *
+     * @return the attack key
+     */
+    AttackKey getKey() {
+        return key;
+    }
+
     /**
      * Tests if arg is subargument of this.a1 or this.a2.
      *
@@ -288,16 +284,52 @@ public class Attack extends JPanel {
     }
 
     /**
-     * Auxiliary to the equals override.
+     * Auxiliary to the equals override. Symmetric on both arguments, so it
+     * does not change when the attack direction is revalidated.
      *
      * @return
      */
     @Override
     public int hashCode() {
-        int hash = 5;
-        hash = 89 * hash + Objects.hashCode(this.leftMost);
-        hash = 89 * hash + Objects.hashCode(this.rightMost);
-        return hash;
+        return key.hashCode();
+    }
+
+    /**
+     * Returns the x position where the line leaves the leftmost argument.
+     *
+     * @return west end x position
+     */
+    private int getWestX() {
+        return leftMost.getConclusionEastXBorder() + leftMost.getX();
+    }
+
+    /**
+     * Returns the x position where the line reaches the rightmost argument.
+     *
+     * @return east end x position
+     */
+    private int getEastX() {
+        return rightMost.getConclusionWeastXBorder() + rightMost.getX();
+    }
+
+    /**
+     * Returns the y position where the line leaves the leftmost argument,
+     * relative to the canvas like the root it belongs to.
+     *
+     * @return west end y position
+     */
+    private int getWestY() {
+        return leftMost.getYToRoot() + leftMost.getY() + leftMost.getConclusionMiddleYPosition();
+    }
+
+    /**
+     * Returns the y position where the line reaches the rightmost argument,
+     * relative to the canvas like the root it belongs to.
+     *
+     * @return east end y position
+     */
+    private int getEastY() {
+        return rightMost.getYToRoot() + rightMost.getY() + rightMost.getConclusionMiddleYPosition();
     }
 
     /**
@@ -306,7 +338,7 @@ public class Attack extends JPanel {
      * @return components proper y position
      */
     public int getProperX() {
-        return leftMost.getConclusionEastXBorder() + leftMost.getX();
+        return getProperBounds(getWestX(), getWestY(), getEastX(), getEastY()).x;
     }
 
     /**
@@ -315,7 +347,7 @@ public class Attack extends JPanel {
      * @return components proper x position
      */
     public int getProperY() {
-        return Math.min(leftMost.getConclusionMiddleYPosition() + leftMost.getY(), rightMost.getConclusionMiddleYPosition() + rightMost.getY()) - 5;
+        return getProperBounds(getWestX(), getWestY(), getEastX(), getEastY()).y;
     }
 
     /**
@@ -324,7 +356,7 @@ public class Attack extends JPanel {
      * @return components proper width
      */
     public int getProperWidth() {
-        return (rightMost.getConclusionWeastXBorder() + rightMost.getX()) - (leftMost.getConclusionEastXBorder() + leftMost.getX());
+        return getProperBounds(getWestX(), getWestY(), getEastX(), getEastY()).width;
     }
 
     /**
@@ -333,11 +365,64 @@ public class Attack extends JPanel {
      * @return components proper height
      */
     public int getProperHeight() {
-        int max = (leftMost.getConclusionMiddleYPosition() + leftMost.getY()) - (rightMost.getConclusionMiddleYPosition() + rightMost.getY());
-        if (max < 0) {
-            max *= -1;
+        return getProperBounds(getWestX(), getWestY(), getEastX(), getEastY()).height;
+    }
+
+    /**
+     * Returns the bounds of an attack line from its end points. Arguments in
+     * different rows may overlap horizontally, in which case the line runs
+     * backwards and the arrow heads need room on both sides. Used by the
+     * LayoutEngine to compute the bounds without the components.
+     *
+     * @param westX x position where the line leaves the leftmost argument
+     * @param westY y position where the line leaves the leftmost argument
+     * @param eastX x position where the line reaches the rightmost argument
+     * @param eastY y position where the line reaches the rightmost argument
+     * @return the attack bounds
+     */
+    static Rectangle getProperBounds(int westX, int westY, int eastX, int eastY) {
+        int xMargin = (eastX >= westX ? 0 : AttackShape.ARROW_SIZE / 2);
+
+        return new Rectangle(Math.min(westX, eastX) - xMargin, Math.min(westY, eastY) - 5, Math.abs(eastX - westX) + (2 * xMargin), Math.abs(westY - eastY) + 10);
+    }
+
+    /**
+     * Sets the attack bounds, keeping the canvas paint index up to date.
+     *
+     * @param x the new x position
+     * @param y the new y position
+     * @param width the new width
+     * @param height the new height
+     */
+    @Override
+    public void setBounds(int x, int y, int width, int height) {
+        super.setBounds(x, y, width, height);
+
+        ScaledJLayeredPane canvas = ScaledJLayeredPane.canvasOf(this);
+        if (canvas != null) {
+            canvas.childBoundsChanged(this);
+        }
+    }
+
+    /**
+     * Repaints a region of the attack. A stamped attack is not a child of the
+     * canvas, so the canvas repaints the region for it.
+     *
+     * @param tm unused
+     * @param x x position of the region
+     * @param y y position of the region
+     * @param width region width
+     * @param height region height
+     */
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+        ScaledJLayeredPane canvas = ScaledJLayeredPane.canvasOf(this);
+        if (canvas != null && getParent() != canvas) {
+            canvas.repaintStamp(this, x, y, width, height);
+            return;
         }
-        return max + 10;
+
+        super.repaint(tm, x, y, width, height);
     }
 
     /**
@@ -358,50 +443,26 @@ public class Attack extends JPanel {
         }
 
         Graphics2D g2d = (Graphics2D) g.create();
+        g2d.translate(-getX(), -getY());
 
-        if (img != null && !dirty) {
-            g2d.drawImage(img, 0, 0, this);
-            return;
-        }
-
-        img = new BufferedImage(this.getWidth(), this.getHeight(), BufferedImage.TYPE_INT_ARGB);
-
-        Point2D lMP = new Point(leftMost.getConclusionEastXBorder() + leftMost.getX(), leftMost.getConclusionMiddleYPosition() + leftMost.getY());
-        Point2D rMP = new Point(rightMost.getConclusionWeastXBorder() + rightMost.getX(), rightMost.getConclusionMiddleYPosition() + rightMost.getY());
-
-        double distance = lMP.distance(rMP);
-
-        Graphics2D g2dBuffer = img.createGraphics();
-
-        int posAx = 0;
-        int posAy = (int) lMP.getY() - this.getY() - 5;
-        int trAxSize = 10;
-        int trAxMidd = 4;
-
-        g2dBuffer.setPaint(new Color(1, 1, 1, 1));
-        g2dBuffer.fillRect(0, 0, img.getWidth(), img.getHeight());
-
-        g2dBuffer.setPaint((transparent ? ColorUtil.blend(getForeground(), (myFramework == null ? ArgumentionFramework.DEFAULT_CLUSTER_BACKGROUND_COLOR : myFramework.getBackground()), (myFramework == null ? ArgumentionFramework.DEFAULT_CLUSTER_FADEOFF : myFramework.getFadeoff())) : getForeground()));
-
-        g2dBuffer.translate(0, posAy);
-        g2dBuffer.rotate(Math.atan2((rMP.getY() - lMP.getY()), rMP.getX() - lMP.getX()));
-
-        if (type == '<' || bidirectional) {
-            g2dBuffer.fillPolygon(new int[]{trAxSize + posAx, posAx, trAxSize + posAx}, new int[]{0, trAxMidd, trAxSize}, 3);
-        }
-
-        posAx = (int) (distance - trAxSize) - 1;
-
-        if (type == '>' || bidirectional) {
-            g2dBuffer.fillPolygon(new int[]{trAxSize + posAx, posAx, posAx}, new int[]{trAxMidd, 0, trAxSize}, 3);
+        // Kept for the next paint, as the canvas keeps its own
+        if (renderer == null) {
+            renderer = new AttackRenderer();
         }
+        renderer.begin(DetailLevel.of(cluster));
+        renderer.add(this);
+        renderer.paint(g2d);
 
-        g2dBuffer.setStroke(new BasicStroke(3f));
-        g2dBuffer.drawLine((type == '<' || bidirectional ? trAxSize : 1) + 1, 4, (int) (distance - (type == '>' || bidirectional ? trAxSize : 0)) - 2, 4);
-
-        g2d.drawImage(img, 0, 0, this);
+        g2d.dispose();
+    }
 
-        dirty = false;
+    /**
+     * Returns the color the attack is painted with.
+     *
+     * @return the line color
+     */
+    Color getLineColor() {
+        return (transparent ? DiagramPalette.of(myFramework).getTranslucent(getForeground()) : getForeground());
     }
 
     /**
@@ -413,13 +474,21 @@ public class Attack extends JPanel {
 
         if (this.transparent != translucent) {
             this.transparent = translucent;
-            dirty = true;
 
             repaint();
         }
 
     }
 
+    /**
+     * If the Attack is currently translucent.
+     *
+     * @return true if the attack is translucent
+     */
+    boolean isTranslucent() {
+        return transparent;
+    }
+
     public void clear() {
 
     }
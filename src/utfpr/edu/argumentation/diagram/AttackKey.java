@@ -0,0 +1,57 @@
+package utfpr.edu.argumentation.diagram;
+
+/**
+ * Immutable, unordered pair of arguments that identifies an attack. Two keys
+ * are equal if they refer to the same argument instances, in any order, so
+ * an attack and its inverse share the same key.
+ *
+ * @author Henrique M R Jasinski
+ */
+final class AttackKey {
+
+    private final Argument first;
+    private final Argument second;
+    private final int hash;
+
+    /**
+     * Constructor.
+     *
+     * @param first first argument
+     * @param second second argument
+     */
+    AttackKey(Argument first, Argument second) {
+        this.first = first;
+        this.second = second;
+        this.hash = System.identityHashCode(first) + System.identityHashCode(second);
+    }
+
+    /**
+     * Tests if obj is a key for the same pair of arguments.
+     *
+     * @param obj tested object
+     * @return true if both keys refer to the same arguments
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof AttackKey)) {
+            return false;
+        }
+
+        AttackKey other = (AttackKey) obj;
+
+        return (first == other.first && second == other.second) || (first == other.second && second == other.first);
+    }
+
+    /**
+     * Symmetric hash of both arguments.
+     *
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
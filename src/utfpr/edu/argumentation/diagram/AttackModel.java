@@ -0,0 +1,85 @@
+package utfpr.edu.argumentation.diagram;
+
+/**
+ * Plain description of an attack between two arguments of a DiagramModel,
+ * without any Swing component. Is interpreted as arg1 attacks arg2. Instances
+ * are immutable and may be shared between threads.
+ *
+ * @author Henrique M R Jasinski
+ */
+public final class AttackModel {
+
+    private final ArgumentModel a1;
+    private final ArgumentModel a2;
+    private final boolean bidirectional;
+    private final boolean translucent;
+
+    /**
+     * Constructor of an attack that is not bidirectional nor translucent.
+     *
+     * @param arg1 first argument
+     * @param arg2 second argument
+     */
+    public AttackModel(ArgumentModel arg1, ArgumentModel arg2) {
+        this(arg1, arg2, false, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param arg1 first argument
+     * @param arg2 second argument
+     * @param bidirectional if the attack is bidirectional
+     * @param translucent if the attack is painted translucent
+     */
+    public AttackModel(ArgumentModel arg1, ArgumentModel arg2, boolean bidirectional, boolean translucent) {
+        if (arg1 == null || arg2 == null) {
+            throw new NullPointerException("Argument a1 and a2 can not be null");
+        }
+
+        if (arg1 == arg2) {
+            throw new IllegalArgumentException("Arguments a1 and a2 must be different");
+        }
+
+        this.a1 = arg1;
+        this.a2 = arg2;
+        this.bidirectional = bidirectional;
+        this.translucent = translucent;
+    }
+
+    /**
+     * Returns the first argument.
+     *
+     * @return first argument
+     */
+    public ArgumentModel getArgument1() {
+        return a1;
+    }
+
+    /**
+     * Returns the second argument.
+     *
+     * @return second argument
+     */
+    public ArgumentModel getArgument2() {
+        return a2;
+    }
+
+    /**
+     * If the attack is bidirectional.
+     *
+     * @return true if the attack is bidirectional, false otherwise
+     */
+    public boolean isBidirectional() {
+        return bidirectional;
+    }
+
+    /**
+     * If the attack is painted translucent.
+     *
+     * @return true if the attack is translucent
+     */
+    public boolean isTranslucent() {
+        return translucent;
+    }
+}
@@ -0,0 +1,257 @@
+package utfpr.edu.argumentation.diagram;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Paints attacks as vector paths, without any backing raster. Attacks are
+ * collected with add and grouped by color, then paint draws every group with
+ * one fill for the arrow heads and one draw for the lines. An instance must
+ * be used by one thread at a time; the canvas uses its own from the event
+ * dispatch thread.
+ *
+ * @author Henrique M R Jasinski
+ */
+final class AttackRenderer {
+
+    private static final BasicStroke LINE_STROKE = new BasicStroke(AttackShape.LINE_WIDTH);
+    private static final BasicStroke SIMPLIFIED_LINE_STROKE = new BasicStroke(1f);
+
+    private final Map<Color, Path2D.Float> lines = new LinkedHashMap<>();
+    private final Map<Color, Path2D.Float> heads = new LinkedHashMap<>();
+    private DetailLevel detail = DetailLevel.FULL;
+
+    /**
+     * Starts a new batch, dropping every collected attack.
+     *
+     * @param detail detail level the batch is painted with
+     */
+    void begin(DetailLevel detail) {
+        this.detail = detail;
+
+        lines.values().forEach((path) -> {
+            path.reset();
+        });
+        heads.values().forEach((path) -> {
+            path.reset();
+        });
+    }
+
+    /**
+     * Makes the attacks of a color painted before the colors that are not
+     * reserved yet, whether attacks of that color are added or not. Colors
+     * are otherwise painted in the order their first attack is added.
+     *
+     * @param color the line color
+     */
+    void reserve(Color color) {
+        lines.computeIfAbsent(color, (c) -> (new Path2D.Float()));
+    }
+
+    /**
+     * Adds an attack to the batch. Coordinates are the unscaled canvas
+     * coordinates.
+     *
+     * @param attack the attack
+     */
+    void add(Attack attack) {
+        add(attack.getShape(), attack.getLineColor());
+    }
+
+    /**
+     * Adds an attack arrow to the batch. Coordinates are the unscaled canvas
+     * coordinates.
+     *
+     * @param shape the attack geometry
+     * @param color the line color
+     */
+    void add(AttackShape shape, Color color) {
+        Path2D.Float line = lines.computeIfAbsent(color, (c) -> (new Path2D.Float()));
+
+        if (detail == DetailLevel.FULL) {
+            shape.appendTo(line, heads.computeIfAbsent(color, (c) -> (new Path2D.Float())));
+        } else {
+            shape.appendCenterLine(line);
+        }
+    }
+
+    /**
+     * Paints every attack added since begin.
+     *
+     * @param g2d graphics instance, in canvas coordinates
+     */
+    void paint(Graphics2D g2d) {
+        lines.forEach((color, line) -> {
+            if (line.getCurrentPoint() == null) {
+                return;
+            }
+
+            g2d.setPaint(color);
+
+            Path2D.Float head = heads.get(color);
+            if (head != null && head.getCurrentPoint() != null) {
+                g2d.fill(head);
+            }
+
+            g2d.setStroke(detail == DetailLevel.FULL ? LINE_STROKE : SIMPLIFIED_LINE_STROKE);
+            g2d.draw(line);
+        });
+    }
+
+    /**
+     * Paints every attack added since begin as horizontal spans of whole
+     * pixels. A pixel is painted if its center is inside the stroked line or
+     * the arrow head. Spans are computed in scaled canvas coordinates, before
+     * the integer translation of g2d, so they do not depend on the clip nor
+     * on the translation: a diagram painted in tiles has the same pixels as
+     * when painted at once, which is not true of the Java2D rasterizer. Lines
+     * are at least one pixel wide.
+     *
+     * Falls back to paint when g2d is rotated, sheared or not translated by
+     * whole pixels.
+     *
+     * @param g2d graphics instance, in canvas coordinates
+     */
+    void paintSpans(Graphics2D g2d) {
+        AffineTransform at = g2d.getTransform();
+        double tx = Math.rint(at.getTranslateX());
+        double ty = Math.rint(at.getTranslateY());
+        if ((at.getType() & ~(AffineTransform.TYPE_TRANSLATION | AffineTransform.TYPE_UNIFORM_SCALE)) != 0
+                || at.getScaleX() <= 0 || Math.abs(at.getTranslateX() - tx) > 1e-6 || Math.abs(at.getTranslateY() - ty) > 1e-6) {
+            Graphics2D g = (Graphics2D) g2d.create();
+            paint(g);
+            g.dispose();
+            return;
+        }
+
+        double scale = at.getScaleX();
+        double halfWidth = Math.max(1, (detail == DetailLevel.FULL ? AttackShape.LINE_WIDTH : 1f) * scale) / 2;
+
+        Graphics2D g = (Graphics2D) g2d.create();
+        g.setTransform(AffineTransform.getTranslateInstance(tx, ty));
+        Rectangle clip = g.getClipBounds();
+        double[] polygon = new double[8];
+        float[] coords = new float[6];
+
+        lines.forEach((color, line) -> {
+            if (line.getCurrentPoint() == null) {
+                return;
+            }
+
+            g.setColor(color);
+
+            Path2D.Float head = heads.get(color);
+            if (head != null && head.getCurrentPoint() != null) {
+                int n = 0;
+                for (PathIterator it = head.getPathIterator(null); !it.isDone(); it.next()) {
+                    if (it.currentSegment(coords) == PathIterator.SEG_CLOSE) {
+                        fillConvex(g, polygon, n, clip);
+                        n = 0;
+                    } else {
+                        polygon[n++] = coords[0] * scale;
+                        polygon[n++] = coords[1] * scale;
+                    }
+                }
+            }
+
+            double x0 = 0;
+            double y0 = 0;
+            for (PathIterator it = line.getPathIterator(null); !it.isDone(); it.next()) {
+                if (it.currentSegment(coords) == PathIterator.SEG_MOVETO) {
+                    x0 = coords[0] * scale;
+                    y0 = coords[1] * scale;
+                } else {
+                    double x1 = coords[0] * scale;
+                    double y1 = coords[1] * scale;
+                    double length = Math.hypot(x1 - x0, y1 - y0);
+                    if (length > 0) {
+                        // Square caps: the line is extended by half its width at both ends
+                        double dx = (x1 - x0) / length * halfWidth;
+                        double dy = (y1 - y0) / length * halfWidth;
+                        polygon[0] = x0 - dx + dy;
+                        polygon[1] = y0 - dy - dx;
+                        polygon[2] = x1 + dx + dy;
+                        polygon[3] = y1 + dy - dx;
+                        polygon[4] = x1 + dx - dy;
+                        polygon[5] = y1 + dy + dx;
+                        polygon[6] = x0 - dx - dy;
+                        polygon[7] = y0 - dy + dx;
+                        fillConvex(g, polygon, 8, clip);
+                    }
+                    x0 = x1;
+                    y0 = y1;
+                }
+            }
+        });
+
+        g.dispose();
+    }
+
+    /**
+     * Fills the pixels whose centers are inside a convex polygon, one span
+     * per row. Rows outside the clip are skipped, and spans are cut to the
+     * clip columns.
+     *
+     * @param g graphics instance, translated by whole pixels only
+     * @param polygon x and y of each vertex
+     * @param n number of coordinates, twice the number of vertices
+     * @param clip clip bounds of g, or null
+     */
+    private static void fillConvex(Graphics2D g, double[] polygon, int n, Rectangle clip) {
+        double minX = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int k = 0; k < n; k += 2) {
+            minX = Math.min(minX, polygon[k]);
+            maxX = Math.max(maxX, polygon[k]);
+            minY = Math.min(minY, polygon[k + 1]);
+            maxY = Math.max(maxY, polygon[k + 1]);
+        }
+
+        int firstColumn = (int) Math.ceil(minX - 0.5);
+        int endColumn = (int) Math.ceil(maxX - 0.5);
+        int firstRow = (int) Math.ceil(minY - 0.5);
+        int lastRow = (int) Math.ceil(maxY - 0.5) - 1;
+        if (clip != null) {
+            firstColumn = Math.max(firstColumn, clip.x);
+            endColumn = Math.min(endColumn, clip.x + clip.width);
+            firstRow = Math.max(firstRow, clip.y);
+            lastRow = Math.min(lastRow, clip.y + clip.height - 1);
+        }
+        if (firstColumn >= endColumn) {
+            return;
+        }
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            double y = row + 0.5;
+            double left = Double.POSITIVE_INFINITY;
+            double right = Double.NEGATIVE_INFINITY;
+
+            for (int k = 0; k < n; k += 2) {
+                double ax = polygon[k];
+                double ay = polygon[k + 1];
+                double bx = polygon[(k + 2) % n];
+                double by = polygon[(k + 3) % n];
+                if ((ay <= y && y < by) || (by <= y && y < ay)) {
+                    double x = ax + (y - ay) * (bx - ax) / (by - ay);
+                    left = Math.min(left, x);
+                    right = Math.max(right, x);
+                }
+            }
+
+            int first = Math.max((int) Math.ceil(left - 0.5), firstColumn);
+            int last = Math.min((int) Math.ceil(right - 0.5), endColumn);
+            if (first < last) {
+                g.fillRect(first, row, last - first, 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package utfpr.edu.argumentation.diagram;
+
+import java.awt.Rectangle;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+
+/**
+ * Analytic geometry of an attack arrow. The arrow is described in a local
+ * frame whose origin is 5 pixels above the west end point and whose x axis
+ * points to the east end point, exactly as the Attack is painted. Points are
+ * tested against the line and the arrow heads with a few float operations,
+ * without rasterizing the attack.
+ *
+ * @author Henrique M R Jasinski
+ */
+final class AttackShape {
+
+    static final int ARROW_SIZE = 10;
+    static final int ARROW_MIDDLE = 4;
+    static final float LINE_WIDTH = 3f;
+    static final float PICK_TOLERANCE = 2f;
+
+    private final double originX;
+    private final double originY;
+    private final double angle;
+    private final double cos;
+    private final double sin;
+    private final double length;
+    private final boolean westArrow;
+    private final boolean eastArrow;
+
+    /**
+     * Constructor.
+     *
+     * @param west west end point, the east border of the leftmost conclusion
+     * @param east east end point, the west border of the rightmost conclusion
+     * @param westArrow if there is an arrow head at the west end
+     * @param eastArrow if there is an arrow head at the east end
+     */
+    AttackShape(Point2D west, Point2D east, boolean westArrow, boolean eastArrow) {
+        this.originX = west.getX();
+        this.originY = west.getY() - 5;
+        this.length = west.distance(east);
+        this.westArrow = westArrow;
+        this.eastArrow = eastArrow;
+
+        this.angle = Math.atan2(east.getY() - west.getY(), east.getX() - west.getX());
+        this.cos = Math.cos(angle);
+        this.sin = Math.sin(angle);
+    }
+
+    /**
+     * Returns the x position of the local frame origin.
+     *
+     * @return unscaled x position
+     */
+    double getOriginX() {
+        return originX;
+    }
+
+    /**
+     * Returns the y position of the local frame origin.
+     *
+     * @return unscaled y position
+     */
+    double getOriginY() {
+        return originY;
+    }
+
+    /**
+     * Returns the rotation of the local frame.
+     *
+     * @return angle in radians
+     */
+    double getAngle() {
+        return angle;
+    }
+
+    /**
+     * Returns the distance between both end points.
+     *
+     * @return arrow length
+     */
+    double getLength() {
+        return length;
+    }
+
+    /**
+     * If there is an arrow head at the west end.
+     *
+     * @return true if the west end has an arrow head
+     */
+    boolean hasWestArrow() {
+        return westArrow;
+    }
+
+    /**
+     * If there is an arrow head at the east end.
+     *
+     * @return true if the east end has an arrow head
+     */
+    boolean hasEastArrow() {
+        return eastArrow;
+    }
+
+    /**
+     * Returns the local x position where the line starts.
+     *
+     * @return line start
+     */
+    int getLineStart() {
+        return (westArrow ? ARROW_SIZE : 1) + 1;
+    }
+
+    /**
+     * Returns the local x position where the line ends.
+     *
+     * @return line end
+     */
+    int getLineEnd() {
+        return (int) (length - (eastArrow ? ARROW_SIZE : 0)) - 2;
+    }
+
+    /**
+     * Returns the local x position of the east arrow head base.
+     *
+     * @return east arrow head base
+     */
+    int getEastArrowBase() {
+        return (int) (length - ARROW_SIZE) - 1;
+    }
+
+    /**
+     * Appends the line and the arrow heads, in unscaled coordinates. The line
+     * must be drawn with a LINE_WIDTH stroke and the heads must be filled.
+     *
+     * @param line path that receives the line
+     * @param heads path that receives the arrow heads
+     */
+    void appendTo(Path2D line, Path2D heads) {
+        moveTo(line, getLineStart(), ARROW_MIDDLE);
+        lineTo(line, getLineEnd(), ARROW_MIDDLE);
+
+        if (westArrow) {
+            moveTo(heads, ARROW_SIZE, 0);
+            lineTo(heads, 0, ARROW_MIDDLE);
+            lineTo(heads, ARROW_SIZE, ARROW_SIZE);
+            heads.closePath();
+        }
+
+        if (eastArrow) {
+            int base = getEastArrowBase();
+            moveTo(heads, base + ARROW_SIZE, ARROW_MIDDLE);
+            lineTo(heads, base, 0);
+            lineTo(heads, base, ARROW_SIZE);
+            heads.closePath();
+        }
+    }
+
+    /**
+     * Returns the bounds of the line end points and of the arrow heads, in
+     * unscaled coordinates. The stroked line exceeds them by half its width.
+     *
+     * @return the bounds
+     */
+    Rectangle getBounds() {
+        Path2D.Double path = new Path2D.Double();
+        appendTo(path, path);
+        appendCenterLine(path);
+
+        return path.getBounds();
+    }
+
+    /**
+     * Appends a single line joining both end points, in unscaled coordinates.
+     *
+     * @param line path that receives the line
+     */
+    void appendCenterLine(Path2D line) {
+        moveTo(line, 0, ARROW_MIDDLE);
+        lineTo(line, (int) length, ARROW_MIDDLE);
+    }
+
+    private void moveTo(Path2D path, double u, double v) {
+        path.moveTo(originX + (u * cos) - (v * sin), originY + (u * sin) + (v * cos));
+    }
+
+    private void lineTo(Path2D path, double u, double v) {
+        path.lineTo(originX + (u * cos) - (v * sin), originY + (u * sin) + (v * cos));
+    }
+
+    /**
+     * Tests if a point is over the line or one of the arrow heads.
+     *
+     * @param x unscaled x position
+     * @param y unscaled y position
+     * @return true if the point hits the attack, false otherwise
+     */
+    boolean contains(double x, double y) {
+        double dx = x - originX;
+        double dy = y - originY;
+
+        // Rotate the point into the local frame
+        double u = dx * cos + dy * sin;
+        double v = -dx * sin + dy * cos;
+
+        float halfWidth = LINE_WIDTH / 2 + PICK_TOLERANCE;
+        if (u >= getLineStart() - halfWidth && u <= getLineEnd() + halfWidth && Math.abs(v - ARROW_MIDDLE) <= halfWidth) {
+            return true;
+        }
+
+        if (westArrow && inArrowHead(ARROW_SIZE - u, v)) {
+            return true;
+        }
+
+        return eastArrow && inArrowHead(u - getEastArrowBase(), v);
+    }
+
+    /**
+     * Tests a point against an arrow head, given the distance from its base
+     * towards the apex.
+     *
+     * @param fromBase distance from the base
+     * @param v local y position
+     * @return true if the point is inside the head
+     */
+    private static boolean inArrowHead(double fromBase, double v) {
+        if (fromBase < -PICK_TOLERANCE || fromBase > ARROW_SIZE + PICK_TOLERANCE) {
+            return false;
+        }
+
+        double t = 1 - Math.max(0, Math.min(ARROW_SIZE, fromBase)) / ARROW_SIZE;
+
+        return v >= ARROW_MIDDLE - (ARROW_MIDDLE * t) - PICK_TOLERANCE && v <= ARROW_MIDDLE + ((ARROW_SIZE - ARROW_MIDDLE) * t) + PICK_TOLERANCE;
+    }
+}
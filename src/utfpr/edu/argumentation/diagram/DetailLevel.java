@@ -0,0 +1,36 @@
+package utfpr.edu.argumentation.diagram;
+
+/**
+ * How much detail the components of an ArgumentionFramework paint. The level
+ * is chosen from the framework scaling and the thresholds set with
+ * ArgumentionFramework.setDetailThresholds.
+ *
+ * @author Henrique M R Jasinski
+ */
+enum DetailLevel {
+
+    /**
+     * Every label, border, bracket and arrow head is painted.
+     */
+    FULL,
+    /**
+     * Atoms are filled boxes, rules are single solid lines, attacks are plain
+     * lines, and no text, bracket or arrow head is painted.
+     */
+    SIMPLIFIED,
+    /**
+     * Each root argument is a translucent box with its conclusion drawn as a
+     * filled box, and attacks are plain lines.
+     */
+    MINIMAL;
+
+    /**
+     * Returns the detail level of a framework, or FULL if framework is null.
+     *
+     * @param framework the framework
+     * @return the detail level
+     */
+    static DetailLevel of(ArgumentionFramework framework) {
+        return (framework == null ? FULL : framework.getDetailLevel());
+    }
+}
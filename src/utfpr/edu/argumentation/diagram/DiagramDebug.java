@@ -0,0 +1,33 @@
+package utfpr.edu.argumentation.diagram;
+
+import java.util.Objects;
+
+/**
+ * Consistency checks for the diagram caches. Checks are only performed if the
+ * system property "utfpr.edu.argumentation.diagram.debug" is set to true,
+ * in which case every cached value is compared against the full
+ * recomputation it replaces.
+ *
+ * @author Henrique M R Jasinski
+ */
+final class DiagramDebug {
+
+    static final boolean ENABLED = Boolean.getBoolean("utfpr.edu.argumentation.diagram.debug");
+
+    private DiagramDebug() {
+    }
+
+    /**
+     * Throws an IllegalStateException if the cached value differs from the
+     * recomputed one.
+     *
+     * @param what description of the checked value
+     * @param cached the cached value
+     * @param expected the recomputed value
+     */
+    static void check(String what, Object cached, Object expected) {
+        if (!Objects.equals(cached, expected)) {
+            throw new IllegalStateException("Stale cache for " + what + ": cached " + cached + ", expected " + expected);
+        }
+    }
+}
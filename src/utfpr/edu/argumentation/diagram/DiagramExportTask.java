@@ -0,0 +1,254 @@
+package utfpr.edu.argumentation.diagram;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.event.IIOWriteProgressListener;
+import javax.swing.JComponent;
+import javax.swing.SwingWorker;
+
+/**
+ * Exports a framework to an image file in the background, as
+ * ArgumentionFramework.exportToImageFile lays it out: the diagram, and the
+ * color legend below it when there is one. Everything the export needs is
+ * copied on the EDT when the task is created: the diagram model, with its
+ * focus layers and the room its tooltips take, a renderer with the framework
+ * colors, and an image of the legend. The diagram is then rendered by the
+ * DiagramRenderer and encoded on a worker thread, so the framework may be
+ * used and changed meanwhile. Rendered pixels may only differ from the
+ * displayed diagram on some edges, as the DiagramRenderer documents.
+ *
+ * The diagram is rendered in bands of rows and progress, from 0 to 100, is
+ * reported through the "progress" property: the first half while rendering,
+ * the second half while encoding. A cancelled task stops at the next band,
+ * encoded row or SVG element, and deletes the file if it was being written.
+ * The completion callback is called on the EDT once the task is done,
+ * cancelled or failed; isCancelled and getError tell which.
+ *
+ * SVG files are written by a DiagramSvgExporter from the same model, without
+ * the legend; their progress is the share of the elements written.
+ *
+ * @author Henrique M R Jasinski
+ */
+public final class DiagramExportTask extends SwingWorker<File, Void> {
+
+    private static final int BAND_HEIGHT = 256;
+    private static final int SEPARATOR_HEIGHT = 2;
+
+    private final DiagramExporter.Job job;
+    private final Dimension diagramSize;
+    private final Color background;
+    private final BufferedImage legend;
+    private final Dimension legendSize;
+    private final Color legendBackground;
+    private final Consumer<DiagramExportTask> onDone;
+
+    /**
+     * Constructor. Copies the framework and prints its legend, so it must be
+     * called on the EDT. The task is started by execute.
+     *
+     * @param framework the framework
+     * @param legend the color legend exported below the diagram, or null
+     * @param output the image file, overwritten if it exists. Its extension
+     * gives the format: png, jpg, gif or svg
+     * @param onDone called on the EDT when the task is done, or null
+     */
+    public DiagramExportTask(ArgumentionFramework framework, JComponent legend, File output, Consumer<DiagramExportTask> onDone) {
+        this.job = DiagramExporter.Job.of(framework, output);
+        this.diagramSize = framework.getPreferredSize();
+        this.background = framework.getBackground();
+        this.onDone = onDone;
+
+        if (legend == null || job.getFormat().equals("svg")) {
+            this.legend = null;
+            this.legendSize = null;
+            this.legendBackground = null;
+        } else {
+            // Printed at its current size, centered below a separator
+            this.legend = new BufferedImage(Math.max(1, legend.getWidth()), Math.max(1, legend.getHeight()), BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = this.legend.createGraphics();
+            legend.printAll(g);
+            g.dispose();
+
+            this.legendSize = legend.getPreferredSize();
+            this.legendBackground = legend.getBackground();
+        }
+    }
+
+    /**
+     * Returns the image file.
+     *
+     * @return the image file
+     */
+    public File getOutput() {
+        return job.getOutput();
+    }
+
+    @Override
+    protected File doInBackground() throws IOException {
+        BufferedImage image = null;
+        if (!job.getFormat().equals("svg")) {
+            image = render();
+            if (isCancelled()) {
+                return null;
+            }
+        }
+
+        boolean complete = false;
+        try {
+            if (image == null) {
+                DiagramExporter.writeSvg(job, this::setProgress);
+            } else {
+                write(image);
+            }
+            complete = !isCancelled();
+        } finally {
+            if (!complete) {
+                job.getOutput().delete();
+            }
+        }
+
+        setProgress(100);
+        return job.getOutput();
+    }
+
+    /**
+     * Renders the diagram in bands, checking for cancellation between them,
+     * centered above the legend. The diagram is as large as the framework
+     * was, and bands have the same pixels as a diagram rendered at once.
+     */
+    private BufferedImage render() {
+        DiagramRenderer.Layout layout = job.getRenderer().layout(job.getModel());
+        Dimension rendered = layout.getSize(job.getScaling());
+        Dimension diagram = new Dimension(Math.max(diagramSize.width, rendered.width), Math.max(diagramSize.height, rendered.height));
+
+        int width = diagram.width;
+        int height = diagram.height;
+        if (legend != null) {
+            width = Math.max(width, legendSize.width);
+            height += legendSize.height + SEPARATOR_HEIGHT;
+        }
+        BufferedImage image = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_RGB);
+
+        Graphics2D g = image.createGraphics();
+        g.setColor(background);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        if (legend != null) {
+            g.setColor(Color.DARK_GRAY);
+            g.fillRect(0, diagram.height, image.getWidth(), SEPARATOR_HEIGHT);
+            g.setColor(legendBackground);
+            g.fillRect(0, diagram.height + SEPARATOR_HEIGHT, image.getWidth(), legend.getHeight());
+            g.drawImage(legend, (width - legend.getWidth()) / 2, height - legendSize.height, null);
+        }
+        g.dispose();
+
+        int x = (width - diagram.width) / 2;
+        for (int y = 0; y < rendered.height && !isCancelled(); y += BAND_HEIGHT) {
+            Graphics2D band = image.createGraphics();
+            band.clipRect(x, y, rendered.width, Math.min(BAND_HEIGHT, rendered.height - y));
+            band.translate(x, 0);
+            job.getRenderer().paint(band, layout, job.getScaling());
+            band.dispose();
+
+            setProgress(Math.min(50, (int) (50L * (y + BAND_HEIGHT) / rendered.height)));
+        }
+
+        return image;
+    }
+
+    /**
+     * Encodes the image. The writer is aborted once the task is cancelled.
+     */
+    private void write(BufferedImage image) throws IOException {
+        Iterator<ImageWriter> available = ImageIO.getImageWritersByFormatName(job.getFormat());
+        if (!available.hasNext()) {
+            throw new IOException("There is no image writer for " + job.getFormat());
+        }
+
+        ImageWriter writer = available.next();
+        writer.addIIOWriteProgressListener(new WriteProgress());
+
+        try {
+            DiagramExporter.write(writer, image, job.getOutput());
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    @Override
+    protected void done() {
+        if (onDone != null) {
+            onDone.accept(this);
+        }
+    }
+
+    /**
+     * Returns why the task failed, or null if it is not done, was cancelled
+     * or completed.
+     *
+     * @return the error, or null
+     */
+    public Throwable getError() {
+        if (!isDone() || isCancelled()) {
+            return null;
+        }
+
+        try {
+            get();
+            return null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException ex) {
+            return ex.getCause();
+        }
+    }
+
+    /**
+     * Reports the encoding progress, as the second half, and aborts the writer once the task is
+     * cancelled.
+     */
+    private final class WriteProgress implements IIOWriteProgressListener {
+
+        @Override
+        public void imageProgress(ImageWriter source, float percentageDone) {
+            if (isCancelled()) {
+                source.abort();
+            } else {
+                setProgress(50 + Math.min(50, (int) (percentageDone / 2)));
+            }
+        }
+
+        @Override
+        public void imageStarted(ImageWriter source, int imageIndex) {
+        }
+
+        @Override
+        public void imageComplete(ImageWriter source) {
+        }
+
+        @Override
+        public void thumbnailStarted(ImageWriter source, int imageIndex, int thumbnailIndex) {
+        }
+
+        @Override
+        public void thumbnailProgress(ImageWriter source, float percentageDone) {
+        }
+
+        @Override
+        public void thumbnailComplete(ImageWriter source) {
+        }
+
+        @Override
+        public void writeAborted(ImageWriter source) {
+        }
+    }
+}
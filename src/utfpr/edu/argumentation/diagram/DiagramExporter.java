@@ -0,0 +1,536 @@
+package utfpr.edu.argumentation.diagram;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.FileImageOutputStream;
+
+/**
+ * Exports many diagrams to PNG, JPG, GIF or SVG files at once, without any
+ * dialog and off the event dispatch thread. Diagrams are rendered by a
+ * DiagramRenderer on a pool of worker threads; each worker keeps its own
+ * image writers and pixel buffer for the whole batch. Diagrams too large to
+ * be held in memory are exported with exportTiled instead.
+ *
+ * An exporter holds no state between batches and may be shared between
+ * threads.
+ *
+ * @author Henrique M R Jasinski
+ * @see Job
+ * @see Report
+ */
+public final class DiagramExporter {
+
+    private final int threads;
+
+    /**
+     * Constructor with one worker per available processor.
+     */
+    public DiagramExporter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param threads number of worker threads of each batch
+     */
+    public DiagramExporter(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("There must be at least one worker thread.");
+        }
+
+        this.threads = threads;
+    }
+
+    /**
+     * Returns the number of worker threads of each batch.
+     *
+     * @return number of worker threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Exports every job and waits for all of them to finish. A job that fails
+     * does not stop the others; its error is kept in the report.
+     *
+     * @param jobs the jobs, in order
+     * @return the timings and errors of the batch
+     * @throws InterruptedException if the calling thread is interrupted while
+     * waiting. Workers are interrupted and no further job is started.
+     */
+    public Report export(List<Job> jobs) throws InterruptedException {
+        List<Job> batch = List.copyOf(jobs);
+        long[] latencies = new long[batch.size()];
+        Exception[] errors = new Exception[batch.size()];
+        AtomicInteger next = new AtomicInteger();
+
+        int workers = Math.min(threads, Math.max(1, batch.size()));
+        ExecutorService pool = Executors.newFixedThreadPool(workers, new WorkerFactory());
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> running = new ArrayList<>(workers);
+            for (int k = 0; k < workers; k++) {
+                running.add(pool.submit(new Worker(batch, next, latencies, errors)));
+            }
+
+            for (Future<?> worker : running) {
+                try {
+                    worker.get();
+                } catch (ExecutionException ex) {
+                    // Workers catch the errors of each job; anything else is a bug
+                    throw new IllegalStateException(ex.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return new Report(batch, latencies, errors, System.nanoTime() - start);
+    }
+
+    /**
+     * Exports one diagram in tiles, so it is never held in memory as a whole.
+     * The image is cut in strips of tileHeight rows, and each strip in tiles
+     * of tileWidth columns; tiles are rendered on the worker threads while
+     * finished strips are encoded. Memory is bounded by a few strips, one
+     * per worker and one being encoded, whatever the diagram height. The
+     * file is the same, byte for byte, as the one written by export.
+     *
+     * @param job the job. Its output must be a png file
+     * @param tileWidth tile width, in pixels
+     * @param tileHeight tile and strip height, in pixels
+     * @throws IOException if the image can not be written
+     * @throws InterruptedException if the calling thread is interrupted. The
+     * file is left incomplete.
+     */
+    public void exportTiled(Job job, int tileWidth, int tileHeight) throws IOException, InterruptedException {
+        if (tileWidth < 1 || tileHeight < 1) {
+            throw new IllegalArgumentException("Tiles must be at least one pixel wide and high.");
+        }
+
+        if (!job.format.equals("png")) {
+            throw new IllegalArgumentException("Only png files can be exported in tiles.");
+        }
+
+        DiagramRenderer.Layout layout = job.renderer.layout(job.model);
+        ExecutorService pool = Executors.newFixedThreadPool(threads, new WorkerFactory());
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(job.format).next();
+        try {
+            write(writer, new TiledDiagramImage(job.renderer, layout, job.scaling, tileWidth, tileHeight, pool, threads), job.output);
+        } catch (CancellationException ex) {
+            throw new InterruptedException(ex.getMessage());
+        } finally {
+            writer.dispose();
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes an image to a file, replacing its contents. The writer is reset
+     * afterwards, so it can be used again.
+     */
+    static void write(ImageWriter writer, RenderedImage image, File output) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(output, "rw")) {
+            file.setLength(0);
+            try (FileImageOutputStream out = new FileImageOutputStream(file)) {
+                writer.setOutput(out);
+                writer.write(new IIOImage(image, null, null));
+            } finally {
+                writer.reset();
+            }
+        }
+    }
+
+    /**
+     * Writes the SVG document of a job, replacing the file contents.
+     */
+    static void writeSvg(Job job) throws IOException {
+        writeSvg(job, null);
+    }
+
+    /**
+     * Writes the SVG document of a job, replacing the file contents, and
+     * reports the percentage of its elements written, or not if progress is
+     * null.
+     */
+    static void writeSvg(Job job, IntConsumer progress) throws IOException {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(job.output), StandardCharsets.UTF_8))) {
+            new DiagramSvgExporter(job.renderer).write(job.model, job.scaling, out, progress);
+        }
+    }
+
+    /**
+     * Renders and writes jobs until none is left. Image writers and the pixel
+     * buffer are reused from one job to the next.
+     */
+    private static final class Worker implements Runnable {
+
+        private final List<Job> batch;
+        private final AtomicInteger next;
+        private final long[] latencies;
+        private final Exception[] errors;
+
+        private final Map<String, ImageWriter> writers = new HashMap<>();
+        private BufferedImage buffer;
+
+        Worker(List<Job> batch, AtomicInteger next, long[] latencies, Exception[] errors) {
+            this.batch = batch;
+            this.next = next;
+            this.latencies = latencies;
+            this.errors = errors;
+        }
+
+        @Override
+        public void run() {
+            try {
+                int k;
+                while ((k = next.getAndIncrement()) < batch.size() && !Thread.currentThread().isInterrupted()) {
+                    long start = System.nanoTime();
+                    try {
+                        export(batch.get(k));
+                    } catch (IOException | RuntimeException ex) {
+                        errors[k] = ex;
+                    }
+                    latencies[k] = System.nanoTime() - start;
+                }
+            } finally {
+                writers.values().forEach((writer) -> {
+                    writer.dispose();
+                });
+            }
+        }
+
+        private void export(Job job) throws IOException {
+            if (job.format.equals("svg")) {
+                writeSvg(job);
+                return;
+            }
+
+            DiagramRenderer.Layout layout = job.renderer.layout(job.model);
+            Dimension size = layout.getSize(job.scaling);
+            BufferedImage image = getImage(Math.max(1, size.width), Math.max(1, size.height));
+
+            Graphics2D g = image.createGraphics();
+            job.renderer.paint(g, layout, job.scaling);
+            g.dispose();
+
+            write(getWriter(job.format), image, job.output);
+        }
+
+        /**
+         * Returns an image of exactly width x height sharing the pixels of
+         * the buffer, which only grows.
+         */
+        private BufferedImage getImage(int width, int height) {
+            if (buffer == null || buffer.getWidth() < width || buffer.getHeight() < height) {
+                int w = (buffer == null ? width : Math.max(width, buffer.getWidth()));
+                int h = (buffer == null ? height : Math.max(height, buffer.getHeight()));
+                buffer = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            }
+
+            if (buffer.getWidth() == width && buffer.getHeight() == height) {
+                return buffer;
+            }
+
+            return buffer.getSubimage(0, 0, width, height);
+        }
+
+        private ImageWriter getWriter(String format) throws IOException {
+            ImageWriter writer = writers.get(format);
+            if (writer == null) {
+                Iterator<ImageWriter> available = ImageIO.getImageWritersByFormatName(format);
+                if (!available.hasNext()) {
+                    throw new IOException("There is no image writer for " + format);
+                }
+                writer = available.next();
+                writers.put(format, writer);
+            }
+
+            return writer;
+        }
+    }
+
+    private static final class WorkerFactory implements ThreadFactory {
+
+        private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+        private final int pool = POOL_COUNT.incrementAndGet();
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "diagram-export-" + pool + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * One diagram to export: what to render, at which scaling, and where to.
+     * The image format is taken from the file extension, as in
+     * ArgumentionFramework.exportToImageFile: png, jpg, gif, or svg for a
+     * DiagramSvgExporter document. Instances are immutable.
+     */
+    public static final class Job {
+
+        private final DiagramModel model;
+        private final DiagramRenderer renderer;
+        private final double scaling;
+        private final File output;
+        private final String format;
+
+        /**
+         * Constructor.
+         *
+         * @param model the diagram
+         * @param renderer the renderer of the diagram
+         * @param scaling the diagram scaling
+         * @param output the image file, overwritten if it exists
+         */
+        public Job(DiagramModel model, DiagramRenderer renderer, double scaling, File output) {
+            if (model == null || renderer == null || output == null) {
+                throw new NullPointerException("Model, renderer and output can not be null");
+            }
+
+            if (!(scaling > 0)) {
+                throw new IllegalArgumentException("The scaling must be positive.");
+            }
+
+            String name = output.getName().toLowerCase(Locale.ROOT);
+            String extension = name.substring(name.lastIndexOf('.') + 1);
+            switch (extension) {
+                case "png":
+                case "jpg":
+                case "gif":
+                case "svg":
+                    break;
+                default:
+                    throw new IllegalArgumentException("The output must be a png, jpg, gif or svg file.");
+            }
+
+            this.model = model;
+            this.renderer = renderer;
+            this.scaling = scaling;
+            this.output = output;
+            this.format = extension;
+        }
+
+        /**
+         * Returns a job that exports a framework as it is shown: same
+         * diagram, colors and scaling. The framework is copied, so it may
+         * change while the job runs. Must be called on the EDT.
+         *
+         * @param framework the framework
+         * @param output the image file, overwritten if it exists
+         * @return the job
+         */
+        public static Job of(ArgumentionFramework framework, File output) {
+            return new Job(framework.toModel(), DiagramRenderer.of(framework), framework.getScaling(), output);
+        }
+
+        /**
+         * Returns the diagram.
+         *
+         * @return the diagram
+         */
+        public DiagramModel getModel() {
+            return model;
+        }
+
+        /**
+         * Returns the renderer of the diagram.
+         *
+         * @return the renderer
+         */
+        public DiagramRenderer getRenderer() {
+            return renderer;
+        }
+
+        /**
+         * Returns the diagram scaling.
+         *
+         * @return the scaling
+         */
+        public double getScaling() {
+            return scaling;
+        }
+
+        /**
+         * Returns the image file.
+         *
+         * @return the image file
+         */
+        public File getOutput() {
+            return output;
+        }
+
+        /**
+         * Returns the image format: png, jpg, gif or svg.
+         *
+         * @return the image format
+         */
+        public String getFormat() {
+            return format;
+        }
+
+        @Override
+        public String toString() {
+            return output.getPath();
+        }
+    }
+
+    /**
+     * Timings and errors of a batch. Latencies are measured per job, from the
+     * start of its rendering to the image file being closed.
+     */
+    public static final class Report {
+
+        private final List<Job> jobs;
+        private final long[] latencies;
+        private final Exception[] errors;
+        private final long elapsed;
+
+        Report(List<Job> jobs, long[] latencies, Exception[] errors, long elapsed) {
+            this.jobs = jobs;
+            this.latencies = latencies;
+            this.errors = errors;
+            this.elapsed = elapsed;
+        }
+
+        /**
+         * Returns the jobs of the batch.
+         *
+         * @return unmodifiable list of the jobs, in order
+         */
+        public List<Job> getJobs() {
+            return jobs;
+        }
+
+        /**
+         * Returns the time taken by the job at index.
+         *
+         * @param index job index
+         * @return latency in nanoseconds
+         */
+        public long getLatencyNanos(int index) {
+            return latencies[index];
+        }
+
+        /**
+         * Returns the error of the job at index.
+         *
+         * @param index job index
+         * @return the error, or null if the image was written
+         */
+        public Exception getError(int index) {
+            return errors[index];
+        }
+
+        /**
+         * Returns the number of jobs that failed.
+         *
+         * @return number of failed jobs
+         */
+        public int getFailureCount() {
+            int failures = 0;
+            for (Exception error : errors) {
+                if (error != null) {
+                    failures++;
+                }
+            }
+
+            return failures;
+        }
+
+        /**
+         * Returns the wall-clock time of the whole batch.
+         *
+         * @return elapsed time in nanoseconds
+         */
+        public long getElapsedNanos() {
+            return elapsed;
+        }
+
+        /**
+         * Returns the number of images written per second.
+         *
+         * @return throughput in images per second
+         */
+        public double getThroughput() {
+            return (jobs.size() - getFailureCount()) / (elapsed / 1e9);
+        }
+
+        /**
+         * Returns the mean latency of the jobs.
+         *
+         * @return mean latency in milliseconds
+         */
+        public double getMeanLatencyMillis() {
+            if (latencies.length == 0) {
+                return 0;
+            }
+
+            return Arrays.stream(latencies).average().getAsDouble() / 1e6;
+        }
+
+        /**
+         * Returns a latency percentile of the jobs, by the nearest-rank
+         * method.
+         *
+         * @param percentile the percentile, from 0 to 100
+         * @return the latency in milliseconds
+         */
+        public double getLatencyPercentileMillis(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("The percentile must be between 0 and 100.");
+            }
+
+            if (latencies.length == 0) {
+                return 0;
+            }
+
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+
+            return sorted[Math.max(0, rank - 1)] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d images, %d failed, %.2f s, %.1f images/s, latency mean %.2f ms, p50 %.2f ms, p95 %.2f ms, max %.2f ms",
+                    jobs.size(), getFailureCount(), elapsed / 1e9, getThroughput(),
+                    getMeanLatencyMillis(), getLatencyPercentileMillis(50), getLatencyPercentileMillis(95), getLatencyPercentileMillis(100));
+        }
+    }
+}
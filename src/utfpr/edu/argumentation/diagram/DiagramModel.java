@@ -0,0 +1,167 @@
+package utfpr.edu.argumentation.diagram;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Plain description of a whole diagram: the root arguments, in the order they
+ * are placed, and the attacks between them or their subarguments. Diagrams
+ * copied from a framework also keep the room its first and last tooltips take
+ * beyond the diagram, and the roots and attacks its focus brings to the
+ * front. Rendered by a DiagramRenderer. Instances are immutable and may be
+ * shared between threads.
+ *
+ * @author Henrique M R Jasinski
+ * @see ArgumentionFramework#toModel()
+ */
+public final class DiagramModel {
+
+    private final List<ArgumentModel> roots;
+    private final List<AttackModel> attacks;
+    private final int westOverflow;
+    private final int eastOverflow;
+    private final List<ArgumentModel> frontRoots;
+    private final List<AttackModel> frontAttacks;
+
+    /**
+     * Constructor.
+     *
+     * @param roots the root arguments, in order
+     * @param attacks the attacks. Both arguments of every attack must be part
+     * of the roots' subtrees
+     */
+    public DiagramModel(List<ArgumentModel> roots, List<AttackModel> attacks) {
+        this(roots, attacks, 0, 0, List.of(), List.of());
+    }
+
+    /**
+     * Constructor of a copied framework diagram.
+     *
+     * @param roots the root arguments, in order
+     * @param attacks the attacks. Both arguments of every attack must be part
+     * of the roots' subtrees
+     * @param westOverflow pixels the tooltips of the first root take left of
+     * the diagram
+     * @param eastOverflow pixels the tooltips of the last root take right of
+     * the diagram
+     * @param frontRoots the roots painted above the others, the topmost
+     * first
+     * @param frontAttacks the attacks painted above every argument, the
+     * topmost first
+     */
+    DiagramModel(List<ArgumentModel> roots, List<AttackModel> attacks, int westOverflow, int eastOverflow, List<ArgumentModel> frontRoots, List<AttackModel> frontAttacks) {
+        this.roots = List.copyOf(roots);
+        this.attacks = List.copyOf(attacks);
+        this.westOverflow = Math.max(0, westOverflow);
+        this.eastOverflow = Math.max(0, eastOverflow);
+        this.frontRoots = List.copyOf(frontRoots);
+        this.frontAttacks = List.copyOf(frontAttacks);
+
+        Set<ArgumentModel> rootSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        rootSet.addAll(this.roots);
+        if (!rootSet.containsAll(this.frontRoots)) {
+            throw new IllegalArgumentException("The front roots must be roots of the diagram.");
+        }
+
+        Set<AttackModel> attackSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        attackSet.addAll(this.attacks);
+        if (!attackSet.containsAll(this.frontAttacks)) {
+            throw new IllegalArgumentException("The front attacks must be attacks of the diagram.");
+        }
+
+        Set<ArgumentModel> arguments = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.roots.forEach((root) -> {
+            collect(root, arguments);
+        });
+
+        this.attacks.forEach((attack) -> {
+            if (!arguments.contains(attack.getArgument1()) || !arguments.contains(attack.getArgument2())) {
+                throw new IllegalArgumentException("Both arguments of an attack must be in the diagram.");
+            }
+        });
+    }
+
+    private static void collect(ArgumentModel arg, Set<ArgumentModel> arguments) {
+        arguments.add(arg);
+        arg.getSubArguments().forEach((sub) -> {
+            collect(sub, arguments);
+        });
+    }
+
+    /**
+     * Tests if arg is one of the root arguments or one of their
+     * subarguments.
+     *
+     * @param arg tested argument
+     * @return true if the diagram contains arg
+     */
+    public boolean contains(ArgumentModel arg) {
+        for (ArgumentModel root : roots) {
+            if (root.containsArgument(arg)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the root arguments.
+     *
+     * @return unmodifiable list of the root arguments, in order
+     */
+    public List<ArgumentModel> getRoots() {
+        return roots;
+    }
+
+    /**
+     * Returns the attacks.
+     *
+     * @return unmodifiable list of the attacks
+     */
+    public List<AttackModel> getAttacks() {
+        return attacks;
+    }
+
+    /**
+     * Returns the pixels the tooltips of the first root take left of the
+     * diagram, as ArgumentionFramework.getDiagramOffset leaves them.
+     *
+     * @return the west overflow, in pixels
+     */
+    int getWestOverflow() {
+        return westOverflow;
+    }
+
+    /**
+     * Returns the pixels the tooltips of the last root take right of the
+     * diagram.
+     *
+     * @return the east overflow, in pixels
+     */
+    int getEastOverflow() {
+        return eastOverflow;
+    }
+
+    /**
+     * Returns the roots painted above the other roots, as the focus layer of
+     * the ArgumentionFramework.
+     *
+     * @return unmodifiable list of the front roots, the topmost first
+     */
+    List<ArgumentModel> getFrontRoots() {
+        return frontRoots;
+    }
+
+    /**
+     * Returns the attacks painted above every argument, as the focus layer of
+     * the ArgumentionFramework.
+     *
+     * @return unmodifiable list of the front attacks, the topmost first
+     */
+    List<AttackModel> getFrontAttacks() {
+        return frontAttacks;
+    }
+}
@@ -0,0 +1,224 @@
+package utfpr.edu.argumentation.diagram;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.util.HashMap;
+import java.util.Map;
+import javax.swing.BorderFactory;
+import javax.swing.border.Border;
+import utfpr.edu.swing.utils.ColorUtil;
+import utfpr.edu.swing.utils.SharpDashedBorder;
+
+/**
+ * Cache of the colors, strokes and borders used to draw the components of an
+ * ArgumentionFramework. Every value derives only from the argument type, the
+ * translucency, the framework colors and fade-off and the size multiplier,
+ * so the instances are shared by all components and rebuilt only after
+ * invalidate() is called. The palette of a framework must be used from the
+ * event dispatch thread; a palette with fixed colors may be used by one
+ * thread at a time.
+ *
+ * @author Henrique M R Jasinski
+ */
+final class DiagramPalette {
+
+    /**
+     * Palette for components without an ArgumentionFramework.
+     */
+    static final DiagramPalette DEFAULT = new DiagramPalette(null);
+
+    private static final int TYPES = 4;
+
+    private final ArgumentionFramework framework;
+    private final Color[] baseColors;
+    private final Color background;
+    private final float fadeoff;
+
+    private final Color[] typeColors = new Color[TYPES * 2];
+    private final Color[] textColors = new Color[2];
+    private final Map<Color, Color> translucentColors = new HashMap<>();
+    private final Map<Double, Border[]> atomBorders = new HashMap<>();
+    private final Map<Double, BasicStroke> strokes = new HashMap<>();
+    private final Map<Double, BasicStroke> dashedStrokes = new HashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param framework the framework whose colors are used, null for the
+     * default colors
+     */
+    DiagramPalette(ArgumentionFramework framework) {
+        this(framework, new Color[]{ArgumentionFramework.DEFAULT_ACCEPTED_NONFOCUSED_ARGUMENT_COLOR, ArgumentionFramework.DEFAULT_ACCEPTED_FOCUSED_ARGUMENT_COLOR, ArgumentionFramework.DEFAULT_REJECTED_NONFOCUSED_ARGUMENT_COLOR, ArgumentionFramework.DEFAULT_REJECTED_FOCUSED_ARGUMENT_COLOR}, ArgumentionFramework.DEFAULT_CLUSTER_BACKGROUND_COLOR, ArgumentionFramework.DEFAULT_CLUSTER_FADEOFF);
+    }
+
+    /**
+     * Constructor of a palette with fixed colors, not bound to any framework.
+     *
+     * @param baseColors the color of each argument type, indexed by type
+     * @param background the background the translucent colors blend with
+     * @param fadeoff the fade-off of the translucent colors
+     */
+    DiagramPalette(Color[] baseColors, Color background, float fadeoff) {
+        this(null, baseColors, background, fadeoff);
+    }
+
+    private DiagramPalette(ArgumentionFramework framework, Color[] baseColors, Color background, float fadeoff) {
+        if (baseColors.length != TYPES) {
+            throw new IllegalArgumentException("There must be one color for each argument type.");
+        }
+
+        this.framework = framework;
+        this.baseColors = baseColors.clone();
+        this.background = background;
+        this.fadeoff = fadeoff;
+    }
+
+    /**
+     * Returns the palette of a framework, or the default palette if framework
+     * is null.
+     *
+     * @param framework the framework
+     * @return the palette
+     */
+    static DiagramPalette of(ArgumentionFramework framework) {
+        return (framework == null ? DEFAULT : framework.getPalette());
+    }
+
+    /**
+     * Drops every cached instance. Must be called when a color, the
+     * background, the fade-off or the size multiplier changes.
+     */
+    void invalidate() {
+        for (int k = 0; k < typeColors.length; k++) {
+            typeColors[k] = null;
+        }
+        textColors[0] = null;
+        textColors[1] = null;
+        translucentColors.clear();
+        atomBorders.clear();
+        strokes.clear();
+        dashedStrokes.clear();
+    }
+
+    private Color getBackground() {
+        return (framework == null ? background : framework.getBackground());
+    }
+
+    private float getFadeoff() {
+        return (framework == null ? fadeoff : framework.getFadeoff());
+    }
+
+    private Color getBaseColor(int type) {
+        if (framework == null) {
+            return baseColors[type];
+        }
+
+        switch (type) {
+            case Argument.ACCEPTED_NONFOCUSED_ARGUMENT_TYPE:
+                return framework.ACCEPTED_NONFOCUSED_ARGUMENT_COLOR;
+            case Argument.ACCEPTED_FOCUSED_ARGUMENT_TYPE:
+                return framework.ACCEPTED_FOCUSED_ARGUMENT_COLOR;
+            case Argument.REJECTED_NONFOCUSED_ARGUMENT_TYPE:
+                return framework.REJECTED_NONFOCUSED_ARGUMENT_COLOR;
+            case Argument.REJECTED_FOCUSED_ARGUMENT_TYPE:
+                return framework.REJECTED_FOCUSED_ARGUMENT_COLOR;
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the color of an argument type.
+     *
+     * @param type the argument type
+     * @param translucent if the color is blended with the background
+     * @return the color, or null if type is not a valid argument type
+     */
+    Color getTypeColor(int type, boolean translucent) {
+        if (type < 0 || type >= TYPES) {
+            return null;
+        }
+
+        int k = type * 2 + (translucent ? 1 : 0);
+        if (typeColors[k] == null) {
+            Color base = getBaseColor(type);
+            typeColors[k] = (translucent ? getTranslucent(base) : base);
+        }
+
+        return typeColors[k];
+    }
+
+    /**
+     * Returns a color blended with the background by the fade-off.
+     *
+     * @param color the base color
+     * @return the translucent color
+     */
+    Color getTranslucent(Color color) {
+        return translucentColors.computeIfAbsent(color, (c) -> (ColorUtil.blend(c, getBackground(), getFadeoff())));
+    }
+
+    /**
+     * Returns the color of the scripted label texts.
+     *
+     * @param translucent if the color is blended with the background
+     * @return the text color
+     */
+    Color getTextColor(boolean translucent) {
+        int k = (translucent ? 1 : 0);
+        if (textColors[k] == null) {
+            textColors[k] = (translucent ? getTranslucent(Color.BLACK) : Color.BLACK);
+        }
+
+        return textColors[k];
+    }
+
+    /**
+     * Returns the border of an Atom. Dashed if the atom is not strict.
+     *
+     * @param type the argument type
+     * @param translucent if the color is blended with the background
+     * @param strict if the atom is strict
+     * @param sizeMultiplier line thickness multiplier
+     * @return the border, or null if type is not a valid argument type
+     */
+    Border getAtomBorder(int type, boolean translucent, boolean strict, double sizeMultiplier) {
+        Color color = getTypeColor(type, translucent);
+        if (color == null) {
+            return null;
+        }
+
+        Border[] borders = atomBorders.computeIfAbsent(sizeMultiplier, (k) -> (new Border[TYPES * 4]));
+        int k = type * 4 + (translucent ? 2 : 0) + (strict ? 1 : 0);
+
+        if (borders[k] == null) {
+            if (!strict) {
+                borders[k] = BorderFactory.createCompoundBorder(new SharpDashedBorder(color, 0, (float) (1 * sizeMultiplier), BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0, new float[]{5}, 0), BorderFactory.createEmptyBorder(3, 3, 3, 3));
+            } else {
+                borders[k] = BorderFactory.createCompoundBorder(BorderFactory.createLineBorder(color, (int) (1 * sizeMultiplier)), BorderFactory.createEmptyBorder(3, 3, 3, 3));
+            }
+        }
+
+        return borders[k];
+    }
+
+    /**
+     * Returns a solid stroke.
+     *
+     * @param sizeMultiplier line thickness multiplier
+     * @return the stroke
+     */
+    BasicStroke getStroke(double sizeMultiplier) {
+        return strokes.computeIfAbsent(sizeMultiplier, (k) -> (new BasicStroke((float) (1 * sizeMultiplier))));
+    }
+
+    /**
+     * Returns the dashed stroke of defeasible rules.
+     *
+     * @param sizeMultiplier line thickness multiplier
+     * @return the stroke
+     */
+    BasicStroke getDashedStroke(double sizeMultiplier) {
+        return dashedStrokes.computeIfAbsent(sizeMultiplier, (k) -> (new BasicStroke((float) (1 * sizeMultiplier), BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0, new float[]{5}, 0)));
+    }
+}
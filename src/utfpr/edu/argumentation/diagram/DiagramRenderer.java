@@ -0,0 +1,843 @@
+package utfpr.edu.argumentation.diagram;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Insets;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.UIManager;
+import javax.swing.border.Border;
+import utfpr.edu.swing.utils.QuadTree;
+import utfpr.edu.swing.utils.ScriptedText;
+import utfpr.edu.swing.utils.ScriptedTextRenderer;
+
+/**
+ * Renders a DiagramModel straight onto a Graphics2D, without building any
+ * Swing component, so diagrams can be rendered under java.awt.headless and
+ * outside of the event dispatch thread. Arguments are measured by the same
+ * ArgumentGeometry as the Argument layout, placed by an
+ * ArgumentLayoutStrategy, and painted with the same colors, strokes and
+ * detail levels as the Argument, Atom and Attack components.
+ *
+ * Rule tooltips are not painted, but they take the same room as on screen
+ * when the model was copied from a framework: the argument layout leaves
+ * room for the rule tooltips, and the diagram for the tooltips that overflow
+ * its first and last roots. Arguments and attacks are stacked as on the
+ * canvas: attacks below arguments, and the roots and attacks the focus brings
+ * to the front above the others.
+ *
+ * Java2D rounds coordinates after translating them, so a diagram painted in
+ * parts could differ by a pixel from one painted whole. Attacks and minimal
+ * boxes are therefore filled in whole pixels, and each root argument is
+ * painted on its own image at the same subpixel offset, whatever part of the
+ * diagram is painted. Tiles never differ from a whole image. Compared with
+ * the framework printed by printAll, only the edges of the attacks, and of
+ * the boxes at the minimal detail level, may differ by a pixel.
+ *
+ * Instances are immutable and thread-safe, as long as the layout strategy is:
+ * many diagrams may be rendered concurrently with the same renderer.
+ *
+ * @author Henrique M R Jasinski
+ */
+public final class DiagramRenderer {
+
+    /**
+     * Space around the diagram, as the ArgumentionFramework leaves it.
+     */
+    static final int MARGIN = 10;
+
+    private static final int DEFAULT_GAP = 20;
+
+    private final Color[] typeColors;
+    private final Color background;
+    private final float fadeoff;
+    private final double sizeMultiplier;
+    private final ArgumentLayoutStrategy layoutStrategy;
+    private final double simplifiedDetailScale;
+    private final double minimalDetailScale;
+
+    private final Font font;
+    private final Color textForeground;
+    private final Color attackForeground;
+
+    private final ThreadLocal<ArgumentImage> argumentImages = ThreadLocal.withInitial(ArgumentImage::new);
+
+    /**
+     * Constructor with the default ArgumentionFramework colors, fade-off,
+     * line thickness, detail thresholds and layout.
+     */
+    public DiagramRenderer() {
+        this(new SingleRowLayoutStrategy(DEFAULT_GAP));
+    }
+
+    /**
+     * Constructor with the default ArgumentionFramework colors, fade-off,
+     * line thickness and detail thresholds.
+     *
+     * @param layoutStrategy the strategy that places the root arguments
+     */
+    public DiagramRenderer(ArgumentLayoutStrategy layoutStrategy) {
+        this(new Color[]{ArgumentionFramework.DEFAULT_ACCEPTED_NONFOCUSED_ARGUMENT_COLOR, ArgumentionFramework.DEFAULT_ACCEPTED_FOCUSED_ARGUMENT_COLOR, ArgumentionFramework.DEFAULT_REJECTED_NONFOCUSED_ARGUMENT_COLOR, ArgumentionFramework.DEFAULT_REJECTED_FOCUSED_ARGUMENT_COLOR},
+                ArgumentionFramework.DEFAULT_CLUSTER_BACKGROUND_COLOR, ArgumentionFramework.DEFAULT_CLUSTER_FADEOFF, 1.0, layoutStrategy,
+                ArgumentionFramework.DEFAULT_SIMPLIFIED_DETAIL_SCALE, ArgumentionFramework.DEFAULT_MINIMAL_DETAIL_SCALE);
+    }
+
+    private DiagramRenderer(Color[] typeColors, Color background, float fadeoff, double sizeMultiplier, ArgumentLayoutStrategy layoutStrategy, double simplifiedDetailScale, double minimalDetailScale) {
+        if (layoutStrategy == null) {
+            throw new NullPointerException("The layout strategy can not be null");
+        }
+
+        this.typeColors = typeColors;
+        this.background = background;
+        this.fadeoff = fadeoff;
+        this.sizeMultiplier = Math.max(1.0, sizeMultiplier);
+        this.layoutStrategy = layoutStrategy;
+        this.simplifiedDetailScale = simplifiedDetailScale;
+        this.minimalDetailScale = minimalDetailScale;
+
+        // The defaults the labels and the attack panels are created with
+        this.font = UIManager.getFont("Label.font");
+        this.textForeground = UIManager.getColor("Label.foreground");
+        this.attackForeground = UIManager.getColor("Panel.foreground");
+    }
+
+    /**
+     * Returns a renderer with the colors, fade-off, line thickness, detail
+     * thresholds and layout strategy of a framework. Must be called on the
+     * EDT.
+     *
+     * @param framework the framework
+     * @return the renderer
+     */
+    public static DiagramRenderer of(ArgumentionFramework framework) {
+        Color[] colors = {framework.getAcceptedNonfocusedArgumentColor(), framework.getAcceptedFocusedArgumentColor(), framework.getRejectedNonfocusedArgumentColor(), framework.getRejectedFocusedArgumentColor()};
+
+        return new DiagramRenderer(colors, framework.getBackground(), framework.getFadeoff(), framework.getSizeMultiplier(), framework.getLayoutStrategy(), framework.getSimplifiedDetailScale(), framework.getMinimalDetailScale());
+    }
+
+    /**
+     * Returns the background color the diagram is rendered on.
+     *
+     * @return the background color
+     */
+    public Color getBackground() {
+        return background;
+    }
+
+    /**
+     * Returns the font of the labels.
+     *
+     * @return the label font
+     */
+    Font getFont() {
+        return font;
+    }
+
+    /**
+     * Returns the text color of plain conclusions, as Atoms leave it.
+     *
+     * @return the conclusion text color
+     */
+    Color getTextForeground() {
+        return textForeground;
+    }
+
+    /**
+     * Returns the color of the attacks that are not translucent.
+     *
+     * @return the attack color
+     */
+    Color getAttackForeground() {
+        return attackForeground;
+    }
+
+    /**
+     * Returns the size of the rendered diagram, margins included.
+     *
+     * @param model the diagram
+     * @param scaling the diagram scaling
+     * @return the image size
+     */
+    public Dimension getSize(DiagramModel model, double scaling) {
+        return layout(model).getSize(scaling);
+    }
+
+    /**
+     * Renders a diagram into a new image.
+     *
+     * @param model the diagram
+     * @param scaling the diagram scaling
+     * @return the image, of type TYPE_INT_RGB
+     */
+    public BufferedImage render(DiagramModel model, double scaling) {
+        Layout layout = layout(model);
+        Dimension size = layout.getSize(scaling);
+        BufferedImage image = new BufferedImage(Math.max(1, size.width), Math.max(1, size.height), BufferedImage.TYPE_INT_RGB);
+
+        Graphics2D g = image.createGraphics();
+        paint(g, layout, scaling);
+        g.dispose();
+
+        return image;
+    }
+
+    /**
+     * Paints a diagram, background and margins included, with its top left
+     * corner at the origin of g.
+     *
+     * @param g graphics instance
+     * @param model the diagram
+     * @param scaling the diagram scaling
+     */
+    public void paint(Graphics2D g, DiagramModel model, double scaling) {
+        paint(g, layout(model), scaling);
+    }
+
+    /**
+     * Measures and places every argument of a diagram, and indexes them to
+     * paint parts of the diagram.
+     *
+     * @param model the diagram
+     * @return the laid out diagram
+     */
+    Layout layout(DiagramModel model) {
+        return layout(model, true);
+    }
+
+    /**
+     * Measures and places every argument of a diagram.
+     *
+     * @param model the diagram
+     * @param indexed false if the diagram is only walked as a whole, so the
+     * roots and attacks are not indexed by their bounds
+     * @return the laid out diagram
+     */
+    Layout layout(DiagramModel model, boolean indexed) {
+        DiagramPalette palette = createPalette();
+        TextMetrics metrics = new TextMetrics(font);
+        Map<ArgumentModel, Point> positions = new IdentityHashMap<>();
+
+        List<ArgumentRecord> records = new ArrayList<>(model.getRoots().size());
+        List<Dimension> sizes = new ArrayList<>(model.getRoots().size());
+        model.getRoots().forEach((root) -> {
+            ArgumentRecord record = measure(root, palette, metrics);
+            records.add(record);
+            sizes.add(record.getGeometry().getSize());
+        });
+
+        List<Rectangle> placements = new ArrayList<>(sizes.size());
+        layoutStrategy.place(sizes, 0, placements);
+
+        Map<ArgumentModel, ArgumentRecord> recordOf = new IdentityHashMap<>();
+        for (int k = 0; k < records.size(); k++) {
+            Rectangle b = placements.get(k);
+            position(model.getRoots().get(k), records.get(k), b.x, b.y, positions, recordOf);
+        }
+
+        List<AttackShape> shapes = new ArrayList<>(model.getAttacks().size());
+        model.getAttacks().forEach((attack) -> {
+            shapes.add(shapeOf(attack, positions, recordOf));
+        });
+
+        return new Layout(model, records, placements, shapes, indexed);
+    }
+
+    /**
+     * Measures an argument subtree, as the Argument layout does from the
+     * preferred sizes of its labels.
+     */
+    private ArgumentRecord measure(ArgumentModel arg, DiagramPalette palette, TextMetrics metrics) {
+        List<ArgumentRecord> subs = new ArrayList<>(arg.getSubArguments().size());
+        List<ArgumentGeometry> subGeometries = new ArrayList<>(arg.getSubArguments().size());
+        arg.getSubArguments().forEach((sub) -> {
+            ArgumentRecord record = measure(sub, palette, metrics);
+            subs.add(record);
+            subGeometries.add(record.getGeometry());
+        });
+
+        Insets insets = getAtomBorder(palette, arg.getType(), arg.isTranslucent(), arg.isStrictConclusion()).getBorderInsets(null);
+        Dimension conclusion = metrics.getSize(arg.getConclusionText());
+        conclusion.width += insets.left + insets.right;
+        conclusion.height += insets.top + insets.bottom;
+
+        Dimension argID = metrics.getSize(arg.getArgIDText());
+        Dimension rule = (arg.getRuleText() != null ? metrics.getSize(arg.getRuleText()) : null);
+
+        ArgumentGeometry geometry = ArgumentGeometry.measure(conclusion, argID, rule, arg.getRuleTooltipWidth(), Argument.bracketGap + Argument.bracketWidth, subGeometries);
+
+        return new ArgumentRecord(null, arg.getConclusionText(), arg.isStrictConclusion(), arg.getArgIDText(), arg.getRuleText(), arg.isStrictRule(), arg.getType(), arg.isTranslucent(), sizeMultiplier, geometry, subs);
+    }
+
+    /**
+     * Records where each argument of a subtree is. As Attack.getShape does,
+     * both positions are relative to the canvas.
+     */
+    private static void position(ArgumentModel arg, ArgumentRecord record, int x, int y, Map<ArgumentModel, Point> positions, Map<ArgumentModel, ArgumentRecord> recordOf) {
+        positions.put(arg, new Point(x, y));
+        recordOf.put(arg, record);
+
+        for (int k = 0; k < arg.getSubArguments().size(); k++) {
+            Rectangle b = record.getGeometry().getSubArgumentBounds(k);
+            position(arg.getSubArguments().get(k), record.getSubArguments().get(k), x + b.x, y + b.y, positions, recordOf);
+        }
+    }
+
+    private static AttackShape shapeOf(AttackModel attack, Map<ArgumentModel, Point> positions, Map<ArgumentModel, ArgumentRecord> recordOf) {
+        ArgumentModel a1 = attack.getArgument1();
+        ArgumentModel a2 = attack.getArgument2();
+        boolean forward = positions.get(a1).x < positions.get(a2).x;
+
+        ArgumentModel leftMost = (forward ? a1 : a2);
+        ArgumentModel rightMost = (forward ? a2 : a1);
+
+        Point lP = positions.get(leftMost);
+        Point rP = positions.get(rightMost);
+        Rectangle lC = recordOf.get(leftMost).getGeometry().getConclusionBounds();
+        Rectangle rC = recordOf.get(rightMost).getGeometry().getConclusionBounds();
+
+        Point2D lMP = new Point(lP.x + lC.x + lC.width, lP.y + lC.y + (lC.height / 2));
+        Point2D rMP = new Point(rP.x + rC.x, rP.y + rC.y + (rC.height / 2));
+
+        return new AttackShape(lMP, rMP, !forward || attack.isBidirectional(), forward || attack.isBidirectional());
+    }
+
+    /**
+     * Paints a laid out diagram, background and margins included, with its
+     * top left corner at the origin of g.
+     *
+     * @param g graphics instance
+     * @param layout the laid out diagram
+     * @param scaling the diagram scaling
+     */
+    void paint(Graphics2D g, Layout layout, double scaling) {
+        DiagramPalette palette = createPalette();
+        DetailLevel detail = getDetailLevel(scaling);
+        Dimension size = layout.getSize(scaling);
+
+        Graphics2D frame = (Graphics2D) g.create(0, 0, size.width, size.height);
+        frame.setColor(background);
+        frame.fillRect(0, 0, size.width, size.height);
+
+        // Clipped as the framework clips its canvas, so scaled clips round alike
+        int offset = layout.getOffset();
+        Graphics2D g2d = (Graphics2D) frame.create(offset, 0, size.width - offset, size.height);
+        Graphics2D pixels = (Graphics2D) frame.create(offset, 0, size.width - offset, size.height);
+        frame.dispose();
+        g2d.scale(scaling, scaling);
+        Rectangle clip = pixels.getClipBounds();
+
+        // Children are painted from the last to the first, attacks below the arguments, the front layers last
+        int lineMargin = (int) Math.ceil(Math.max(1, AttackShape.LINE_WIDTH * scaling) / 2) + 1;
+        List<Integer> attacks = layout.query(layout.attackIndex, layout.shapes.size(), clip, lineMargin, scaling);
+        attacks.removeIf(layout.frontAttackBits::get);
+        paintAttacks(g2d, layout, attacks, layout.translucentAttackFirst, detail, palette);
+
+        List<Integer> roots = layout.query(layout.rootIndex, layout.records.size(), clip, 1, scaling);
+        roots.removeIf(layout.frontRootBits::get);
+        roots.addAll(layout.frontRoots);
+
+        // Arguments paint inside their bounds, so those outside the clip are skipped
+        TextMetrics metrics = new TextMetrics(font);
+        ArgumentImage argumentImage = argumentImages.get();
+        for (int k : roots) {
+            Rectangle b = layout.placements.get(k);
+            ArgumentRecord record = layout.records.get(k);
+            Rectangle box = pixelBounds(b.x, b.y, b.width, b.height, scaling);
+            if (box.isEmpty() || (clip != null && !clip.intersects(box))) {
+                continue;
+            }
+
+            if (detail == DetailLevel.MINIMAL) {
+                // As ArgumentStamper.paintBox, in whole pixels
+                Color color = palette.getTypeColor(record.getType(), record.isTranslucent());
+                Rectangle conclusion = record.getGeometry().getConclusionBounds();
+                fillBox(pixels, box, palette.getTranslucent(color), box);
+                fillBox(pixels, pixelBounds(b.x + conclusion.x, b.y + conclusion.y, conclusion.width, conclusion.height, scaling), color, box);
+            } else {
+                // Painted apart, at the same subpixel offset wherever the diagram is clipped or translated
+                Rectangle part = (clip == null ? box : box.intersection(clip));
+                part.translate(-box.x, -box.y);
+                BufferedImage image = argumentImage.get(box.width, box.height, part);
+                Graphics2D ga = image.createGraphics();
+                // Only the visible part is painted, as the image offset decides the rounding
+                ga.clipRect(part.x, part.y, part.width, part.height);
+                ga.translate((b.x * scaling) - box.x, (b.y * scaling) - box.y);
+                ga.scale(scaling, scaling);
+                paintArgument(ga, record, 0, 0, detail, palette, metrics);
+                ga.dispose();
+
+                pixels.drawImage(image.getSubimage(part.x, part.y, part.width, part.height), box.x + part.x, box.y + part.y, null);
+            }
+        }
+        pixels.dispose();
+
+        // Front attacks are few, so the clip only culls their spans
+        paintAttacks(g2d, layout, layout.frontAttacks, layout.translucentFrontAttackFirst, detail, palette);
+        g2d.dispose();
+    }
+
+    /**
+     * Paints attacks of one layer, one path per color, in their scaled canvas
+     * coordinates.
+     */
+    private void paintAttacks(Graphics2D g2d, Layout layout, List<Integer> indexes, boolean translucentFirst, DetailLevel detail, DiagramPalette palette) {
+        if (indexes.isEmpty()) {
+            return;
+        }
+
+        List<AttackModel> attacks = layout.model.getAttacks();
+        Color opaque = attackForeground;
+        Color translucent = palette.getTranslucent(attackForeground);
+        AttackRenderer attackRenderer = new AttackRenderer();
+        attackRenderer.begin(detail);
+        // Colors are painted in the order of the whole layer, whatever attacks the clip has
+        attackRenderer.reserve(translucentFirst ? translucent : opaque);
+        attackRenderer.reserve(translucentFirst ? opaque : translucent);
+        for (int k : indexes) {
+            attackRenderer.add(layout.shapes.get(k), (attacks.get(k).isTranslucent() ? translucent : opaque));
+        }
+        attackRenderer.paintSpans(g2d);
+    }
+
+    /**
+     * Paints an argument and its subarguments, in the same order and with the
+     * same clipping as the Argument components.
+     */
+    private void paintArgument(Graphics2D g2d, ArgumentRecord record, int x, int y, DetailLevel detail, DiagramPalette palette, TextMetrics metrics) {
+        ArgumentGeometry geometry = record.getGeometry();
+        List<ArgumentRecord> subs = record.getSubArguments();
+        Graphics2D g = (Graphics2D) g2d.create(x, y, geometry.getWidth(), geometry.getHeight());
+
+        for (int k = subs.size() - 1; k >= 0; k--) {
+            Rectangle b = geometry.getSubArgumentBounds(k);
+            paintArgument(g, subs.get(k), b.x, b.y, detail, palette, metrics);
+        }
+
+        Rectangle conclusion = geometry.getConclusionBounds();
+
+        if (detail == DetailLevel.FULL) {
+            paintLabel(g, record.getArgID(), ArgumentStamper.getArgIDColor(record, palette), geometry.getArgIDBounds(), metrics);
+            paintAtom(g, record, conclusion, palette, metrics);
+
+            if (record.getRule() != null && geometry.getRuleBounds() != null) {
+                paintLabel(g, record.getRule(), ArgumentStamper.getRuleColor(record, palette), geometry.getRuleBounds(), metrics);
+            }
+        } else {
+            ArgumentStamper.paintConclusionBox(g, conclusion, palette.getTypeColor(record.getType(), record.isTranslucent()));
+        }
+
+        ArgumentStamper.paintLines(g, record, detail, palette);
+
+        g.dispose();
+    }
+
+    /**
+     * Returns the pixels whose centers are inside a rectangle of the canvas,
+     * in scaled canvas coordinates, as Java2D rounds clips and filled
+     * rectangles.
+     */
+    private static Rectangle pixelBounds(int x, int y, int width, int height, double scaling) {
+        int left = (int) Math.ceil(x * scaling - 0.5);
+        int top = (int) Math.ceil(y * scaling - 0.5);
+
+        return new Rectangle(left, top, (int) Math.ceil((x + width) * scaling - 0.5) - left, (int) Math.ceil((y + height) * scaling - 0.5) - top);
+    }
+
+    private static void fillBox(Graphics2D g, Rectangle box, Color color, Rectangle clip) {
+        Rectangle r = box.intersection(clip);
+        if (!r.isEmpty()) {
+            g.setColor(color);
+            g.fillRect(r.x, r.y, r.width, r.height);
+        }
+    }
+
+    /**
+     * The transparent image a root argument is painted on before it is copied
+     * to the diagram. Each thread keeps its own, which only grows, and only
+     * the visible part of each argument is cleared and painted.
+     */
+    private static final class ArgumentImage {
+
+        private BufferedImage image;
+
+        BufferedImage get(int width, int height, Rectangle visible) {
+            if (image == null || image.getWidth() < width || image.getHeight() < height) {
+                int w = (image == null ? width : Math.max(width, image.getWidth()));
+                int h = (image == null ? height : Math.max(height, image.getHeight()));
+                image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            } else {
+                Graphics2D g = image.createGraphics();
+                g.setComposite(AlphaComposite.Clear);
+                g.fillRect(visible.x, visible.y, visible.width, visible.height);
+                g.dispose();
+            }
+
+            return image.getSubimage(0, 0, width, height);
+        }
+    }
+
+    /**
+     * Paints an identifier or rule label: an opaque box with the text.
+     */
+    private static void paintLabel(Graphics2D g2d, ScriptedText text, Color color, Rectangle bounds, TextMetrics metrics) {
+        Graphics2D g = (Graphics2D) g2d.create(bounds.x, bounds.y, bounds.width, bounds.height);
+
+        g.setColor(ArgumentStamper.LABEL_BACKGROUND);
+        g.fillRect(0, 0, bounds.width, bounds.height);
+        metrics.paint(g, text, color, new Insets(0, 0, 0, 0), bounds.width, bounds.height);
+
+        g.dispose();
+    }
+
+    /**
+     * Paints a conclusion: the text, then the border, as the Atom does.
+     */
+    private void paintAtom(Graphics2D g2d, ArgumentRecord record, Rectangle bounds, DiagramPalette palette, TextMetrics metrics) {
+        Graphics2D g = (Graphics2D) g2d.create(bounds.x, bounds.y, bounds.width, bounds.height);
+        Border border = getAtomBorder(palette, record.getType(), record.isTranslucent(), record.isStrictConclusion());
+
+        // Atoms only set the foreground of scripted texts, the others keep the label default
+        Color color = (record.getConclusion().isScripted() ? palette.getTextColor(record.isTranslucent()) : textForeground);
+        metrics.paint(g, record.getConclusion(), color, border.getBorderInsets(null), bounds.width, bounds.height);
+        border.paintBorder(null, g, 0, 0, bounds.width, bounds.height);
+
+        g.dispose();
+    }
+
+    private Border getAtomBorder(DiagramPalette palette, int type, boolean translucent, boolean strict) {
+        return palette.getAtomBorder(type, translucent, strict, sizeMultiplier);
+    }
+
+    /**
+     * Returns a palette with the colors and fade-off of this renderer. The
+     * palette may only be used by one thread at a time.
+     *
+     * @return a new palette
+     */
+    DiagramPalette createPalette() {
+        return new DiagramPalette(typeColors, background, fadeoff);
+    }
+
+    /**
+     * Returns the detail level for a scaling, as the ArgumentionFramework
+     * chooses it.
+     *
+     * @param scaling the diagram scaling
+     * @return the detail level
+     */
+    DetailLevel getDetailLevel(double scaling) {
+        if (scaling < minimalDetailScale) {
+            return DetailLevel.MINIMAL;
+        }
+
+        return (scaling < simplifiedDetailScale ? DetailLevel.SIMPLIFIED : DetailLevel.FULL);
+    }
+
+    /**
+     * A diagram whose arguments are measured and placed. Root arguments and
+     * attacks of an indexed layout are indexed by their unscaled bounds, so
+     * painting a part of the diagram only visits the ones inside it.
+     * Instances are immutable and may be painted from several threads.
+     */
+    static final class Layout {
+
+        private final DiagramModel model;
+        private final List<ArgumentRecord> records;
+        private final List<Rectangle> placements;
+        private final List<AttackShape> shapes;
+        private final int width;
+        private final int height;
+
+        private final QuadTree<Integer> rootIndex;
+        private final QuadTree<Integer> attackIndex;
+
+        private final List<Integer> frontRoots;
+        private final List<Integer> frontAttacks;
+        private final BitSet frontRootBits = new BitSet();
+        private final BitSet frontAttackBits = new BitSet();
+        private final boolean translucentAttackFirst;
+        private final boolean translucentFrontAttackFirst;
+
+        private Layout(DiagramModel model, List<ArgumentRecord> records, List<Rectangle> placements, List<AttackShape> shapes, boolean indexed) {
+            this.model = model;
+            this.records = records;
+            this.placements = placements;
+            this.shapes = shapes;
+            this.rootIndex = (indexed ? new QuadTree<>() : null);
+            this.attackIndex = (indexed ? new QuadTree<>() : null);
+
+            int w = 0;
+            int h = 0;
+            for (int k = 0; k < placements.size(); k++) {
+                Rectangle b = placements.get(k);
+                w = Math.max(w, b.x + b.width);
+                h = Math.max(h, b.y + b.height);
+                if (indexed) {
+                    rootIndex.insert(k, b);
+                }
+            }
+            this.width = w;
+            this.height = h;
+
+            if (indexed) {
+                for (int k = 0; k < shapes.size(); k++) {
+                    attackIndex.insert(k, shapes.get(k).getBounds());
+                }
+            }
+
+            this.frontRoots = paintOrder(model.getFrontRoots(), model.getRoots());
+            this.frontAttacks = paintOrder(model.getFrontAttacks(), model.getAttacks());
+            frontRoots.forEach(frontRootBits::set);
+            frontAttacks.forEach(frontAttackBits::set);
+
+            // Attacks are painted from the last to the first
+            List<AttackModel> attacks = model.getAttacks();
+            int first = attacks.size() - 1;
+            while (first >= 0 && frontAttackBits.get(first)) {
+                first--;
+            }
+            this.translucentAttackFirst = first >= 0 && attacks.get(first).isTranslucent();
+            this.translucentFrontAttackFirst = !frontAttacks.isEmpty() && attacks.get(frontAttacks.get(0)).isTranslucent();
+        }
+
+        /**
+         * Returns the indexes of the front roots or attacks, in the order
+         * they are painted: the topmost last.
+         */
+        private static <T> List<Integer> paintOrder(List<T> front, List<T> all) {
+            if (front.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            Map<T, Integer> indexOf = new IdentityHashMap<>();
+            for (int k = 0; k < all.size(); k++) {
+                indexOf.put(all.get(k), k);
+            }
+
+            List<Integer> indexes = new ArrayList<>(front.size());
+            for (int k = front.size() - 1; k >= 0; k--) {
+                indexes.add(indexOf.get(front.get(k)));
+            }
+            return Collections.unmodifiableList(indexes);
+        }
+
+        /**
+         * Returns the indexes of the roots or attacks whose bounds may be
+         * inside a clip, from the last to the first, as they are painted.
+         *
+         * @param index the root or attack index, or null if the layout is
+         * not indexed
+         * @param count the number of roots or attacks
+         * @param clip the clip, in scaled canvas coordinates, or null
+         * @param margin pixels the painted roots or attacks may exceed
+         * their bounds by
+         * @param scaling the diagram scaling
+         * @return the indexes, in decreasing order
+         */
+        private List<Integer> query(QuadTree<Integer> index, int count, Rectangle clip, int margin, double scaling) {
+            List<Integer> found;
+            if (clip == null || index == null) {
+                found = new ArrayList<>(count);
+                for (int k = 0; k < count; k++) {
+                    found.add(k);
+                }
+            } else {
+                int x0 = (int) Math.floor((clip.x - margin) / scaling);
+                int y0 = (int) Math.floor((clip.y - margin) / scaling);
+                int x1 = (int) Math.ceil((clip.x + clip.width + margin) / scaling);
+                int y1 = (int) Math.ceil((clip.y + clip.height + margin) / scaling);
+                found = index.query(new Rectangle(x0, y0, x1 - x0, y1 - y0), new ArrayList<>());
+            }
+
+            found.sort(Collections.reverseOrder());
+            return found;
+        }
+
+        /**
+         * Returns the size of the rendered diagram, margins and tooltip
+         * overflows included, as the ArgumentionFramework preferred size.
+         *
+         * @param scaling the diagram scaling
+         * @return the image size
+         */
+        Dimension getSize(double scaling) {
+            return new Dimension((int) (width * scaling) + MARGIN + model.getWestOverflow() + model.getEastOverflow(), (int) (height * scaling) + MARGIN);
+        }
+
+        /**
+         * Returns the x position of the canvas in the rendered diagram, as
+         * ArgumentionFramework.getDiagramOffset.
+         *
+         * @return the canvas offset, in pixels
+         */
+        int getOffset() {
+            return MARGIN + model.getWestOverflow();
+        }
+
+        /**
+         * Returns the diagram.
+         *
+         * @return the diagram
+         */
+        DiagramModel getModel() {
+            return model;
+        }
+
+        /**
+         * Returns the root argument records, in the order of the roots.
+         *
+         * @return the root records
+         */
+        List<ArgumentRecord> getRecords() {
+            return records;
+        }
+
+        /**
+         * Returns the bounds of each root argument, unscaled and without the
+         * margin.
+         *
+         * @return the root bounds
+         */
+        List<Rectangle> getPlacements() {
+            return placements;
+        }
+
+        /**
+         * Returns the geometry of each attack, in the order of the attacks.
+         *
+         * @return the attack geometries
+         */
+        List<AttackShape> getShapes() {
+            return shapes;
+        }
+
+        /**
+         * Tests if a root is painted above the others.
+         *
+         * @param k the root index
+         * @return true if the root is in the front layer
+         */
+        boolean isFrontRoot(int k) {
+            return frontRootBits.get(k);
+        }
+
+        /**
+         * Tests if an attack is painted above every argument.
+         *
+         * @param k the attack index
+         * @return true if the attack is in the front layer
+         */
+        boolean isFrontAttack(int k) {
+            return frontAttackBits.get(k);
+        }
+
+        /**
+         * Returns the indexes of the front roots, in the order they are
+         * painted.
+         *
+         * @return the front root indexes, the topmost last
+         */
+        List<Integer> getFrontRoots() {
+            return frontRoots;
+        }
+
+        /**
+         * Returns the indexes of the front attacks, in the order they are
+         * painted.
+         *
+         * @return the front attack indexes, the topmost last
+         */
+        List<Integer> getFrontAttacks() {
+            return frontAttacks;
+        }
+    }
+
+    /**
+     * Measures and paints label texts as the ScriptedLabel does: scripted
+     * texts through the ScriptedTextRenderer, plain texts as a JLabel draws
+     * them. Uses the same render context as the labels.
+     */
+    static final class TextMetrics {
+
+        private final Font font;
+        private final FontMetrics fontMetrics;
+        private final FontRenderContext frc;
+
+        TextMetrics(Font font) {
+            BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = scratch.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+            g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_OFF);
+
+            this.font = font;
+            this.fontMetrics = g.getFontMetrics(font);
+            this.frc = fontMetrics.getFontRenderContext();
+
+            g.dispose();
+        }
+
+        Dimension getSize(ScriptedText text) {
+            if (text.isScripted()) {
+                return ScriptedTextRenderer.getDefault().getSize(text, font, frc);
+            }
+
+            return new Dimension(fontMetrics.stringWidth(text.getText()), fontMetrics.getHeight());
+        }
+
+        /**
+         * Returns the distance from the top of a text box to the baseline of
+         * its text, left aligned and vertically centered inside the insets
+         * as paint places it.
+         */
+        int getBaseline(ScriptedText text, Insets insets, int height) {
+            int viewHeight = height - insets.top - insets.bottom;
+
+            if (text.isScripted()) {
+                ScriptedTextRenderer renderer = ScriptedTextRenderer.getDefault();
+                int textHeight = renderer.getSize(text, font, frc).height;
+
+                return insets.top + ((viewHeight - textHeight) / 2) + renderer.getBaseline(text, font, frc);
+            }
+
+            return insets.top + (viewHeight / 2) - (fontMetrics.getHeight() / 2) + fontMetrics.getAscent();
+        }
+
+        /**
+         * Paints a text left aligned and vertically centered inside the
+         * insets.
+         */
+        void paint(Graphics2D g2d, ScriptedText text, Color color, Insets insets, int width, int height) {
+            Graphics2D g = (Graphics2D) g2d.create();
+            g.setColor(color);
+
+            if (text.isScripted()) {
+                ScriptedTextRenderer renderer = ScriptedTextRenderer.getDefault();
+                int textHeight = renderer.getSize(text, font, frc).height;
+
+                g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, frc.getAntiAliasingHint());
+                renderer.paint(g, text, font, frc, insets.left, insets.top + ((height - insets.top - insets.bottom - textHeight) / 2));
+            } else {
+                int viewHeight = height - insets.top - insets.bottom;
+
+                g.setFont(font);
+                g.drawString(text.getText(), insets.left, insets.top + (viewHeight / 2) - (fontMetrics.getHeight() / 2) + fontMetrics.getAscent());
+            }
+
+            g.dispose();
+        }
+    }
+}
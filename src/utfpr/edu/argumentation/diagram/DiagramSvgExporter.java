@@ -0,0 +1,489 @@
+package utfpr.edu.argumentation.diagram;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Insets;
+import java.awt.Rectangle;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.IntConsumer;
+import utfpr.edu.swing.utils.ScriptedText;
+import utfpr.edu.swing.utils.ScriptedTextRenderer;
+
+/**
+ * Exports diagrams as SVG documents. Elements are written as the diagram is
+ * walked, one root argument or attack at a time, without building any
+ * document tree, nor the spatial indexes used to paint parts of a diagram.
+ * Memory still grows linearly with the diagram, as every argument is measured
+ * and every attack placed before the first element is written, but not with
+ * the size of the document. Arguments, atoms, labels, brackets and attacks
+ * are measured and placed as a DiagramRenderer renders them, with the same
+ * colors, focus layers and translucency, and dashed strokes for defeasible
+ * rules and non-strict atoms.
+ *
+ * Vector output is not bound to a zoom level, so diagrams are always written
+ * at the full detail level; the scaling only sets the document size.
+ * Arguments are not clipped to their bounds.
+ *
+ * Instances are immutable and thread-safe.
+ *
+ * @author Henrique M R Jasinski
+ */
+public final class DiagramSvgExporter {
+
+    private static final String LINE_COLOR_ATTRIBUTES = "\" fill=\"none\" stroke=\"";
+
+    private final DiagramRenderer renderer;
+
+    /**
+     * Constructor.
+     *
+     * @param renderer the renderer whose colors, font and layout are used
+     */
+    public DiagramSvgExporter(DiagramRenderer renderer) {
+        if (renderer == null) {
+            throw new NullPointerException("The renderer can not be null");
+        }
+
+        this.renderer = renderer;
+    }
+
+    /**
+     * Writes a diagram as an UTF-8 SVG document. The stream is flushed, not
+     * closed.
+     *
+     * @param model the diagram
+     * @param scaling the diagram scaling, which sets the document size
+     * @param out the stream
+     * @throws IOException if the document can not be written
+     */
+    public void write(DiagramModel model, double scaling, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        write(model, scaling, writer);
+        writer.flush();
+    }
+
+    /**
+     * Writes a diagram as an SVG document. The writer is neither flushed nor
+     * closed.
+     *
+     * @param model the diagram
+     * @param scaling the diagram scaling, which sets the document size
+     * @param out the writer
+     * @throws IOException if the document can not be written
+     * @throws InterruptedIOException if the calling thread is interrupted.
+     * The document is left incomplete.
+     */
+    public void write(DiagramModel model, double scaling, Writer out) throws IOException {
+        write(model, scaling, out, null);
+    }
+
+    /**
+     * Writes a diagram as an SVG document, reporting the progress. The writer
+     * is neither flushed nor closed.
+     *
+     * @param model the diagram
+     * @param scaling the diagram scaling, which sets the document size
+     * @param out the writer
+     * @param progress called with the percentage of the elements written,
+     * from 0 to 99, each time it changes, or null
+     * @throws IOException if the document can not be written
+     * @throws InterruptedIOException if the calling thread is interrupted.
+     * The document is left incomplete.
+     */
+    void write(DiagramModel model, double scaling, Writer out, IntConsumer progress) throws IOException {
+        if (!(scaling > 0)) {
+            throw new IllegalArgumentException("The scaling must be positive.");
+        }
+
+        DiagramRenderer.Layout layout = renderer.layout(model, false);
+        Dimension size = layout.getSize(scaling);
+        Document doc = new Document(out, renderer.createPalette(), new DiagramRenderer.TextMetrics(renderer.getFont()));
+        doc.begin(size, layout.getOffset(), scaling);
+
+        // As on the canvas, children are written from the last to the first, attacks below the arguments, the front layers last
+        List<AttackModel> attacks = model.getAttacks();
+        Progress written = new Progress(attacks.size() + layout.getRecords().size(), progress);
+        for (int k = attacks.size() - 1; k >= 0; k--) {
+            if (!layout.isFrontAttack(k)) {
+                written.next();
+                doc.attack(layout.getShapes().get(k), attacks.get(k).isTranslucent());
+            }
+        }
+
+        for (int k = layout.getRecords().size() - 1; k >= 0; k--) {
+            if (!layout.isFrontRoot(k)) {
+                written.next();
+                Rectangle b = layout.getPlacements().get(k);
+                doc.argument(layout.getRecords().get(k), b.x, b.y);
+            }
+        }
+
+        for (int k : layout.getFrontRoots()) {
+            written.next();
+            Rectangle b = layout.getPlacements().get(k);
+            doc.argument(layout.getRecords().get(k), b.x, b.y);
+        }
+
+        for (int k : layout.getFrontAttacks()) {
+            written.next();
+            doc.attack(layout.getShapes().get(k), attacks.get(k).isTranslucent());
+        }
+
+        doc.end();
+    }
+
+    /**
+     * Counts the elements written, reports the percentage when it changes,
+     * and stops the document once the thread is interrupted.
+     */
+    private static final class Progress {
+
+        private final int total;
+        private final IntConsumer listener;
+        private int written = 0;
+        private int percent = 0;
+
+        Progress(int total, IntConsumer listener) {
+            this.total = total;
+            this.listener = listener;
+        }
+
+        /**
+         * Called before each element is written.
+         */
+        void next() throws InterruptedIOException {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Interrupted while writing the diagram");
+            }
+
+            int p = (int) (100L * written / total);
+            written++;
+            if (p != percent && listener != null) {
+                percent = p;
+                listener.accept(p);
+            }
+        }
+    }
+
+    /**
+     * Writes the elements of one document. Each element is formatted in a
+     * reusable buffer, then written at once.
+     */
+    private final class Document {
+
+        private final Writer out;
+        private final DiagramPalette palette;
+        private final DiagramRenderer.TextMetrics metrics;
+        private final StringBuilder sb = new StringBuilder(256);
+        private final Path2D.Float line = new Path2D.Float();
+        private final Path2D.Float heads = new Path2D.Float();
+        private final float[] coords = new float[6];
+
+        Document(Writer out, DiagramPalette palette, DiagramRenderer.TextMetrics metrics) {
+            this.out = out;
+            this.palette = palette;
+            this.metrics = metrics;
+        }
+
+        void begin(Dimension size, int offset, double scaling) throws IOException {
+            Font font = renderer.getFont();
+
+            sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            sb.append("<svg xmlns=\"http://www.w3.org/2000/svg\" xml:space=\"preserve\" width=\"").append(size.width).append("\" height=\"").append(size.height);
+            sb.append("\" viewBox=\"0 0 ").append(size.width).append(' ').append(size.height).append("\">\n");
+            sb.append("<rect width=\"").append(size.width).append("\" height=\"").append(size.height).append("\" fill=\"");
+            color(renderer.getBackground()).append("\"/>\n");
+            sb.append("<g transform=\"translate(").append(offset).append(",0) scale(");
+            number(scaling).append(")\" font-family=\"").append(getFamily(font)).append("\" font-size=\"");
+            number(font.getSize2D()).append('"');
+            if (font.isBold()) {
+                sb.append(" font-weight=\"bold\"");
+            }
+            if (font.isItalic()) {
+                sb.append(" font-style=\"italic\"");
+            }
+            sb.append(">\n");
+            flush();
+        }
+
+        void end() throws IOException {
+            sb.append("</g>\n</svg>\n");
+            flush();
+        }
+
+        /**
+         * Writes an attack as AttackRenderer paints it at the full detail
+         * level: the filled heads, then the line.
+         */
+        void attack(AttackShape shape, boolean translucent) throws IOException {
+            Color color = (translucent ? palette.getTranslucent(renderer.getAttackForeground()) : renderer.getAttackForeground());
+
+            line.reset();
+            heads.reset();
+            shape.appendTo(line, heads);
+
+            if (heads.getCurrentPoint() != null) {
+                sb.append("<path d=\"");
+                path(heads).append("\" fill=\"");
+                color(color).append("\"/>\n");
+            }
+            sb.append("<path d=\"");
+            path(line).append(LINE_COLOR_ATTRIBUTES);
+            color(color).append("\" stroke-width=\"");
+            number(AttackShape.LINE_WIDTH).append("\" stroke-linecap=\"square\"/>\n");
+            flush();
+        }
+
+        /**
+         * Writes an argument and its subarguments, in the order of
+         * DiagramRenderer.paintArgument.
+         */
+        void argument(ArgumentRecord record, int x, int y) throws IOException {
+            ArgumentGeometry geometry = record.getGeometry();
+            List<ArgumentRecord> subs = record.getSubArguments();
+
+            sb.append("<g transform=\"translate(").append(x).append(',').append(y).append(")\">\n");
+            flush();
+
+            for (int k = subs.size() - 1; k >= 0; k--) {
+                Rectangle b = geometry.getSubArgumentBounds(k);
+                argument(subs.get(k), b.x, b.y);
+            }
+
+            label(record.getArgID(), ArgumentStamper.getArgIDColor(record, palette), geometry.getArgIDBounds());
+            atom(record, geometry.getConclusionBounds());
+            if (record.getRule() != null && geometry.getRuleBounds() != null) {
+                label(record.getRule(), ArgumentStamper.getRuleColor(record, palette), geometry.getRuleBounds());
+            }
+
+            sb.append("<g stroke=\"");
+            color(palette.getTypeColor(record.getType(), record.isTranslucent())).append("\" stroke-width=\"");
+            number(record.getSizeMultiplier()).append("\" stroke-linecap=\"square\">\n");
+            ArgumentStamper.forEachLine(record, DetailLevel.FULL, (x1, y1, x2, y2, dashed) -> {
+                line(x1, y1, x2, y2);
+                if (dashed) {
+                    sb.append(" stroke-dasharray=\"5\" stroke-linecap=\"butt\"");
+                }
+                sb.append("/>\n");
+            });
+            sb.append("</g>\n</g>\n");
+            flush();
+        }
+
+        /**
+         * Writes an opaque label box with its text.
+         */
+        private void label(ScriptedText text, Color color, Rectangle bounds) throws IOException {
+            sb.append("<rect x=\"").append(bounds.x).append("\" y=\"").append(bounds.y).append("\" width=\"").append(bounds.width).append("\" height=\"").append(bounds.height).append("\" fill=\"");
+            color(ArgumentStamper.LABEL_BACKGROUND).append("\"/>\n");
+            text(text, color, bounds, new Insets(0, 0, 0, 0));
+            flush();
+        }
+
+        /**
+         * Writes a conclusion: the text, then the border, as the Atom paints
+         * them. Strict atoms have a solid border, the others a dashed one.
+         */
+        private void atom(ArgumentRecord record, Rectangle bounds) throws IOException {
+            double sizeMultiplier = record.getSizeMultiplier();
+            Color borderColor = palette.getTypeColor(record.getType(), record.isTranslucent());
+            Insets insets = palette.getAtomBorder(record.getType(), record.isTranslucent(), record.isStrictConclusion(), sizeMultiplier).getBorderInsets(null);
+
+            // Atoms only set the foreground of scripted texts, the others keep the label default
+            Color color = (record.getConclusion().isScripted() ? palette.getTextColor(record.isTranslucent()) : renderer.getTextForeground());
+            text(record.getConclusion(), color, bounds, insets);
+
+            sb.append("<g transform=\"translate(").append(bounds.x).append(',').append(bounds.y).append(")\">\n");
+            if (record.isStrictConclusion()) {
+                // As LineBorder, a frame as thick as the size multiplier, inside the bounds
+                int thickness = (int) sizeMultiplier;
+                if (thickness > 0) {
+                    sb.append("<rect x=\"");
+                    number(thickness / 2.0).append("\" y=\"");
+                    number(thickness / 2.0).append("\" width=\"").append(bounds.width - thickness).append("\" height=\"").append(bounds.height - thickness).append(LINE_COLOR_ATTRIBUTES);
+                    color(borderColor).append("\" stroke-width=\"").append(thickness).append("\"/>\n");
+                }
+            } else {
+                // As SharpDashedBorder, four dashed lines
+                float thickness = (float) sizeMultiplier;
+                int w = bounds.width;
+                int h = bounds.height;
+                int near = (int) (thickness / 2);
+                int far = Math.round(thickness / 2);
+
+                sb.append("<g stroke=\"");
+                color(borderColor).append("\" stroke-width=\"");
+                number(thickness).append("\" stroke-dasharray=\"5\">\n");
+                line(near, h, near, 0).append("/>\n");
+                line(0, near, w, near).append("/>\n");
+                line(w - far, 0, w - far, h).append("/>\n");
+                line(w, h - far, 0, h - far).append("/>\n");
+                sb.append("</g>\n");
+            }
+            sb.append("</g>\n");
+            flush();
+        }
+
+        /**
+         * Writes a text left aligned and vertically centered inside the
+         * insets of a box. Scripted texts are written as one text with a
+         * smaller, shifted span for each script.
+         */
+        private void text(ScriptedText text, Color color, Rectangle bounds, Insets insets) {
+            sb.append("<text x=\"").append(bounds.x + insets.left).append("\" y=\"").append(bounds.y + metrics.getBaseline(text, insets, bounds.height)).append("\" fill=\"");
+            color(color).append("\">");
+
+            if (text.isScripted()) {
+                float size = renderer.getFont().getSize2D();
+                float scriptSize = size * ScriptedTextRenderer.SCRIPT_SCALE;
+                float shift = 0;
+
+                escape(text.getBase());
+                if (!text.getSubscript().isEmpty()) {
+                    shift = size * ScriptedTextRenderer.SUBSCRIPT_SHIFT;
+                    sb.append("<tspan font-size=\"");
+                    number(scriptSize).append("\" dy=\"");
+                    number(shift).append("\">");
+                    escape(text.getSubscript()).append("</tspan>");
+                }
+                if (!text.getSuperscript().isEmpty()) {
+                    sb.append("<tspan font-size=\"");
+                    number(scriptSize).append("\" dy=\"");
+                    number(-shift - (size * ScriptedTextRenderer.SUPERSCRIPT_SHIFT)).append("\">");
+                    escape(text.getSuperscript()).append("</tspan>");
+                }
+            } else {
+                escape(text.getText());
+            }
+
+            sb.append("</text>\n");
+        }
+
+        private StringBuilder line(int x1, int y1, int x2, int y2) {
+            return sb.append("<line x1=\"").append(x1).append("\" y1=\"").append(y1).append("\" x2=\"").append(x2).append("\" y2=\"").append(y2).append('"');
+        }
+
+        private StringBuilder path(Path2D path) {
+            PathIterator it = path.getPathIterator(null);
+            for (; !it.isDone(); it.next()) {
+                switch (it.currentSegment(coords)) {
+                    case PathIterator.SEG_MOVETO:
+                        sb.append('M');
+                        number(coords[0]).append(' ');
+                        number(coords[1]);
+                        break;
+                    case PathIterator.SEG_LINETO:
+                        sb.append('L');
+                        number(coords[0]).append(' ');
+                        number(coords[1]);
+                        break;
+                    case PathIterator.SEG_CLOSE:
+                        sb.append('Z');
+                        break;
+                }
+            }
+
+            return sb;
+        }
+
+        /**
+         * Appends a color as #rrggbb, followed by its opacity if it is not
+         * opaque. Must be followed by the closing quote of the attribute.
+         */
+        private StringBuilder color(Color color) {
+            sb.append('#');
+            int rgb = color.getRGB() & 0xFFFFFF;
+            for (int shift = 20; shift >= 0; shift -= 4) {
+                sb.append(Character.forDigit((rgb >> shift) & 0xF, 16));
+            }
+
+            if (color.getAlpha() != 255) {
+                sb.append("\" fill-opacity=\"");
+                number(color.getAlpha() / 255.0).append("\" stroke-opacity=\"");
+                number(color.getAlpha() / 255.0);
+            }
+
+            return sb;
+        }
+
+        /**
+         * Appends a number rounded to two decimals, without any exponent.
+         */
+        private StringBuilder number(double value) {
+            long hundredths = Math.round(value * 100);
+            if (hundredths < 0) {
+                sb.append('-');
+                hundredths = -hundredths;
+            }
+
+            sb.append(hundredths / 100);
+            int fraction = (int) (hundredths % 100);
+            if (fraction != 0) {
+                sb.append('.').append(fraction / 10);
+                if (fraction % 10 != 0) {
+                    sb.append(fraction % 10);
+                }
+            }
+
+            return sb;
+        }
+
+        private StringBuilder escape(String text) {
+            for (int k = 0; k < text.length(); k++) {
+                char c = text.charAt(k);
+                switch (c) {
+                    case '&':
+                        sb.append("&amp;");
+                        break;
+                    case '<':
+                        sb.append("&lt;");
+                        break;
+                    case '>':
+                        sb.append("&gt;");
+                        break;
+                    case '"':
+                        sb.append("&quot;");
+                        break;
+                    default:
+                        sb.append(c);
+                }
+            }
+
+            return sb;
+        }
+
+        private void flush() throws IOException {
+            out.append(sb);
+            sb.setLength(0);
+        }
+    }
+
+    /**
+     * Returns the SVG font family of a font. Java logical fonts are mapped to
+     * the generic families.
+     */
+    private static String getFamily(Font font) {
+        switch (font.getFamily()) {
+            case Font.DIALOG:
+            case Font.SANS_SERIF:
+                return "sans-serif";
+            case Font.SERIF:
+                return "serif";
+            case Font.DIALOG_INPUT:
+            case Font.MONOSPACED:
+                return "monospace";
+            default:
+                return "'" + font.getFamily().replace("'", "").replace("\"", "").replace("&", "") + "', sans-serif";
+        }
+    }
+}
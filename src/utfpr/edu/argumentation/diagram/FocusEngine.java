@@ -0,0 +1,233 @@
+package utfpr.edu.argumentation.diagram;
+
+import java.awt.Component;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Keeps track of which arguments (subarguments included) and attacks of an
+ * ArgumentionFramework are focused, and applies focus changes as a delta.
+ * Only the components whose translucency actually changes between the old and
+ * the new focus are updated, and each affected root argument is repainted
+ * once per change.
+ *
+ * @author Henrique M R Jasinski
+ */
+final class FocusEngine {
+
+    // null means every component is focused
+    private Set<Argument> focusedArguments = null;
+    private Set<Attack> focusedAttacks = null;
+
+    private final ArgumentTreeIndex treeIndex;
+    private final Set<Argument> dirtyRoots = newIdentitySet();
+
+    /**
+     * Constructor.
+     *
+     * @param treeIndex the framework tree index, used to find the roots to
+     * repaint
+     */
+    FocusEngine(ArgumentTreeIndex treeIndex) {
+        this.treeIndex = treeIndex;
+    }
+
+    private static <T> Set<T> newIdentitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * Computes the focused components for the given focus and applies the
+     * translucency of the ones that changed.
+     *
+     * @param focused the focused component, may be null
+     * @param focusedType the focused argument type, only used if focused is
+     * null
+     * @param roots the root arguments of the framework
+     * @param attacks the attacks of the framework
+     */
+    void update(Component focused, Integer focusedType, List<Argument> roots, Collection<Attack> attacks) {
+        Set<Argument> newArguments = null;
+        Set<Attack> newAttacks = null;
+
+        if (focused instanceof Argument) {
+            newArguments = newIdentitySet();
+            collectSubtree((Argument) focused, newArguments);
+            newAttacks = newIdentitySet();
+        } else if (focused instanceof Attack) {
+            Attack attack = (Attack) focused;
+            newArguments = newIdentitySet();
+            collectSubtree(attack.getArgument1(), newArguments);
+            collectSubtree(attack.getArgument2(), newArguments);
+            newAttacks = newIdentitySet();
+            newAttacks.add(attack);
+        } else if (focusedType != null) {
+            Set<Argument> ofType = newIdentitySet();
+            forEachArgument(roots, (arg) -> {
+                if (arg.getType() == focusedType) {
+                    ofType.add(arg);
+                }
+            });
+            newArguments = ofType;
+            newAttacks = newIdentitySet();
+        }
+
+        applyArguments(newArguments, roots);
+        applyAttacks(newAttacks, attacks);
+
+        dirtyRoots.forEach((root) -> {
+            root.repaint();
+        });
+        dirtyRoots.clear();
+    }
+
+    /**
+     * Applies the current focus to a newly added root argument.
+     *
+     * @param root the added argument
+     * @param isFocus tests if a component is focused
+     */
+    void argumentAdded(Argument root, Predicate<Component> isFocus) {
+        if (focusedArguments != null) {
+            forEachArgument(List.of(root), (arg) -> {
+                boolean focus = isFocus.test(arg);
+                if (focus) {
+                    focusedArguments.add(arg);
+                }
+                arg.applyTranslucency(!focus);
+            });
+            root.repaint();
+        }
+    }
+
+    /**
+     * Applies the current focus to a newly added attack.
+     *
+     * @param attack the added attack
+     * @param isFocus tests if a component is focused
+     */
+    void attackAdded(Attack attack, Predicate<Component> isFocus) {
+        if (focusedAttacks != null) {
+            boolean focus = isFocus.test(attack);
+            if (focus) {
+                focusedAttacks.add(attack);
+            }
+            attack.isTranslucent(!focus);
+        }
+    }
+
+    /**
+     * Forgets a removed root argument and its subarguments.
+     *
+     * @param root the removed argument
+     */
+    void argumentRemoved(Argument root) {
+        if (focusedArguments != null) {
+            forEachArgument(List.of(root), (arg) -> {
+                focusedArguments.remove(arg);
+            });
+        }
+    }
+
+    /**
+     * Forgets a removed attack.
+     *
+     * @param attack the removed attack
+     */
+    void attackRemoved(Attack attack) {
+        if (focusedAttacks != null) {
+            focusedAttacks.remove(attack);
+        }
+    }
+
+    /**
+     * Every component is focused again, without updating any component. Used
+     * when the framework is cleared.
+     */
+    void reset() {
+        focusedArguments = null;
+        focusedAttacks = null;
+    }
+
+    private void applyArguments(Set<Argument> newArguments, List<Argument> roots) {
+        Set<Argument> oldArguments = focusedArguments;
+        focusedArguments = newArguments;
+
+        if (oldArguments == null && newArguments == null) {
+            return;
+        }
+
+        if (oldArguments == null) {
+            forEachArgument(roots, (arg) -> {
+                if (!newArguments.contains(arg)) {
+                    setTranslucent(arg, true);
+                }
+            });
+        } else if (newArguments == null) {
+            forEachArgument(roots, (arg) -> {
+                if (!oldArguments.contains(arg)) {
+                    setTranslucent(arg, false);
+                }
+            });
+        } else {
+            oldArguments.stream().filter((arg) -> (!newArguments.contains(arg))).forEachOrdered((arg) -> {
+                setTranslucent(arg, true);
+            });
+            newArguments.stream().filter((arg) -> (!oldArguments.contains(arg))).forEachOrdered((arg) -> {
+                setTranslucent(arg, false);
+            });
+        }
+    }
+
+    private void applyAttacks(Set<Attack> newAttacks, Collection<Attack> attacks) {
+        Set<Attack> oldAttacks = focusedAttacks;
+        focusedAttacks = newAttacks;
+
+        if (oldAttacks == null && newAttacks == null) {
+            return;
+        }
+
+        if (oldAttacks == null) {
+            attacks.stream().filter((at) -> (!newAttacks.contains(at))).forEachOrdered((at) -> {
+                at.isTranslucent(true);
+            });
+        } else if (newAttacks == null) {
+            attacks.stream().filter((at) -> (!oldAttacks.contains(at))).forEachOrdered((at) -> {
+                at.isTranslucent(false);
+            });
+        } else {
+            oldAttacks.stream().filter((at) -> (!newAttacks.contains(at))).forEachOrdered((at) -> {
+                at.isTranslucent(true);
+            });
+            newAttacks.stream().filter((at) -> (!oldAttacks.contains(at))).forEachOrdered((at) -> {
+                at.isTranslucent(false);
+            });
+        }
+    }
+
+    private void setTranslucent(Argument arg, boolean translucent) {
+        arg.applyTranslucency(translucent);
+
+        Argument root = treeIndex.getRoot(arg);
+        dirtyRoots.add(root != null ? root : arg);
+    }
+
+    private static void collectSubtree(Argument arg, Set<Argument> result) {
+        result.add(arg);
+        arg.getSubArguments().forEach((sub) -> {
+            collectSubtree(sub, result);
+        });
+    }
+
+    private static void forEachArgument(List<Argument> roots, Consumer<Argument> action) {
+        roots.forEach((root) -> {
+            action.accept(root);
+            forEachArgument(root.getSubArguments(), action);
+        });
+    }
+}
@@ -0,0 +1,324 @@
+package utfpr.edu.argumentation.diagram;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+
+/**
+ * Lays out a framework outside of the EDT. Root arguments are copied into
+ * ArgumentSnapshots on the EDT. In the background they are measured in
+ * parallel on a fork-join pool, placed by the layout strategy, and the attack
+ * bounds are computed from the placed arguments. The results are handed back
+ * to the EDT, where only the geometries and bounds are installed.
+ *
+ * Every request starts a new generation. A computation stops as soon as a
+ * newer generation starts, and its result is dropped.
+ *
+ * @author Henrique M R Jasinski
+ */
+final class LayoutEngine {
+
+    private static final int SEQUENTIAL_THRESHOLD = 64;
+
+    private final ForkJoinPool pool;
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Constructor. Uses the common fork-join pool.
+     */
+    LayoutEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param pool the pool that runs the computations
+     */
+    LayoutEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Cancels the running computation, if any.
+     */
+    void cancel() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Snapshots the roots and lays them out in the background. Must be called
+     * on the EDT. If no newer request or cancel happens meanwhile, apply is
+     * called on the EDT with the result, or fail with the error if the
+     * computation failed. The layout strategy is called on a worker thread.
+     *
+     * @param roots the root arguments
+     * @param attacks the attacks between the arguments
+     * @param strategy the strategy that places the root arguments
+     * @param apply receives the result on the EDT
+     * @param fail receives the error on the EDT
+     */
+    void request(List<Argument> roots, Collection<Attack> attacks, ArgumentLayoutStrategy strategy, Consumer<Result> apply, Consumer<Throwable> fail) {
+        long gen = generation.incrementAndGet();
+
+        int[] nextIndex = {0};
+        List<ArgumentSnapshot> snapshots = new ArrayList<>(roots.size());
+        roots.forEach((arg) -> {
+            snapshots.add(arg.snapshot(nextIndex));
+        });
+
+        Map<Argument, ArgumentSnapshot> snapshotOf = new IdentityHashMap<>(nextIndex[0]);
+        snapshots.forEach((s) -> {
+            map(s, snapshotOf);
+        });
+
+        List<Attack> attackList = new ArrayList<>(attacks);
+        int[] ends = new int[2 * attackList.size()];
+        for (int k = 0; k < attackList.size(); k++) {
+            ends[2 * k] = snapshotOf.get(attackList.get(k).getArgument1()).getIndex();
+            ends[2 * k + 1] = snapshotOf.get(attackList.get(k).getArgument2()).getIndex();
+        }
+
+        int count = nextIndex[0];
+        CompletableFuture.supplyAsync(() -> {
+            return layout(snapshots, count, attackList, ends, strategy, gen);
+        }, pool).whenComplete((result, error) -> {
+            SwingUtilities.invokeLater(() -> {
+                if (generation.get() != gen) {
+                    return;
+                }
+
+                if (error != null) {
+                    fail.accept(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                } else {
+                    apply.accept(result);
+                }
+            });
+        });
+    }
+
+    private static void map(ArgumentSnapshot s, Map<Argument, ArgumentSnapshot> snapshotOf) {
+        snapshotOf.put(s.getArgument(), s);
+        s.getSubArguments().forEach((sub) -> {
+            map(sub, snapshotOf);
+        });
+    }
+
+    /**
+     * Measures and places the snapshots, then computes the attack bounds.
+     * Runs on the pool.
+     */
+    private Result layout(List<ArgumentSnapshot> snapshots, int count, List<Attack> attacks, int[] ends, ArgumentLayoutStrategy strategy, long gen) {
+        ArgumentGeometry[] geometries = new ArgumentGeometry[count];
+
+        List<GeometryTask> tasks = new ArrayList<>(snapshots.size());
+        snapshots.forEach((s) -> {
+            tasks.add(new GeometryTask(s, geometries, gen));
+        });
+        ForkJoinTask.invokeAll(tasks);
+
+        List<Dimension> sizes = new ArrayList<>(snapshots.size());
+        snapshots.forEach((s) -> {
+            sizes.add(geometries[s.getIndex()].getSize());
+        });
+
+        List<Rectangle> placements = new ArrayList<>(sizes.size());
+        strategy.place(sizes, 0, placements);
+
+        int[] xs = new int[count];
+        int[] ys = new int[count];
+        for (int k = 0; k < snapshots.size(); k++) {
+            place(snapshots.get(k), placements.get(k).x, placements.get(k).y, geometries, xs, ys);
+        }
+
+        if (generation.get() != gen) {
+            throw new CancellationException();
+        }
+
+        Rectangle[] attackBounds = new Rectangle[attacks.size()];
+        for (int k = 0; k < attackBounds.length; k++) {
+            attackBounds[k] = boundsOf(ends[2 * k], ends[2 * k + 1], geometries, xs, ys);
+        }
+
+        return new Result(snapshots, geometries, sizes, placements, attacks, attackBounds);
+    }
+
+    /**
+     * Records the position of every argument of a subtree, relative to the
+     * canvas.
+     */
+    private static void place(ArgumentSnapshot s, int x, int y, ArgumentGeometry[] geometries, int[] xs, int[] ys) {
+        xs[s.getIndex()] = x;
+        ys[s.getIndex()] = y;
+
+        ArgumentGeometry g = geometries[s.getIndex()];
+        for (int k = 0; k < s.getSubArguments().size(); k++) {
+            Rectangle b = g.getSubArgumentBounds(k);
+            place(s.getSubArguments().get(k), x + b.x, y + b.y, geometries, xs, ys);
+        }
+    }
+
+    /**
+     * Computes the bounds of an attack between two placed arguments, as
+     * Attack does from its components.
+     */
+    private static Rectangle boundsOf(int a1, int a2, ArgumentGeometry[] geometries, int[] xs, int[] ys) {
+        int leftMost = (xs[a1] < xs[a2] ? a1 : a2);
+        int rightMost = (leftMost == a1 ? a2 : a1);
+
+        Rectangle lC = geometries[leftMost].getConclusionBounds();
+        Rectangle rC = geometries[rightMost].getConclusionBounds();
+
+        return Attack.getProperBounds(xs[leftMost] + lC.x + lC.width, ys[leftMost] + lC.y + (lC.height / 2), xs[rightMost] + rC.x, ys[rightMost] + rC.y + (rC.height / 2));
+    }
+
+    /**
+     * Measures a snapshot subtree. Subtrees are forked while they are large
+     * enough, and measured sequentially below that.
+     */
+    private final class GeometryTask extends RecursiveTask<ArgumentGeometry> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ArgumentSnapshot snapshot;
+        private final ArgumentGeometry[] results;
+        private final long gen;
+
+        GeometryTask(ArgumentSnapshot snapshot, ArgumentGeometry[] results, long gen) {
+            this.snapshot = snapshot;
+            this.results = results;
+            this.gen = gen;
+        }
+
+        @Override
+        protected ArgumentGeometry compute() {
+            return measure(snapshot, snapshot.getSize() >= SEQUENTIAL_THRESHOLD);
+        }
+
+        private ArgumentGeometry measure(ArgumentSnapshot s, boolean fork) {
+            if (generation.get() != gen) {
+                throw new CancellationException();
+            }
+
+            List<ArgumentGeometry> subs = new ArrayList<>(s.getSubArguments().size());
+
+            if (fork && s.getSubArguments().size() > 1) {
+                List<GeometryTask> tasks = new ArrayList<>(s.getSubArguments().size());
+                s.getSubArguments().forEach((sub) -> {
+                    tasks.add(new GeometryTask(sub, results, gen));
+                });
+                ForkJoinTask.invokeAll(tasks);
+                tasks.forEach((t) -> {
+                    subs.add(t.join());
+                });
+            } else {
+                s.getSubArguments().forEach((sub) -> {
+                    subs.add(measure(sub, false));
+                });
+            }
+
+            ArgumentGeometry g = s.measure(subs);
+            results[s.getIndex()] = g;
+            return g;
+        }
+    }
+
+    /**
+     * Geometries, placements and attack bounds computed for a set of
+     * snapshots.
+     */
+    static final class Result {
+
+        private final List<ArgumentSnapshot> snapshots;
+        private final ArgumentGeometry[] geometries;
+        private final List<Dimension> sizes;
+        private final List<Rectangle> placements;
+        private final List<Attack> attacks;
+        private final Rectangle[] attackBounds;
+
+        private Result(List<ArgumentSnapshot> snapshots, ArgumentGeometry[] geometries, List<Dimension> sizes, List<Rectangle> placements, List<Attack> attacks, Rectangle[] attackBounds) {
+            this.snapshots = snapshots;
+            this.geometries = geometries;
+            this.sizes = sizes;
+            this.placements = placements;
+            this.attacks = attacks;
+            this.attackBounds = attackBounds;
+        }
+
+        /**
+         * Installs the computed geometries in the arguments' layout caches.
+         * An argument is skipped, along with its ancestors, if it changed
+         * since the snapshot was taken. Must be called on the EDT.
+         *
+         * @return true if every geometry was installed, false if some
+         * argument changed and the placements are stale
+         */
+        boolean install() {
+            boolean installed = true;
+            for (ArgumentSnapshot s : snapshots) {
+                installed = install(s) && installed;
+            }
+
+            return installed;
+        }
+
+        private boolean install(ArgumentSnapshot s) {
+            boolean installed = true;
+            for (ArgumentSnapshot sub : s.getSubArguments()) {
+                installed = install(sub) && installed;
+            }
+
+            return installed && s.getArgument().installGeometry(s.getVersion(), geometries[s.getIndex()]);
+        }
+
+        /**
+         * Returns the size of every root argument, in order.
+         *
+         * @return the root sizes
+         */
+        List<Dimension> getSizes() {
+            return sizes;
+        }
+
+        /**
+         * Returns the bounds of every root argument, in order.
+         *
+         * @return the root placements
+         */
+        List<Rectangle> getPlacements() {
+            return placements;
+        }
+
+        /**
+         * Returns the attacks, in the order of their bounds.
+         *
+         * @return the attacks
+         */
+        List<Attack> getAttacks() {
+            return attacks;
+        }
+
+        /**
+         * Returns the bounds of an attack.
+         *
+         * @param index index of the attack
+         * @return the attack bounds
+         */
+        Rectangle getAttackBounds(int index) {
+            return attackBounds[index];
+        }
+    }
+}
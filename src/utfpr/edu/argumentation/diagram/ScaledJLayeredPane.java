@@ -0,0 +1,404 @@
+package utfpr.edu.argumentation.diagram;
+
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.geom.AffineTransform;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.JComponent;
+import javax.swing.JLayeredPane;
+import utfpr.edu.swing.utils.QuadTree;
+
+/**
+ * The canvas of an ArgumentionFramework. Paints the root arguments and the
+ * attacks scaled by the framework scaling, and only the ones inside the clip.
+ *
+ * @author Henrique M R Jasinski
+ */
+class ScaledJLayeredPane extends JLayeredPane{
+    private static final String STAMP_CANVAS_PROPERTY = "stampCanvas";
+
+    private final ArgumentionFramework myFramework;
+
+    private final QuadTree<Component> paintIndex = new QuadTree<>();
+    private final Map<Component, Rectangle> paintBounds = new IdentityHashMap<>();
+    private Map<Component, Integer> paintOrder = null;
+    private final AttackRenderer attackRenderer = new AttackRenderer();
+
+    private final Map<JComponent, Integer> stamps = new IdentityHashMap<>();
+    private int stampSequence = 0;
+    private final ArgumentStamper argumentStamper;
+
+    public ScaledJLayeredPane(ArgumentionFramework myFrameworkRef) {
+        super();
+        
+        setOpaque(true);
+        
+        this.myFramework = myFrameworkRef;
+        this.argumentStamper = new ArgumentStamper(myFrameworkRef);
+        
+        this.myFramework.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+//                setSize(e.getComponent().getSize());
+                setBounds(myFramework.getDiagramOffset(), 0, e.getComponent().getWidth() - myFramework.getDiagramOffset(), e.getComponent().getHeight());
+            }
+        });
+    }
+
+    /**
+     * Returns the framework this canvas belongs to.
+     *
+     * @return the framework
+     */
+    ArgumentionFramework getFramework() {
+        return myFramework;
+    }
+
+    /**
+     * Returns the canvas a root argument or an attack is painted on, either
+     * as a child or as a stamp.
+     *
+     * @param comp the component
+     * @return the canvas, or null if the component is not on a canvas
+     */
+    static ScaledJLayeredPane canvasOf(JComponent comp) {
+        if (comp.getParent() instanceof ScaledJLayeredPane) {
+            return (ScaledJLayeredPane) comp.getParent();
+        }
+
+        return (ScaledJLayeredPane) comp.getClientProperty(STAMP_CANVAS_PROPERTY);
+    }
+
+    /**
+     * Adds a root argument or an attack that is painted by stamping it,
+     * instead of as a child. The component is stacked by its layer like a
+     * child, and below the other components of the same layer.
+     *
+     * @param comp the component
+     * @param layer the component layer
+     */
+    void addStamp(JComponent comp, int layer) {
+        putLayer(comp, layer);
+        comp.putClientProperty(STAMP_CANVAS_PROPERTY, this);
+        stamps.put(comp, stampSequence++);
+        childBoundsChanged(comp);
+        comp.repaint();
+    }
+
+    /**
+     * Removes a stamped component.
+     *
+     * @param comp the component
+     */
+    void removeStamp(JComponent comp) {
+        if (stamps.remove(comp) == null) {
+            return;
+        }
+
+        comp.repaint();
+        comp.putClientProperty(STAMP_CANVAS_PROPERTY, null);
+
+        Rectangle old = paintBounds.remove(comp);
+        if (old != null) {
+            paintIndex.remove(comp, old);
+        }
+    }
+
+    /**
+     * Repaints a region of a stamped component.
+     *
+     * @param comp the component
+     * @param x x position of the region, relative to the component
+     * @param y y position of the region, relative to the component
+     * @param width region width
+     * @param height region height
+     */
+    void repaintStamp(Component comp, int x, int y, int width, int height) {
+        double scaling = myFramework.getScaling();
+
+        int x0 = (int) Math.floor((comp.getX() + x) * scaling);
+        int y0 = (int) Math.floor((comp.getY() + y) * scaling);
+        int x1 = (int) Math.ceil((comp.getX() + x + width) * scaling);
+        int y1 = (int) Math.ceil((comp.getY() + y + height) * scaling);
+
+        repaint(x0, y0, x1 - x0 + 1, y1 - y0 + 1);
+    }
+
+    /**
+     * Moves a child or a stamped component to another layer. Like a child, a
+     * stamped component goes below the other components of the new layer.
+     *
+     * @param c the component
+     * @param layer the new layer
+     * @param position position in the layer
+     */
+    @Override
+    public void setLayer(Component c, int layer, int position) {
+        super.setLayer(c, layer, position);
+
+        if (stamps.containsKey(c)) {
+            stamps.put((JComponent) c, stampSequence++);
+            c.repaint();
+        }
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        Graphics2D g2D = (Graphics2D) g;
+        AffineTransform at = g2D.getTransform();
+
+//        g2D.translate(5, 5);
+        g2D.scale(myFramework.getScaling(), myFramework.getScaling());
+        super.paint(g);
+
+        g2D.setTransform(at);
+    }
+
+    /**
+     * Paints only the children whose bounds intersect the clip. The children
+     * are found through the paint index and sorted back into their z order.
+     * Stamped components are stacked below the children, by layer. Each run
+     * of consecutive attacks is painted as one batch by the attack renderer,
+     * and stamped arguments are painted by the argument stamper. Other runs
+     * are painted one child at a time, see paintChildRun. Since the graphics
+     * is already scaled, the clip is in unscaled coordinates.
+     *
+     * @param g the scaled graphics
+     */
+    @Override
+    protected void paintChildren(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            super.paintChildren(g);
+            return;
+        }
+
+        if (DiagramDebug.ENABLED) {
+            for (Component comp : getComponents()) {
+                DiagramDebug.check("paint bounds of " + comp, paintBounds.get(comp), comp.getBounds());
+            }
+        }
+
+        Map<Component, Integer> order = getPaintOrder();
+        List<Component> visible = paintIndex.query(clip, new ArrayList<>());
+        visible.sort((c1, c2) -> {
+            Integer s1 = stamps.get(c1);
+            Integer s2 = stamps.get(c2);
+
+            if (s1 == null || s2 == null) {
+                return (s1 == null && s2 == null ? Integer.compare(order.get(c1), order.get(c2)) : (s1 == null ? -1 : 1));
+            }
+
+            int byLayer = Integer.compare(getLayer((JComponent) c2), getLayer((JComponent) c1));
+            return (byLayer != 0 ? byLayer : Integer.compare(s1, s2));
+        });
+
+        // Children are painted from the last to the first
+        int end = visible.size();
+        while (end > 0) {
+            int kind = getPaintKind(visible.get(end - 1));
+
+            int start = end - 1;
+            while (start > 0 && getPaintKind(visible.get(start - 1)) == kind) {
+                start--;
+            }
+
+            if (kind == PAINT_ATTACK) {
+                paintAttacks(g, visible.subList(start, end));
+            } else if (kind == PAINT_STAMPED_ARGUMENT) {
+                paintArguments(g, visible.subList(start, end));
+            } else {
+                paintChildRun(g, visible.subList(start, end));
+            }
+
+            end = start;
+        }
+    }
+
+    private static final int PAINT_CHILD = 0;
+    private static final int PAINT_ATTACK = 1;
+    private static final int PAINT_STAMPED_ARGUMENT = 2;
+
+    /**
+     * Returns how a visible component is painted. Attacks are always painted
+     * by the attack renderer, whether they are children or stamps.
+     *
+     * @param comp the component
+     * @return PAINT_CHILD, PAINT_ATTACK or PAINT_STAMPED_ARGUMENT
+     */
+    private int getPaintKind(Component comp) {
+        if (comp instanceof Attack) {
+            return PAINT_ATTACK;
+        }
+
+        return (stamps.containsKey(comp) ? PAINT_STAMPED_ARGUMENT : PAINT_CHILD);
+    }
+
+    /**
+     * Paints a run of children, from the last to the first, the way
+     * JComponent.paintChildren paints each child: through a graphics
+     * translated and clipped to the child bounds, with the child color and
+     * font. Heavyweight children paint themselves. Arguments are not double
+     * buffered, so they paint straight into the scaled graphics.
+     *
+     * @param g the scaled graphics
+     * @param run the children
+     */
+    private void paintChildRun(Graphics g, List<Component> run) {
+        boolean printing = isPaintingForPrint();
+
+        for (int k = run.size() - 1; k >= 0; k--) {
+            Component comp = run.get(k);
+            if (!comp.isVisible() || !(comp instanceof JComponent || comp.isLightweight())) {
+                continue;
+            }
+
+            Rectangle cr = comp.getBounds();
+            Graphics cg = g.create(cr.x, cr.y, cr.width, cr.height);
+            try {
+                cg.setColor(comp.getForeground());
+                cg.setFont(comp.getFont());
+                if (printing) {
+                    comp.printAll(cg);
+                } else {
+                    comp.paint(cg);
+                }
+            } finally {
+                cg.dispose();
+            }
+        }
+    }
+
+    /**
+     * Stamps visible root arguments, from the last to the first, from their
+     * cached records.
+     *
+     * @param g the scaled graphics
+     * @param run the stamped arguments
+     */
+    private void paintArguments(Graphics g, List<Component> run) {
+        DetailLevel detail = myFramework.getDetailLevel();
+        Graphics2D g2D = (Graphics2D) g.create();
+
+        for (int k = run.size() - 1; k >= 0; k--) {
+            Argument arg = (Argument) run.get(k);
+            if (arg.isVisible()) {
+                argumentStamper.paint(g2D, arg.record(), arg.getX(), arg.getY(), detail, this);
+            }
+        }
+
+        g2D.dispose();
+    }
+
+    /**
+     * Paints visible attacks in a single batch.
+     *
+     * @param g the scaled graphics
+     * @param run the attacks
+     */
+    private void paintAttacks(Graphics g, List<Component> run) {
+        attackRenderer.begin(myFramework.getDetailLevel());
+        run.forEach((comp) -> {
+            if (comp.isVisible()) {
+                attackRenderer.add((Attack) comp);
+            }
+        });
+
+        Graphics2D g2D = (Graphics2D) g.create();
+        attackRenderer.paint(g2D);
+        g2D.dispose();
+    }
+
+    /**
+     * Updates the paint index entry of a child. Must be called every time a
+     * child changes its bounds.
+     *
+     * @param comp the child
+     */
+    void childBoundsChanged(Component comp) {
+        if (comp.getParent() != this && !stamps.containsKey(comp)) {
+            return;
+        }
+
+        Rectangle bounds = comp.getBounds();
+        Rectangle old = paintBounds.put(comp, bounds);
+        if (bounds.equals(old)) {
+            return;
+        }
+
+        if (old != null) {
+            paintIndex.remove(comp, old);
+        }
+        paintIndex.insert(comp, bounds);
+    }
+
+    /**
+     * Returns the index of every child, rebuilding the map if the children or
+     * their z order changed.
+     *
+     * @return map from child to its index
+     */
+    private Map<Component, Integer> getPaintOrder() {
+        if (paintOrder == null) {
+            Component[] children = getComponents();
+
+            paintOrder = new IdentityHashMap<>(children.length);
+            for (int k = 0; k < children.length; k++) {
+                paintOrder.put(children[k], k);
+            }
+        }
+
+        return paintOrder;
+    }
+
+    @Override
+    protected void addImpl(Component comp, Object constraints, int index) {
+        super.addImpl(comp, constraints, index);
+
+        paintOrder = null;
+        childBoundsChanged(comp);
+    }
+
+    @Override
+    public void remove(int index) {
+        Component comp = getComponent(index);
+        super.remove(index);
+
+        paintOrder = null;
+        Rectangle old = paintBounds.remove(comp);
+        if (old != null) {
+            paintIndex.remove(comp, old);
+        }
+    }
+
+    /**
+     * Removes every child and every stamped component.
+     */
+    @Override
+    public void removeAll() {
+        super.removeAll();
+
+        stamps.keySet().forEach((comp) -> {
+            comp.putClientProperty(STAMP_CANVAS_PROPERTY, null);
+        });
+        stamps.clear();
+
+        paintOrder = null;
+        paintBounds.clear();
+        paintIndex.clear();
+    }
+
+    @Override
+    public void setComponentZOrder(Component comp, int index) {
+        super.setComponentZOrder(comp, index);
+
+        paintOrder = null;
+    }
+}
@@ -0,0 +1,42 @@
+package utfpr.edu.argumentation.diagram;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.util.List;
+
+/**
+ * Places every root argument in a single row, top aligned, separated by a
+ * fixed gap. This is the default ArgumentionFramework layout.
+ *
+ * @author Henrique M R Jasinski
+ */
+public class SingleRowLayoutStrategy implements ArgumentLayoutStrategy {
+
+    private final int gap;
+
+    /**
+     * Constructor.
+     *
+     * @param gap horizontal space between arguments
+     */
+    public SingleRowLayoutStrategy(int gap) {
+        this.gap = gap;
+    }
+
+    @Override
+    public void place(List<Dimension> sizes, int from, List<Rectangle> bounds) {
+        int x = 0;
+
+        if (from > 0) {
+            Rectangle previous = bounds.get(from - 1);
+            x = previous.x + previous.width + gap;
+        }
+
+        for (int k = from; k < sizes.size(); k++) {
+            Dimension d = sizes.get(k);
+            bounds.add(new Rectangle(x, 0, d.width, d.height));
+
+            x += d.width + gap;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package utfpr.edu.argumentation.diagram;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Vector;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A rendered diagram that is never held in memory as a whole. The image is
+ * cut in strips of full width, and each strip in tiles; tiles are rendered
+ * on a pool of threads, a few strips ahead of the strip being read, and a
+ * strip is dropped once a later strip is read. Pixels are the same as the
+ * ones of a full DiagramRenderer.render.
+ *
+ * Meant to be read from top to bottom by a single thread, as image writers
+ * do; reading an earlier strip renders it again.
+ *
+ * @author Henrique M R Jasinski
+ */
+final class TiledDiagramImage implements RenderedImage {
+
+    private static final ColorModel COLOR_MODEL = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).getColorModel();
+
+    private final DiagramRenderer renderer;
+    private final DiagramRenderer.Layout layout;
+    private final double scaling;
+    private final int width;
+    private final int height;
+    private final int tileWidth;
+    private final int tileHeight;
+    private final int strips;
+    private final int ahead;
+    private final ExecutorService pool;
+
+    private final Deque<Strip> window = new ArrayDeque<>();
+    private final Deque<BufferedImage> spareStrips = new ArrayDeque<>();
+    private final ConcurrentLinkedQueue<BufferedImage> spareTiles = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructor.
+     *
+     * @param renderer the renderer
+     * @param layout the laid out diagram
+     * @param scaling the diagram scaling
+     * @param tileWidth tile width, in pixels
+     * @param tileHeight tile and strip height, in pixels
+     * @param pool the threads tiles are rendered on
+     * @param ahead number of strips rendered ahead of the one being read
+     */
+    TiledDiagramImage(DiagramRenderer renderer, DiagramRenderer.Layout layout, double scaling, int tileWidth, int tileHeight, ExecutorService pool, int ahead) {
+        this.renderer = renderer;
+        this.layout = layout;
+        this.scaling = scaling;
+        this.width = Math.max(1, layout.getSize(scaling).width);
+        this.height = Math.max(1, layout.getSize(scaling).height);
+        this.tileWidth = Math.min(tileWidth, width);
+        this.tileHeight = Math.min(tileHeight, height);
+        this.strips = (height + this.tileHeight - 1) / this.tileHeight;
+        this.ahead = Math.max(0, ahead);
+        this.pool = pool;
+
+        if ((long) width * this.tileHeight > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A strip of " + width + " x " + this.tileHeight + " pixels does not fit in an image.");
+        }
+    }
+
+    /**
+     * A strip being rendered. Its image may be read once done is released.
+     */
+    private static final class Strip {
+
+        private final int index;
+        private final BufferedImage image;
+        private final CountDownLatch done;
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        Strip(int index, BufferedImage image, int tiles) {
+            this.index = index;
+            this.image = image;
+            this.done = new CountDownLatch(tiles);
+        }
+    }
+
+    /**
+     * Returns the strip at index, rendered, and makes sure the following
+     * strips are being rendered. Strips before index are dropped.
+     */
+    private Strip getStrip(int index) {
+        while (!window.isEmpty() && window.peekFirst().index < index) {
+            recycle(window.pollFirst());
+        }
+        if (!window.isEmpty() && window.peekFirst().index > index) {
+            while (!window.isEmpty()) {
+                recycle(window.pollFirst());
+            }
+        }
+
+        int next = (window.isEmpty() ? index : window.peekLast().index + 1);
+        for (; next <= index + ahead && next < strips; next++) {
+            window.addLast(start(next));
+        }
+
+        Strip strip = window.peekFirst();
+        try {
+            strip.done.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while rendering the diagram");
+        }
+
+        if (strip.error.get() != null) {
+            throw new IllegalStateException("The diagram could not be rendered", strip.error.get());
+        }
+
+        return strip;
+    }
+
+    private Strip start(int index) {
+        BufferedImage image = spareStrips.poll();
+        if (image == null) {
+            image = new BufferedImage(width, tileHeight, BufferedImage.TYPE_INT_RGB);
+        }
+
+        int y = index * tileHeight;
+        int h = Math.min(tileHeight, height - y);
+        int tiles = (width + tileWidth - 1) / tileWidth;
+        Strip strip = new Strip(index, image, tiles);
+
+        for (int k = 0; k < tiles; k++) {
+            int x = k * tileWidth;
+            int w = Math.min(tileWidth, width - x);
+            pool.execute(() -> {
+                try {
+                    if (strip.error.get() == null) {
+                        renderTile(strip.image, x, y, w, h);
+                    }
+                } catch (RuntimeException | Error ex) {
+                    strip.error.compareAndSet(null, ex);
+                } finally {
+                    strip.done.countDown();
+                }
+            });
+        }
+
+        return strip;
+    }
+
+    /**
+     * Waits for a dropped strip, so its image is no longer written, and keeps
+     * the image for a later strip.
+     */
+    private void recycle(Strip strip) {
+        try {
+            strip.done.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        spareStrips.push(strip.image);
+    }
+
+    /**
+     * Renders the tile at x, y of the diagram and copies it into the strip
+     * image. Runs on the pool; tile images are shared by the pool threads.
+     */
+    private void renderTile(BufferedImage stripImage, int x, int y, int w, int h) {
+        BufferedImage tile = spareTiles.poll();
+        if (tile == null) {
+            tile = new BufferedImage(tileWidth, tileHeight, BufferedImage.TYPE_INT_RGB);
+        }
+
+        Graphics2D g = tile.createGraphics();
+        g.clipRect(0, 0, w, h);
+        g.translate(-x, -y);
+        renderer.paint(g, layout, scaling);
+        g.dispose();
+
+        int[] src = ((DataBufferInt) tile.getRaster().getDataBuffer()).getData();
+        int[] dst = ((DataBufferInt) stripImage.getRaster().getDataBuffer()).getData();
+        for (int row = 0; row < h; row++) {
+            System.arraycopy(src, row * tileWidth, dst, row * width + x, w);
+        }
+
+        spareTiles.add(tile);
+    }
+
+    @Override
+    public Vector<RenderedImage> getSources() {
+        return null;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        return Image.UndefinedProperty;
+    }
+
+    @Override
+    public String[] getPropertyNames() {
+        return null;
+    }
+
+    @Override
+    public ColorModel getColorModel() {
+        return COLOR_MODEL;
+    }
+
+    @Override
+    public SampleModel getSampleModel() {
+        return COLOR_MODEL.createCompatibleSampleModel(width, tileHeight);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getMinX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinY() {
+        return 0;
+    }
+
+    @Override
+    public int getNumXTiles() {
+        return 1;
+    }
+
+    @Override
+    public int getNumYTiles() {
+        return strips;
+    }
+
+    @Override
+    public int getMinTileX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinTileY() {
+        return 0;
+    }
+
+    @Override
+    public int getTileWidth() {
+        return width;
+    }
+
+    @Override
+    public int getTileHeight() {
+        return tileHeight;
+    }
+
+    @Override
+    public int getTileGridXOffset() {
+        return 0;
+    }
+
+    @Override
+    public int getTileGridYOffset() {
+        return 0;
+    }
+
+    /**
+     * Returns a strip of the image. The raster shares the pixels of the
+     * strip, and is only valid until another strip is read.
+     */
+    @Override
+    public Raster getTile(int tileX, int tileY) {
+        if (tileX != 0 || tileY < 0 || tileY >= strips) {
+            throw new IllegalArgumentException("Invalid tile " + tileX + ", " + tileY);
+        }
+
+        Strip strip = getStrip(tileY);
+        int y = tileY * tileHeight;
+        int h = Math.min(tileHeight, height - y);
+
+        return strip.image.getRaster().createChild(0, 0, width, h, 0, y, null);
+    }
+
+    /**
+     * Returns the whole image. Only for diagrams that fit in memory.
+     */
+    @Override
+    public Raster getData() {
+        return getData(new Rectangle(0, 0, width, height));
+    }
+
+    @Override
+    public Raster getData(Rectangle rect) {
+        WritableRaster raster = COLOR_MODEL.createCompatibleWritableRaster(rect.width, rect.height).createWritableTranslatedChild(rect.x, rect.y);
+        return copyData(raster);
+    }
+
+    @Override
+    public WritableRaster copyData(WritableRaster raster) {
+        if (raster == null) {
+            return (WritableRaster) getData();
+        }
+
+        Rectangle bounds = raster.getBounds().intersection(new Rectangle(0, 0, width, height));
+        if (bounds.isEmpty()) {
+            return raster;
+        }
+
+        int first = bounds.y / tileHeight;
+        int last = (bounds.y + bounds.height - 1) / tileHeight;
+        for (int k = first; k <= last; k++) {
+            Raster strip = getTile(0, k);
+            Rectangle part = strip.getBounds().intersection(bounds);
+            raster.setDataElements(0, 0, strip.createChild(part.x, part.y, part.width, part.height, part.x, part.y, null));
+        }
+
+        return raster;
+    }
+}
@@ -0,0 +1,65 @@
+package utfpr.edu.argumentation.diagram;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.util.List;
+
+/**
+ * Places the root arguments in rows no wider than a target width, so the
+ * canvas grows in both directions with the content instead of only in width.
+ * An argument wider than the target width gets a row of its own.
+ *
+ * @author Henrique M R Jasinski
+ */
+public class WrappingLayoutStrategy implements ArgumentLayoutStrategy {
+
+    private final int targetWidth;
+    private final int hgap;
+    private final int vgap;
+
+    /**
+     * Constructor.
+     *
+     * @param targetWidth maximum row width
+     * @param hgap horizontal space between arguments
+     * @param vgap vertical space between rows
+     */
+    public WrappingLayoutStrategy(int targetWidth, int hgap, int vgap) {
+        this.targetWidth = targetWidth;
+        this.hgap = hgap;
+        this.vgap = vgap;
+    }
+
+    @Override
+    public void place(List<Dimension> sizes, int from, List<Rectangle> bounds) {
+        int x = 0;
+        int y = 0;
+        int rowHeight = 0;
+
+        // Resume at the end of the row that holds the previous argument
+        if (from > 0) {
+            Rectangle previous = bounds.get(from - 1);
+            x = previous.x + previous.width + hgap;
+            y = previous.y;
+
+            for (int k = from - 1; k >= 0 && bounds.get(k).y == y; k--) {
+                rowHeight = Math.max(rowHeight, bounds.get(k).height);
+            }
+        }
+
+        for (int k = from; k < sizes.size(); k++) {
+            Dimension d = sizes.get(k);
+
+            if (x > 0 && x + d.width > targetWidth) {
+                y += rowHeight + vgap;
+                x = 0;
+                rowHeight = 0;
+            }
+
+            bounds.add(new Rectangle(x, y, d.width, d.height));
+
+            x += d.width + hgap;
+            rowHeight = Math.max(rowHeight, d.height);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package utfpr.edu.swing.utils;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A region quadtree that indexes items by their bounding rectangles. Each item
+ * is stored in the deepest node whose quadrant fully contains its rectangle, so
+ * point and rectangle queries only visit the few nodes that overlap the query.
+ * The root region grows automatically when an item falls outside of it.
+ *
+ * @author Henrique M R Jasinski
+ * @param <T> the indexed item type
+ */
+public class QuadTree<T> {
+
+    private static final int DEFAULT_SIZE = 1024;
+    private static final int MAX_ITEMS = 8;
+    private static final int MAX_DEPTH = 16;
+
+    private Node root;
+    private int size = 0;
+
+    /**
+     * Constructor. The initial region is (0, 0, 1024, 1024).
+     */
+    public QuadTree() {
+        root = new Node(new Rectangle(0, 0, DEFAULT_SIZE, DEFAULT_SIZE), 0);
+    }
+
+    /**
+     * Adds an item with the given bounds. The same item may be added more
+     * than once with different bounds. Empty bounds are ignored, since they
+     * can never be hit.
+     *
+     * @param item the item
+     * @param bounds the item bounds
+     */
+    public void insert(T item, Rectangle bounds) {
+        if (bounds.isEmpty()) {
+            return;
+        }
+
+        Rectangle r = new Rectangle(bounds);
+
+        if (!root.bounds.contains(r)) {
+            grow(r);
+        }
+
+        root.insert(new Entry<>(item, r));
+        size++;
+    }
+
+    /**
+     * Removes an item previously added with the given bounds.
+     *
+     * @param item the item
+     * @param bounds the bounds the item was added with
+     * @return true if the item was found and removed, false otherwise
+     */
+    public boolean remove(T item, Rectangle bounds) {
+        if (root.remove(item, bounds)) {
+            size--;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Collects every item whose bounds contain the point (x, y).
+     *
+     * @param x point x position
+     * @param y point y position
+     * @param result collection that receives the items
+     * @return the result collection
+     */
+    public <C extends Collection<? super T>> C query(int x, int y, C result) {
+        root.query(x, y, result);
+        return result;
+    }
+
+    /**
+     * Collects every item whose bounds intersect the area.
+     *
+     * @param area query area
+     * @param result collection that receives the items
+     * @return the result collection
+     */
+    public <C extends Collection<? super T>> C query(Rectangle area, C result) {
+        root.query(area, result);
+        return result;
+    }
+
+    /**
+     * Removes every item.
+     */
+    public void clear() {
+        root = new Node(new Rectangle(0, 0, DEFAULT_SIZE, DEFAULT_SIZE), 0);
+        size = 0;
+    }
+
+    /**
+     * Returns the number of indexed entries.
+     *
+     * @return number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Doubles the root region towards r until it fits, then reinserts every
+     * entry.
+     *
+     * @param r rectangle that must fit in the root region
+     */
+    private void grow(Rectangle r) {
+        Rectangle b = new Rectangle(root.bounds);
+
+        while (!b.contains(r)) {
+            int x = (r.x < b.x ? b.x - b.width : b.x);
+            int y = (r.y < b.y ? b.y - b.height : b.y);
+            b.setBounds(x, y, b.width * 2, b.height * 2);
+        }
+
+        List<Entry<T>> entries = new ArrayList<>(size);
+        root.collect(entries);
+
+        root = new Node(b, 0);
+        entries.forEach((e) -> {
+            root.insert(e);
+        });
+    }
+
+    private static class Entry<T> {
+
+        final T item;
+        final Rectangle bounds;
+
+        Entry(T item, Rectangle bounds) {
+            this.item = item;
+            this.bounds = bounds;
+        }
+    }
+
+    private class Node {
+
+        final Rectangle bounds;
+        final int depth;
+        final ArrayList<Entry<T>> entries = new ArrayList<>(4);
+        Node[] children = null;
+
+        Node(Rectangle bounds, int depth) {
+            this.bounds = bounds;
+            this.depth = depth;
+        }
+
+        /**
+         * Returns the child that fully contains r, null if none does.
+         */
+        Node childFor(Rectangle r) {
+            if (children != null) {
+                for (Node child : children) {
+                    if (child.bounds.contains(r)) {
+                        return child;
+                    }
+                }
+            }
+
+            return null;
+        }
+
+        void insert(Entry<T> e) {
+            Node child = childFor(e.bounds);
+            if (child != null) {
+                child.insert(e);
+                return;
+            }
+
+            entries.add(e);
+
+            if (children == null && entries.size() > MAX_ITEMS && depth < MAX_DEPTH && bounds.width > 1 && bounds.height > 1) {
+                split();
+            }
+        }
+
+        void split() {
+            int hw = bounds.width / 2;
+            int hh = bounds.height / 2;
+
+            children = newChildren();
+            children[0] = new Node(new Rectangle(bounds.x, bounds.y, hw, hh), depth + 1);
+            children[1] = new Node(new Rectangle(bounds.x + hw, bounds.y, bounds.width - hw, hh), depth + 1);
+            children[2] = new Node(new Rectangle(bounds.x, bounds.y + hh, hw, bounds.height - hh), depth + 1);
+            children[3] = new Node(new Rectangle(bounds.x + hw, bounds.y + hh, bounds.width - hw, bounds.height - hh), depth + 1);
+
+            ArrayList<Entry<T>> kept = new ArrayList<>(entries.size());
+            for (Entry<T> e : entries) {
+                Node child = childFor(e.bounds);
+                if (child != null) {
+                    child.insert(e);
+                } else {
+                    kept.add(e);
+                }
+            }
+
+            entries.clear();
+            entries.addAll(kept);
+        }
+
+        /**
+         * Creates the array of the four children. An array of an inner class
+         * of a generic class can only be created with a wildcard type.
+         */
+        @SuppressWarnings("unchecked")
+        Node[] newChildren() {
+            return (Node[]) new QuadTree<?>.Node[4];
+        }
+
+        boolean remove(T item, Rectangle r) {
+            Node child = childFor(r);
+            if (child != null) {
+                return child.remove(item, r);
+            }
+
+            for (int k = 0; k < entries.size(); k++) {
+                Entry<T> e = entries.get(k);
+                if (Objects.equals(e.item, item) && e.bounds.equals(r)) {
+                    entries.remove(k);
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        void query(int x, int y, Collection<? super T> result) {
+            for (Entry<T> e : entries) {
+                if (e.bounds.contains(x, y)) {
+                    result.add(e.item);
+                }
+            }
+
+            if (children != null) {
+                for (Node child : children) {
+                    if (child.bounds.contains(x, y)) {
+                        child.query(x, y, result);
+                        return;
+                    }
+                }
+            }
+        }
+
+        void query(Rectangle area, Collection<? super T> result) {
+            for (Entry<T> e : entries) {
+                if (e.bounds.intersects(area)) {
+                    result.add(e.item);
+                }
+            }
+
+            if (children != null) {
+                for (Node child : children) {
+                    if (child.bounds.intersects(area)) {
+                        child.query(area, result);
+                    }
+                }
+            }
+        }
+
+        void collect(List<Entry<T>> result) {
+            result.addAll(entries);
+
+            if (children != null) {
+                for (Node child : children) {
+                    child.collect(result);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package utfpr.edu.swing.utils;
+
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Insets;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import javax.swing.JLabel;
+import javax.swing.SwingConstants;
+
+/**
+ * A JLabel that displays a ScriptedText. Scripted texts are drawn by the
+ * shared ScriptedTextRenderer unless the label uses the html path, in which
+ * case Swing renders the text markup as before.
+ *
+ * The default path is the renderer; setting the system property
+ * "utfpr.edu.swing.utils.htmlLabels" to true, or calling setHtmlDefault(true),
+ * selects the html path for labels created afterwards.
+ *
+ * @author Henrique M R Jasinski
+ */
+public class ScriptedLabel extends JLabel {
+
+    private static final long serialVersionUID = 1L;
+
+    private static volatile boolean htmlDefault = Boolean.getBoolean("utfpr.edu.swing.utils.htmlLabels");
+
+    private final boolean html;
+    private ScriptedText scriptedText;
+    private boolean rendered;
+
+    /**
+     * Constructor.
+     *
+     * @param text the displayed text
+     */
+    public ScriptedLabel(ScriptedText text) {
+        this(text, htmlDefault);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param text the displayed text
+     * @param html if the text is rendered by Swing as html
+     */
+    public ScriptedLabel(ScriptedText text, boolean html) {
+        super((html || !text.isScripted()) ? text.toHtml() : text.getText());
+        this.html = html;
+        this.scriptedText = text;
+        this.rendered = !html && text.isScripted();
+    }
+
+    /**
+     * Replaces the displayed text. Used by labels that are reused as
+     * renderers for many texts.
+     *
+     * @param text the displayed text
+     */
+    public void setScriptedText(ScriptedText text) {
+        this.scriptedText = text;
+        this.rendered = !html && text.isScripted();
+        setText((html || !text.isScripted()) ? text.toHtml() : text.getText());
+    }
+
+    /**
+     * Defines if labels created from now on use the html path.
+     *
+     * @param html if new labels are rendered by Swing as html
+     */
+    public static void setHtmlDefault(boolean html) {
+        htmlDefault = html;
+    }
+
+    /**
+     * If labels created from now on use the html path.
+     *
+     * @return true if new labels are rendered by Swing as html
+     */
+    public static boolean isHtmlDefault() {
+        return htmlDefault;
+    }
+
+    /**
+     * Returns the displayed text.
+     *
+     * @return the scripted text
+     */
+    public ScriptedText getScriptedText() {
+        return scriptedText;
+    }
+
+    /**
+     * If the text is drawn by the ScriptedTextRenderer.
+     *
+     * @return true if the renderer draws the text, false if Swing does
+     */
+    public boolean isRendered() {
+        return rendered;
+    }
+
+    private FontRenderContext getRenderContext() {
+        return getFontMetrics(getFont()).getFontRenderContext();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (!rendered || isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+
+        Dimension d = ScriptedTextRenderer.getDefault().getSize(scriptedText, getFont(), getRenderContext());
+        Insets insets = getInsets();
+        d.width += insets.left + insets.right;
+        d.height += insets.top + insets.bottom;
+
+        return d;
+    }
+
+    @Override
+    public Dimension getMinimumSize() {
+        if (!rendered || isMinimumSizeSet()) {
+            return super.getMinimumSize();
+        }
+
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getBaseline(int width, int height) {
+        if (!rendered) {
+            return super.getBaseline(width, height);
+        }
+
+        ScriptedTextRenderer renderer = ScriptedTextRenderer.getDefault();
+        Font font = getFont();
+        FontRenderContext frc = getRenderContext();
+        Insets insets = getInsets();
+        int textHeight = renderer.getSize(scriptedText, font, frc).height;
+
+        return insets.top + ((height - insets.top - insets.bottom - textHeight) / 2) + renderer.getBaseline(scriptedText, font, frc);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        if (!rendered) {
+            super.paintComponent(g);
+            return;
+        }
+
+        if (isOpaque()) {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+        }
+
+        ScriptedTextRenderer renderer = ScriptedTextRenderer.getDefault();
+        Font font = getFont();
+        FontRenderContext frc = getRenderContext();
+        Dimension size = renderer.getSize(scriptedText, font, frc);
+        Insets insets = getInsets();
+
+        int x = insets.left;
+        int availableW = getWidth() - insets.left - insets.right;
+        int alignment = getHorizontalAlignment();
+        boolean leftToRight = getComponentOrientation().isLeftToRight();
+        if (alignment == SwingConstants.CENTER) {
+            x += (availableW - size.width) / 2;
+        } else if (alignment == SwingConstants.RIGHT || (alignment == SwingConstants.TRAILING && leftToRight) || (alignment == SwingConstants.LEADING && !leftToRight)) {
+            x += availableW - size.width;
+        }
+
+        int y = insets.top + ((getHeight() - insets.top - insets.bottom - size.height) / 2);
+
+        Graphics2D g2d = (Graphics2D) g.create();
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, frc.getAntiAliasingHint());
+        g2d.setColor(getForeground());
+        renderer.paint(g2d, scriptedText, font, frc, x, y);
+        g2d.dispose();
+    }
+}
@@ -0,0 +1,127 @@
+package utfpr.edu.swing.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable label text in the form "base_subscript^superscript", parsed once.
+ * Texts that do not follow that form are kept as plain text. Parsed instances
+ * are interned, so equal labels usually share the same instance. As the
+ * ScriptedTextRenderer cache, the table is cleared once it holds MAX_INTERNED
+ * texts, so it does not grow with every text ever parsed.
+ *
+ * @author Henrique M R Jasinski
+ */
+public final class ScriptedText {
+
+    private static final Pattern SCRIPTED_PATTERN = Pattern.compile("^([a-zA-Z0-9]*)(_([a-zA-Z0-9]*))?(\\^([a-zA-Z0-9]*))?");
+    private static final int MAX_INTERNED = 16384;
+    private static final ConcurrentHashMap<String, ScriptedText> INTERNED = new ConcurrentHashMap<>();
+
+    private final String text;
+    private final boolean scripted;
+    private final String base;
+    private final String subscript;
+    private final String superscript;
+    private final String html;
+
+    private ScriptedText(String text) {
+        this.text = text;
+
+        Matcher m = SCRIPTED_PATTERN.matcher(text);
+        this.scripted = m.matches();
+
+        if (scripted) {
+            this.base = m.group(1);
+            this.subscript = (m.group(3) == null ? "" : m.group(3));
+            this.superscript = (m.group(5) == null ? "" : m.group(5));
+            this.html = "<html>" + base + "<sub>" + subscript + "</sub><sup>" + superscript + "</sup></html>";
+        } else {
+            this.base = text;
+            this.subscript = "";
+            this.superscript = "";
+            this.html = text;
+        }
+    }
+
+    /**
+     * Returns the parsed instance of a text.
+     *
+     * @param text the label text
+     * @return the parsed text
+     */
+    public static ScriptedText parse(String text) {
+        ScriptedText parsed = INTERNED.get(text);
+
+        if (parsed == null) {
+            if (INTERNED.size() >= MAX_INTERNED) {
+                INTERNED.clear();
+            }
+
+            parsed = INTERNED.computeIfAbsent(text, ScriptedText::new);
+        }
+
+        return parsed;
+    }
+
+    /**
+     * Returns the original text.
+     *
+     * @return the text
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * If the text follows the "base_subscript^superscript" form.
+     *
+     * @return true if the text has a base, subscript and superscript
+     */
+    public boolean isScripted() {
+        return scripted;
+    }
+
+    /**
+     * Returns the base text, or the whole text if it is not scripted.
+     *
+     * @return the base text
+     */
+    public String getBase() {
+        return base;
+    }
+
+    /**
+     * Returns the subscript, empty if there is none.
+     *
+     * @return the subscript
+     */
+    public String getSubscript() {
+        return subscript;
+    }
+
+    /**
+     * Returns the superscript, empty if there is none.
+     *
+     * @return the superscript
+     */
+    public String getSuperscript() {
+        return superscript;
+    }
+
+    /**
+     * Returns the html markup of the text, without any color. Plain texts are
+     * returned unchanged.
+     *
+     * @return the label markup
+     */
+    public String toHtml() {
+        return html;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
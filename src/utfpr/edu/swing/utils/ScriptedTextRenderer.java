@@ -0,0 +1,212 @@
+package utfpr.edu.swing.utils;
+
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineMetrics;
+import java.awt.font.TextLayout;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Draws a ScriptedText with TextLayouts, as a base run followed by the
+ * subscript and superscript runs. The runs are shaped and measured once per
+ * text, font and render context, and shared by every label that displays the
+ * same text. This avoids building one html View tree per label.
+ *
+ * @author Henrique M R Jasinski
+ */
+public final class ScriptedTextRenderer {
+
+    /**
+     * Size of the subscript and superscript, relative to the base font size.
+     */
+    public static final float SCRIPT_SCALE = 0.75f;
+
+    /**
+     * Distance from the base baseline down to the subscript baseline,
+     * relative to the base font size.
+     */
+    public static final float SUBSCRIPT_SHIFT = 0.25f;
+
+    /**
+     * Distance from the base baseline up to the superscript baseline,
+     * relative to the base font size.
+     */
+    public static final float SUPERSCRIPT_SHIFT = 0.4f;
+
+    private static final int MAX_CACHED = 16384;
+
+    private static final ScriptedTextRenderer DEFAULT = new ScriptedTextRenderer();
+
+    private final ConcurrentHashMap<Key, Runs> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the shared renderer.
+     *
+     * @return the shared renderer
+     */
+    public static ScriptedTextRenderer getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the size of the text, rounded up to whole pixels.
+     *
+     * @param text the text
+     * @param font the base font
+     * @param frc the render context the text is measured with
+     * @return the text size
+     */
+    public Dimension getSize(ScriptedText text, Font font, FontRenderContext frc) {
+        Runs runs = getRuns(text, font, frc);
+        return new Dimension(runs.width, runs.height);
+    }
+
+    /**
+     * Returns the distance from the top of the text to the base run baseline.
+     *
+     * @param text the text
+     * @param font the base font
+     * @param frc the render context the text is measured with
+     * @return the baseline position
+     */
+    public int getBaseline(ScriptedText text, Font font, FontRenderContext frc) {
+        return (int) Math.ceil(getRuns(text, font, frc).ascent);
+    }
+
+    /**
+     * Paints the text with the current paint of g.
+     *
+     * @param g the graphics instance
+     * @param text the text
+     * @param font the base font
+     * @param frc the render context the text was measured with
+     * @param x left position
+     * @param y top position
+     */
+    public void paint(Graphics2D g, ScriptedText text, Font font, FontRenderContext frc, float x, float y) {
+        Runs runs = getRuns(text, font, frc);
+        float baseline = y + (float) Math.ceil(runs.ascent);
+
+        if (runs.base != null) {
+            runs.base.draw(g, x, baseline);
+        }
+
+        if (runs.subscript != null) {
+            runs.subscript.draw(g, x + runs.subscriptX, baseline + runs.subscriptShift);
+        }
+
+        if (runs.superscript != null) {
+            runs.superscript.draw(g, x + runs.superscriptX, baseline - runs.superscriptShift);
+        }
+    }
+
+    /**
+     * Removes every cached measurement.
+     */
+    public void clearCache() {
+        cache.clear();
+    }
+
+    private Runs getRuns(ScriptedText text, Font font, FontRenderContext frc) {
+        Key key = new Key(text, font, frc);
+        Runs runs = cache.get(key);
+
+        if (runs == null) {
+            if (cache.size() >= MAX_CACHED) {
+                cache.clear();
+            }
+
+            runs = new Runs(text, font, frc);
+            cache.put(key, runs);
+        }
+
+        return runs;
+    }
+
+    private static TextLayout layout(String str, Font font, FontRenderContext frc) {
+        return (str.isEmpty() ? null : new TextLayout(str, font, frc));
+    }
+
+    private static final class Runs {
+
+        final TextLayout base;
+        final TextLayout subscript;
+        final TextLayout superscript;
+        final float subscriptX;
+        final float superscriptX;
+        final float subscriptShift;
+        final float superscriptShift;
+        final float ascent;
+        final int width;
+        final int height;
+
+        Runs(ScriptedText text, Font font, FontRenderContext frc) {
+            Font scriptFont = font.deriveFont(font.getSize2D() * SCRIPT_SCALE);
+
+            base = layout(text.getBase(), font, frc);
+            subscript = layout(text.getSubscript(), scriptFont, frc);
+            superscript = layout(text.getSuperscript(), scriptFont, frc);
+
+            subscriptShift = font.getSize2D() * SUBSCRIPT_SHIFT;
+            superscriptShift = font.getSize2D() * SUPERSCRIPT_SHIFT;
+
+            // Empty runs still take the line height of their font
+            LineMetrics metrics = (base == null ? font.getLineMetrics("X", frc) : null);
+            float baseAscent = (base != null ? base.getAscent() : metrics.getAscent());
+            float baseDescent = (base != null ? base.getDescent() : metrics.getDescent());
+
+            float asc = baseAscent;
+            float desc = baseDescent;
+            float w = (base != null ? base.getAdvance() : 0);
+
+            subscriptX = w;
+            if (subscript != null) {
+                w += subscript.getAdvance();
+                desc = Math.max(desc, subscriptShift + subscript.getDescent());
+            }
+
+            superscriptX = w;
+            if (superscript != null) {
+                w += superscript.getAdvance();
+                asc = Math.max(asc, superscriptShift + superscript.getAscent());
+            }
+
+            ascent = asc;
+            width = (int) Math.ceil(w);
+            height = (int) Math.ceil(asc) + (int) Math.ceil(desc);
+        }
+    }
+
+    private static final class Key {
+
+        final ScriptedText text;
+        final Font font;
+        final FontRenderContext frc;
+        final int hash;
+
+        Key(ScriptedText text, Font font, FontRenderContext frc) {
+            this.text = text;
+            this.font = font;
+            this.frc = frc;
+            this.hash = Objects.hash(System.identityHashCode(text), font, frc);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            Key k = (Key) obj;
+            return k.text == text && k.font.equals(font) && k.frc.equals(frc);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
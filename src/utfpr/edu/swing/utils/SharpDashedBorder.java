@@ -23,6 +23,7 @@ public class SharpDashedBorder extends AbstractBorder {
     private final float miterlimit;
     private final float[] dash;
     private final float dash_phase;
+    private final BasicStroke stroke;
 
     /**
      * Constructor receives the BasicStroke parameters, the inset of the border and the border color.
@@ -44,6 +45,7 @@ public class SharpDashedBorder extends AbstractBorder {
         this.miterlimit = miterlimit;
         this.dash = dash;
         this.dash_phase = dash_phase;
+        this.stroke = new BasicStroke(tickness, cap, join, miterlimit, dash, dash_phase);
     }
 
     /**
@@ -63,7 +65,7 @@ public class SharpDashedBorder extends AbstractBorder {
         if (g instanceof Graphics2D) {
             g2d = (Graphics2D) g.create();
             g2d.setColor(borderColour);
-            g2d.setStroke(new BasicStroke(tickness, cap, join, miterlimit, dash, dash_phase));
+            g2d.setStroke(stroke);
             //Left Border
             g2d.drawLine(x + ((int)(tickness/2)), height, x + ((int)(tickness/2)), y);
             // Top Border
@@ -0,0 +1,90 @@
+package utfpr.edu.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import utfpr.edu.argumentation.diagram.Argument;
+import utfpr.edu.argumentation.diagram.ArgumentionFramework;
+import utfpr.edu.argumentation.diagram.Atom;
+
+/**
+ * Measures ArgumentionFramework.autoOrderArguments on synthetic frameworks.
+ * Arguments are grouped in clusters that mostly attack each other, and are
+ * added in random order. The total attack length, in pixels, is printed before
+ * and after ordering.
+ *
+ * @author Henrique M R Jasinski
+ */
+public class ArgumentOrderingBenchmark {
+
+    private static final int CLUSTER_SIZE = 12;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args optional list of framework sizes, 1000 2000 5000 by default.
+     */
+    public static void main(String[] args) {
+        int[] sizes = {1000, 2000, 5000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int k = 0; k < args.length; k++) {
+                sizes[k] = Integer.parseInt(args[k]);
+            }
+        }
+
+        for (int n : sizes) {
+            for (long budget : new long[]{50, 500}) {
+                run(n, budget);
+            }
+        }
+    }
+
+    private static void run(int n, long budget) {
+        Random rnd = new Random(n);
+        ArgumentionFramework framework = new ArgumentionFramework();
+
+        List<Argument> arguments = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) {
+            arguments.add(new Argument(new Atom("c_" + k, null), "A_" + k, null).setMyFramework(framework));
+        }
+
+        List<Argument> shuffled = new ArrayList<>(arguments);
+        Collections.shuffle(shuffled, rnd);
+        shuffled.forEach((arg) -> {
+            framework.addArgument(arg);
+        });
+
+        List<Argument[]> attacks = new ArrayList<>(2 * n);
+        for (int k = 0; k < 2 * n; k++) {
+            int a = rnd.nextInt(n);
+            int b = (rnd.nextInt(10) == 0 ? rnd.nextInt(n) : (a / CLUSTER_SIZE) * CLUSTER_SIZE + rnd.nextInt(CLUSTER_SIZE));
+
+            if (b < n && a != b) {
+                framework.addAttack(arguments.get(a), arguments.get(b), false);
+                attacks.add(new Argument[]{arguments.get(a), arguments.get(b)});
+            }
+        }
+
+        framework.repositionComponents();
+        long before = span(attacks);
+
+        long start = System.nanoTime();
+        framework.autoOrderArguments(budget);
+        long elapsed = System.nanoTime() - start;
+
+        long after = span(attacks);
+
+        System.out.println(String.format("arguments %5d  attacks %5d  budget %4d ms  time %7.1f ms  span %,12d -> %,12d (%.1f%%)",
+                n, attacks.size(), budget, elapsed / 1e6, before, after, 100.0 * after / before));
+    }
+
+    private static long span(List<Argument[]> attacks) {
+        long span = 0;
+        for (Argument[] attack : attacks) {
+            span += Math.abs(attack[0].getX() - attack[1].getX());
+        }
+        return span;
+    }
+}
@@ -0,0 +1,117 @@
+package utfpr.edu.test;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import javax.swing.SwingUtilities;
+import utfpr.edu.argumentation.diagram.Argument;
+import utfpr.edu.argumentation.diagram.ArgumentionFramework;
+import utfpr.edu.argumentation.diagram.Atom;
+
+/**
+ * Measures the heap held by a framework with many attacks, before and after
+ * it is painted. Each root argument attacks the ten roots that follow it, so
+ * attacks are a few hundred pixels wide. The framework is painted in tiles
+ * of 1024 x 1024 pixels, and the used heap is read after a garbage
+ * collection, with the tile image dropped.
+ *
+ * @author Henrique M R Jasinski
+ */
+public class AttackHeapBenchmark {
+
+    private static final int TILE_SIZE = 1024;
+
+    private static ArgumentionFramework framework;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args optional number of attacks, 10000 by default
+     * @throws InterruptedException if interrupted while waiting for the EDT
+     * @throws InvocationTargetException if the framework can not be built or
+     * painted
+     */
+    public static void main(String[] args) throws InterruptedException, InvocationTargetException {
+        int attacks = (args.length > 0 ? Integer.parseInt(args[0]) : 10000);
+        int span = 10;
+
+        long empty = usedHeap();
+        SwingUtilities.invokeAndWait(() -> {
+            framework = createFramework(attacks, span);
+        });
+        // Lets the canvas follow the framework size
+        SwingUtilities.invokeAndWait(() -> {
+            framework.doLayout();
+        });
+        long built = usedHeap();
+
+        SwingUtilities.invokeAndWait(() -> {
+            paint(framework);
+        });
+        long painted = usedHeap();
+
+        Dimension size = framework.getPreferredSize();
+        System.out.println(String.format(Locale.ROOT, "%d attacks, diagram of %d x %d pixels", attacks, size.width, size.height));
+        System.out.println(String.format(Locale.ROOT, "framework built: %.1f MiB", (built - empty) / 1048576.0));
+        System.out.println(String.format(Locale.ROOT, "framework painted: %.1f MiB", (painted - empty) / 1048576.0));
+        System.out.println(String.format(Locale.ROOT, "held by painting: %.1f MiB", (painted - built) / 1048576.0));
+    }
+
+    private static ArgumentionFramework createFramework(int attacks, int span) {
+        ArgumentionFramework af = new ArgumentionFramework();
+
+        int n = (attacks + span - 1) / span + span;
+        List<Argument> roots = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) {
+            Atom premise = new Atom("p_" + k, true).setMyFramewrok(af);
+            Atom conclusion = new Atom("c_" + k, k % 2 == 0).setMyFramewrok(af);
+            Argument root = new Argument(conclusion, "A_" + k, "r_" + k, new Argument(premise, "A_" + k + "1", "r_1")).setMyFramework(af);
+            af.addArgument(root);
+            roots.add(root);
+        }
+
+        int added = 0;
+        for (int d = 1; d <= span && added < attacks; d++) {
+            for (int k = 0; k + d < n && added < attacks; k++) {
+                af.addAttack(roots.get(k), roots.get(k + d), false);
+                added++;
+            }
+        }
+
+        af.setSize(af.getPreferredSize());
+        af.repositionComponents();
+        return af;
+    }
+
+    /**
+     * Prints the whole framework, one tile at a time.
+     */
+    private static void paint(ArgumentionFramework af) {
+        Dimension size = af.getSize();
+        BufferedImage tile = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+
+        for (int y = 0; y < size.height; y += TILE_SIZE) {
+            for (int x = 0; x < size.width; x += TILE_SIZE) {
+                Graphics2D g = tile.createGraphics();
+                g.clipRect(0, 0, TILE_SIZE, TILE_SIZE);
+                g.translate(-x, -y);
+                af.printAll(g);
+                g.dispose();
+            }
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int k = 0; k < 5; k++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,86 @@
+package utfpr.edu.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import utfpr.edu.argumentation.diagram.ArgumentModel;
+import utfpr.edu.argumentation.diagram.AttackModel;
+import utfpr.edu.argumentation.diagram.DiagramExporter;
+import utfpr.edu.argumentation.diagram.DiagramModel;
+import utfpr.edu.argumentation.diagram.DiagramRenderer;
+
+/**
+ * Measures DiagramExporter on synthetic diagrams of 20 to 60 arguments,
+ * written as PNG files to a temporary directory. The batch report is printed
+ * for each number of worker threads.
+ *
+ * @author Henrique M R Jasinski
+ */
+public class DiagramExportBenchmark {
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args optional number of diagrams, 500 by default, followed by
+     * the numbers of worker threads, 1 2 4 8 by default.
+     * @throws IOException if the temporary directory can not be created
+     * @throws InterruptedException if interrupted while exporting
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int count = (args.length > 0 ? Integer.parseInt(args[0]) : 500);
+        int[] threads = {1, 2, 4, 8};
+        if (args.length > 1) {
+            threads = new int[args.length - 1];
+            for (int k = 1; k < args.length; k++) {
+                threads[k - 1] = Integer.parseInt(args[k]);
+            }
+        }
+
+        Random rnd = new Random(count);
+        List<DiagramModel> models = new ArrayList<>(count);
+        for (int k = 0; k < count; k++) {
+            models.add(createModel(20 + rnd.nextInt(41), rnd));
+        }
+
+        File dir = Files.createTempDirectory("diagram-export").toFile();
+        DiagramRenderer renderer = new DiagramRenderer();
+        List<DiagramExporter.Job> jobs = new ArrayList<>(count);
+        for (int k = 0; k < count; k++) {
+            jobs.add(new DiagramExporter.Job(models.get(k), renderer, 1.0, new File(dir, "diagram" + k + ".png")));
+        }
+
+        // Warm up
+        new DiagramExporter(threads[threads.length - 1]).export(jobs.subList(0, Math.min(50, count)));
+
+        for (int n : threads) {
+            System.out.println(n + " threads: " + new DiagramExporter(n).export(jobs));
+        }
+
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    private static DiagramModel createModel(int n, Random rnd) {
+        List<ArgumentModel> roots = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) {
+            ArgumentModel premise = new ArgumentModel("p_" + k, k % 3 == 0, "A_" + k + "1", null, true, rnd.nextInt(4), false);
+            roots.add(new ArgumentModel("c_" + k + "(x^2)", true, "A_" + k, "r_" + k, k % 2 == 0, rnd.nextInt(4), false, premise));
+        }
+
+        List<AttackModel> attacks = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) {
+            int a = rnd.nextInt(n);
+            int b = rnd.nextInt(n);
+            if (a != b) {
+                attacks.add(new AttackModel(roots.get(a), roots.get(b), rnd.nextBoolean(), false));
+            }
+        }
+
+        return new DiagramModel(roots, attacks);
+    }
+}
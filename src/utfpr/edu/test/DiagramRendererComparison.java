@@ -0,0 +1,134 @@
+package utfpr.edu.test;
+
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import javax.swing.SwingUtilities;
+import utfpr.edu.argumentation.diagram.Argument;
+import utfpr.edu.argumentation.diagram.ArgumentionFramework;
+import utfpr.edu.argumentation.diagram.Atom;
+import utfpr.edu.argumentation.diagram.DiagramRenderer;
+
+/**
+ * Compares a framework printed with printAll against its model rendered by a
+ * DiagramRenderer, at several scalings. Some arguments have rule tooltips,
+ * which both leave room for. For each scaling, the number of differing
+ * pixels and their bounding box are printed. The renderer fills attacks in
+ * whole pixels, so only the edges of the attack lines and heads are expected
+ * to differ.
+ *
+ * @author Henrique M R Jasinski
+ */
+public class DiagramRendererComparison {
+
+    private static ArgumentionFramework framework;
+
+    /**
+     * Runs the comparison.
+     *
+     * @param args optional scalings, 1.0 0.8 0.4 0.1 by default
+     * @throws InterruptedException if interrupted while waiting for the EDT
+     * @throws InvocationTargetException if the framework can not be built or
+     * painted
+     */
+    public static void main(String[] args) throws InterruptedException, InvocationTargetException {
+        double[] scalings = {1.0, 0.8, 0.4, 0.1};
+        if (args.length > 0) {
+            scalings = new double[args.length];
+            for (int k = 0; k < args.length; k++) {
+                scalings[k] = Double.parseDouble(args[k]);
+            }
+        }
+
+        for (double scaling : scalings) {
+            SwingUtilities.invokeAndWait(() -> {
+                framework = createFramework(scaling);
+            });
+            // Lets the canvas follow the framework size, then lays out every argument
+            SwingUtilities.invokeAndWait(() -> {
+                layout(framework);
+            });
+            SwingUtilities.invokeAndWait(() -> {
+                compare(framework, scaling);
+            });
+        }
+    }
+
+    private static ArgumentionFramework createFramework(double scaling) {
+        ArgumentionFramework af = new ArgumentionFramework();
+
+        List<Argument> roots = new ArrayList<>();
+        List<Argument> subs = new ArrayList<>();
+        for (int k = 0; k < 8; k++) {
+            Atom premise = new Atom("p_" + k, k % 3 != 0).setMyFramewrok(af);
+            Atom conclusion = new Atom("c_" + k + "(x^2)", k % 2 == 0).setMyFramewrok(af);
+            Argument sub = new Argument(premise, "A_" + k + "1", "r_1").setMyFramework(af);
+            Argument root = new Argument(conclusion, "A_" + k, "r_" + k + "^2", k % 4 != 1, sub).setMyFramework(af).setType(k % 4);
+            if (k % 3 == 0) {
+                root.setRuleTooltipText("Rule r_" + k + " of argument A_" + k + ", which has a long description");
+            }
+            af.addArgument(root);
+            roots.add(root);
+            subs.add(sub);
+        }
+
+        for (int k = 0; k + 1 < roots.size(); k++) {
+            af.addAttack(roots.get(k), roots.get(k + 1), k % 2 == 0);
+        }
+        af.addAttack(subs.get(0), roots.get(5), false);
+
+        af.setSizeMultiplier(1.5);
+        af.setScaling(scaling);
+        af.setSize(af.getPreferredSize());
+        af.repositionComponents();
+        return af;
+    }
+
+    private static void layout(Container container) {
+        container.doLayout();
+        for (Component comp : container.getComponents()) {
+            if (comp instanceof Container) {
+                layout((Container) comp);
+            }
+        }
+    }
+
+    private static void compare(ArgumentionFramework af, double scaling) {
+        Dimension size = af.getSize();
+        BufferedImage printed = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = printed.createGraphics();
+        af.printAll(g);
+        g.dispose();
+
+        BufferedImage rendered = DiagramRenderer.of(af).render(af.toModel(), scaling);
+
+        // The framework is at least as large as its preferred size when it was laid out
+        int width = Math.min(printed.getWidth(), rendered.getWidth());
+        int height = Math.min(printed.getHeight(), rendered.getHeight());
+        int differing = 0;
+        Rectangle bounds = null;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (printed.getRGB(x, y) != rendered.getRGB(x, y)) {
+                    differing++;
+                    if (bounds == null) {
+                        bounds = new Rectangle(x, y, 1, 1);
+                    } else {
+                        bounds.add(new Rectangle(x, y, 1, 1));
+                    }
+                }
+            }
+        }
+
+        System.out.println(String.format(Locale.ROOT, "scaling %.2f: printed %d x %d, rendered %d x %d, %d of %d pixels differ%s",
+                scaling, printed.getWidth(), printed.getHeight(), rendered.getWidth(), rendered.getHeight(), differing, width * height,
+                (bounds == null ? "" : String.format(Locale.ROOT, ", within %d x %d at %d, %d", bounds.width, bounds.height, bounds.x, bounds.y))));
+    }
+}
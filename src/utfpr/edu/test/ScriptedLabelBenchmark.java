@@ -0,0 +1,70 @@
+package utfpr.edu.test;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import utfpr.edu.swing.utils.ScriptedLabel;
+import utfpr.edu.swing.utils.ScriptedText;
+
+/**
+ * Compares the html and the ScriptedTextRenderer label paths. For each path
+ * the labels are constructed, measured and painted, and the time of each
+ * phase is printed.
+ *
+ * @author Henrique M R Jasinski
+ */
+public class ScriptedLabelBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args optional number of labels, 5000 by default.
+     */
+    public static void main(String[] args) {
+        int count = (args.length > 0 ? Integer.parseInt(args[0]) : 5000);
+
+        ScriptedText[] texts = new ScriptedText[count];
+        for (int k = 0; k < count; k++) {
+            texts[k] = ScriptedText.parse("A" + (k % 500) + "_" + (k % 7) + "^" + (k % 3));
+        }
+
+        System.out.println("labels: " + count);
+        for (int round = 0; round < ROUNDS; round++) {
+            run("html", texts, true);
+            run("renderer", texts, false);
+        }
+    }
+
+    private static void run(String name, ScriptedText[] texts, boolean html) {
+        ScriptedLabel[] labels = new ScriptedLabel[texts.length];
+
+        long start = System.nanoTime();
+        for (int k = 0; k < texts.length; k++) {
+            labels[k] = new ScriptedLabel(texts[k], html);
+        }
+        long constructed = System.nanoTime();
+
+        int width = 1;
+        int height = 1;
+        for (ScriptedLabel label : labels) {
+            Dimension d = label.getPreferredSize();
+            label.setSize(d);
+            width = Math.max(width, d.width);
+            height = Math.max(height, d.height);
+        }
+        long measured = System.nanoTime();
+
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        for (ScriptedLabel label : labels) {
+            label.paint(g);
+        }
+        g.dispose();
+        long painted = System.nanoTime();
+
+        System.out.println(String.format("%-8s construct %7.2f ms  layout %7.2f ms  paint %7.2f ms",
+                name, (constructed - start) / 1e6, (measured - constructed) / 1e6, (painted - measured) / 1e6));
+    }
+}